@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк общих фильмов двух пользователей с большим количеством лайков (по умолчанию 10000 у каждого).
+ * Лайки выбираются случайно из всех фильмов, поэтому фильмов должно быть больше: -p films=20000
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CommonFilmsBenchmark {
+    @Param("10000")
+    public int userLikes;
+
+    private FilmService filmService;
+    private int userId;
+    private int friendId;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmService = state.getBean(FilmService.class);
+        FilmStorage filmStorage = state.getBean(FilmStorage.class);
+        UserStorage userStorage = state.getBean(UserStorage.class);
+        Random random = new Random(7);
+        userId = userStorage.addUser(heavyUser("first")).getId();
+        friendId = userStorage.addUser(heavyUser("second")).getId();
+        filmStorage.addLikes(randomLikes(random, userId, Math.min(userLikes, state.films), state.films));
+        filmStorage.addLikes(randomLikes(random, friendId, Math.min(userLikes, state.films), state.films));
+    }
+
+    @Benchmark
+    public List<Film> getCommonFilms() {
+        return filmService.getCommonFilms(userId, friendId);
+    }
+
+    private static User heavyUser(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    // count разных фильмов из 1..films: частичная перетасовка Фишера-Йетса
+    private static List<int[]> randomLikes(Random random, int userId, int count, int films) {
+        int[] filmIds = new int[films];
+        for (int i = 0; i < films; i++) {
+            filmIds[i] = i + 1;
+        }
+        List<int[]> likes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(films - i);
+            int filmId = filmIds[j];
+            filmIds[j] = filmIds[i];
+            filmIds[i] = filmId;
+            likes.add(new int[]{filmId, userId});
+        }
+        return likes;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузка 64 параллельных клиентов: чтение фильмов, пользователей и отзывов вперемешку с лайками.
+ * Сравнение настроек БД по умолчанию и профиля perf: -p profile=,perf
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class ConcurrentLoadBenchmark {
+    private FilmService filmService;
+    private UserService userService;
+    private ReviewService reviewService;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmService = state.getBean(FilmService.class);
+        userService = state.getBean(UserService.class);
+        reviewService = state.getBean(ReviewService.class);
+    }
+
+    // 90% чтений, 10% записей лайков
+    @Benchmark
+    public Object mixed(FilmorateState state) {
+        int operation = ThreadLocalRandom.current().nextInt(10);
+        return switch (operation) {
+            case 0, 1, 2, 3 -> filmService.getFilmById(state.randomFilmId());
+            case 4, 5 -> userService.getUserById(state.randomUserId());
+            case 6, 7 -> reviewService.getReviews(state.randomFilmId(), 10);
+            case 8 -> userService.getFriends(state.randomUserId());
+            default -> {
+                filmService.addLike(state.randomFilmId(), state.randomUserId());
+                yield null;
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.EventTypes;
+import ru.yandex.practicum.filmorate.model.Operations;
+import ru.yandex.practicum.filmorate.service.EventFeedService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк записи событий ленты; режим записи задаётся параметром -p eventFeedAsync=true|false
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventFeedBenchmark {
+    private EventFeedService eventFeedService;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        eventFeedService = state.getBean(EventFeedService.class);
+    }
+
+    @Benchmark
+    public void createEventFeed(FilmorateState state) {
+        eventFeedService.createEventFeed(state.randomUserId(), EventTypes.LIKE, Operations.ADD, state.randomFilmId());
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк записи фильмов несколькими параллельными клиентами (число потоков меняется параметром -t)
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class FilmWriteBenchmark {
+    private static final int GENRES = 6;
+    private static final int RATINGS = 5;
+
+    private FilmStorage filmStorage;
+    private int directors;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmStorage = state.getBean(FilmStorage.class);
+        directors = Math.max(1, state.films / 10);
+    }
+
+    @Benchmark
+    public Film addFilm(FilmorateState state) {
+        return filmStorage.addFilm(randomFilm(state, 0));
+    }
+
+    // Обновление со случайными жанрами и режиссерами: часть связей остаётся, часть меняется
+    @Benchmark
+    public Film updateFilm(FilmorateState state) {
+        return filmStorage.updateFilm(randomFilm(state, state.randomFilmId()));
+    }
+
+    private Film randomFilm(FilmorateState state, int id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Genre> genres = new HashSet<>();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            genres.add(new Genre(1 + random.nextInt(GENRES), null));
+        }
+        Set<Director> filmDirectors = new HashSet<>();
+        for (int i = random.nextInt(2); i >= 0; i--) {
+            filmDirectors.add(new Director(1 + random.nextInt(directors), null));
+        }
+        return Film.builder()
+                .id(id)
+                .name(state.randomWord() + " " + state.randomWord())
+                .description("Описание")
+                .releaseDate(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1))
+                .duration(60 + random.nextInt(120))
+                .mpa(new Mpa(1 + random.nextInt(RATINGS), null))
+                .genres(genres)
+                .directors(filmDirectors)
+                .build();
+    }
+}
@@ -0,0 +1,330 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Контекст приложения для бенчмарков: встроенная H2 в памяти, заполненная случайными данными заданного объёма.
+ * Объём задаётся параметрами JMH, например: -p users=10000 -p films=5000 -p likes=200000,
+ * или данные загружаются из снимка (GET /snapshot): -p snapshot=/path/to/filmorate.snapshot.
+ * Профиль Spring включается параметром -p profile=perf; с профилями in-memory и journal сгенерированные данные
+ * переносятся в хранилища в памяти (снимок в этих профилях не загружается), журнал пишется во временный каталог.
+ * С -p fileDatabase=true H2 хранится в файле во временном каталоге, -p journalAwaitDurable=false отключает
+ * ожидание сброса журнала на диск
+ */
+
+@State(Scope.Benchmark)
+public class FilmorateState {
+    // Слова для названий фильмов и имён режиссёров, по ним же выполняется поиск
+    static final String[] WORDS = {"тигр", "дракон", "рыцарь", "тайна", "планета", "город", "ночь", "море",
+        "звезда", "путь", "зима", "лето", "остров", "сердце", "тень", "огонь", "ветер", "дорога", "небо", "река"};
+
+    private static final int GENRES = 6;
+    private static final int RATINGS = 5;
+
+    @Param("1000")
+    public int users;
+
+    @Param("1000")
+    public int films;
+
+    @Param("20000")
+    public int likes;
+
+    @Param("5000")
+    public int friendships;
+
+    @Param("2000")
+    public int reviews;
+
+    @Param("true")
+    public boolean eventFeedAsync;
+
+    // Буфер записи лайков (filmorate.likes.buffered)
+    @Param("true")
+    public boolean likesBuffered;
+
+    @Param("")
+    public String snapshot;
+
+    // Активный профиль Spring, например perf
+    @Param("")
+    public String profile;
+
+    // H2 в файле вместо памяти
+    @Param("false")
+    public boolean fileDatabase;
+
+    // Ожидание сброса журнала на диск до ответа (filmorate.journal.await-durable)
+    @Param("true")
+    public boolean journalAwaitDurable;
+
+    private ConfigurableApplicationContext context;
+    private Path journalDirectory;
+    private Path databaseDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (profile.contains("journal")) {
+            journalDirectory = Files.createTempDirectory("filmorate-journal");
+        }
+        if (fileDatabase) {
+            databaseDirectory = Files.createTempDirectory("filmorate-db");
+        }
+        beforeStart();
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType())
+                // аргументы командной строки, чтобы перекрыть настройки из application.properties
+                .run(arguments().toArray(new String[0]));
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        if (snapshot.isEmpty()) {
+            seed(jdbc, new Random(42));
+            if (context.getBeanNamesForType(FilmDbStorage.class).length > 0) {
+                context.getBean(FilmDbStorage.class).rebuildIndexes();
+            } else {
+                copyToMemory(jdbc);
+            }
+        } else {
+            restore(jdbc, Path.of(snapshot));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        deleteDirectory(journalDirectory);
+        deleteDirectory(databaseDirectory);
+    }
+
+    // Подготовка перед запуском приложения
+    protected void beforeStart() throws IOException {
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> arguments() {
+        String url = databaseDirectory == null ? "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"
+                : "jdbc:h2:file:" + databaseDirectory.resolve("benchmark");
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.main.banner-mode=off",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=WARN",
+                "--filmorate.event-feed.async=" + eventFeedAsync,
+                "--filmorate.likes.buffered=" + likesBuffered,
+                "--spring.profiles.active=" + profile));
+        if (journalDirectory != null) {
+            arguments.add("--filmorate.journal.dir=" + journalDirectory);
+            arguments.add("--filmorate.journal.await-durable=" + journalAwaitDurable);
+        }
+        return arguments;
+    }
+
+    protected ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int randomUserId() {
+        return ThreadLocalRandom.current().nextInt(users) + 1;
+    }
+
+    public int randomFilmId() {
+        return ThreadLocalRandom.current().nextInt(films) + 1;
+    }
+
+    public String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Загрузка снимка; диапазоны случайных ID берутся из загруженных данных
+    private void restore(JdbcTemplate jdbc, Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            context.getBean(SnapshotService.class).restoreSnapshot(input);
+        }
+        users = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class);
+        films = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM films", Integer.class);
+    }
+
+    // Перенос фильмов, пользователей, лайков, дружбы и, если отзывы тоже в памяти, отзывов из БД
+    // в хранилища в памяти; ID совпадают, так как хранилища пустые и выдают ID подряд с 1
+    private void copyToMemory(JdbcTemplate jdbc) {
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        userStorage.addUsers(jdbc.query("SELECT * FROM users ORDER BY id", new UserRowMapper()));
+
+        Map<Integer, Set<Genre>> genres = new HashMap<>();
+        jdbc.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                    .add(new Genre(rs.getInt("genre_id"), null));
+        });
+        Map<Integer, Set<Director>> directors = new HashMap<>();
+        jdbc.query("SELECT film_id, director_id FROM film_director", rs -> {
+            directors.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                    .add(new Director(rs.getInt("director_id"), null));
+        });
+        List<Film> seededFilms = jdbc.query("SELECT * FROM films ORDER BY id", new FilmRowMapper());
+        seededFilms.forEach(film -> {
+            film.setGenres(genres.getOrDefault(film.getId(), Set.of()));
+            film.setDirectors(directors.getOrDefault(film.getId(), Set.of()));
+        });
+        filmStorage.addFilms(seededFilms);
+
+        filmStorage.addLikes(jdbc.query("SELECT film_id, user_id FROM films_like",
+                (rs, rowNum) -> new int[]{rs.getInt("film_id"), rs.getInt("user_id")}));
+        userStorage.addFriends(jdbc.query("SELECT user_id, friend_id FROM user_friends",
+                (rs, rowNum) -> new int[]{rs.getInt("user_id"), rs.getInt("friend_id")}));
+
+        if (context.getBeanNamesForType(ReviewDbStorage.class).length == 0) {
+            ReviewStorage reviewStorage = context.getBean(ReviewStorage.class);
+            jdbc.query("SELECT * FROM reviews ORDER BY id", rs -> {
+                reviewStorage.addReview(new Review(0, rs.getInt("film_id"), rs.getInt("user_id"),
+                        rs.getString("content"), rs.getBoolean("is_positive"), 0));
+            });
+            jdbc.query("SELECT review_id, user_id, is_like FROM review_likes", rs -> {
+                if (rs.getBoolean("is_like")) {
+                    reviewStorage.addLike(rs.getInt("review_id"), rs.getInt("user_id"));
+                } else {
+                    reviewStorage.addDislike(rs.getInt("review_id"), rs.getInt("user_id"));
+                }
+            });
+        }
+    }
+
+    // Заполнение БД: ID пользователей и фильмов идут подряд с 1, так как база создаётся пустой
+    private void seed(JdbcTemplate jdbc, Random random) {
+        List<Object[]> rows = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{"user" + i + "@mail.ru", "user" + i, "Пользователь " + i,
+                Date.valueOf(LocalDate.of(1960 + random.nextInt(45), 1 + random.nextInt(12), 1))});
+        }
+        jdbc.batchUpdate("INSERT INTO users(email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+
+        int directors = Math.max(1, films / 10);
+        rows = new ArrayList<>(directors);
+        for (int i = 1; i <= directors; i++) {
+            rows.add(new Object[]{randomWord(random) + "ов " + randomWord(random)});
+        }
+        jdbc.batchUpdate("INSERT INTO directors(director_name) VALUES (?)", rows);
+
+        rows = new ArrayList<>(films);
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> directorRows = new ArrayList<>(films);
+        for (int i = 1; i <= films; i++) {
+            rows.add(new Object[]{randomWord(random) + " " + randomWord(random) + " " + i, "Описание " + i,
+                Date.valueOf(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1)),
+                60 + random.nextInt(120), 1 + random.nextInt(RATINGS)});
+            int firstGenre = 1 + random.nextInt(GENRES);
+            genreRows.add(new Object[]{i, firstGenre});
+            if (random.nextBoolean()) {
+                genreRows.add(new Object[]{i, firstGenre % GENRES + 1});
+            }
+            directorRows.add(new Object[]{i, 1 + random.nextInt(directors)});
+        }
+        jdbc.batchUpdate("INSERT INTO films(name, description, release_date, duration, rating_id) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+        jdbc.batchUpdate("INSERT INTO film_genres(film_id, genre_id) VALUES (?, ?)", genreRows);
+        jdbc.batchUpdate("INSERT INTO film_director(film_id, director_id) VALUES (?, ?)", directorRows);
+
+        // популярность неравномерна: фильмы с меньшими ID получают больше лайков
+        jdbc.batchUpdate("INSERT INTO films_like(film_id, user_id) VALUES (?, ?)",
+                randomPairs(random, likes, films, users, true));
+        jdbc.update("UPDATE films SET like_count = (SELECT COUNT(*) FROM films_like WHERE film_id = films.id)");
+
+        rows = new ArrayList<>(friendships);
+        for (Object[] pair : randomPairs(random, friendships, users, users, false)) {
+            if (!pair[0].equals(pair[1])) {
+                rows.add(new Object[]{pair[0], pair[1], "confirmed"});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO user_friends(user_id, friend_id, friendship_status) VALUES (?, ?, ?)", rows);
+
+        rows = new ArrayList<>(reviews);
+        for (int i = 1; i <= reviews; i++) {
+            rows.add(new Object[]{1 + random.nextInt(films), 1 + random.nextInt(users), "Отзыв " + i,
+                random.nextBoolean()});
+        }
+        jdbc.batchUpdate("INSERT INTO reviews(film_id, user_id, content, is_positive) VALUES (?, ?, ?, ?)", rows);
+
+        rows = new ArrayList<>();
+        for (Object[] pair : randomPairs(random, reviews * 2, reviews, users, false)) {
+            rows.add(new Object[]{pair[0], pair[1], random.nextBoolean()});
+        }
+        jdbc.batchUpdate("INSERT INTO review_likes(review_id, user_id, is_like) VALUES (?, ?, ?)", rows);
+    }
+
+    // Уникальные пары (1..firstMax, 1..secondMax); при skewed первые значения выбираются чаще
+    private List<Object[]> randomPairs(Random random, int count, int firstMax, int secondMax, boolean skewed) {
+        int total = (int) Math.min(count, (long) firstMax * secondMax);
+        Set<Long> seen = new HashSet<>(total * 2);
+        List<Object[]> pairs = new ArrayList<>(total);
+        while (pairs.size() < total) {
+            double r = random.nextDouble();
+            int first = 1 + (int) ((skewed ? r * r : r) * firstMax);
+            int second = 1 + random.nextInt(secondMax);
+            if (seen.add((long) first * secondMax + second)) {
+                pairs.add(new Object[]{first, second});
+            }
+        }
+        return pairs;
+    }
+
+    private String randomWord(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
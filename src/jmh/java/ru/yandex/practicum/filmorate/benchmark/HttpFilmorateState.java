@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.util.List;
+
+/**
+ * Приложение с веб-сервером на случайном порту для нагрузки через HTTP.
+ * Режим потоков задаётся параметром -p virtualThreads=false,true (виртуальные потоки - только на Java 21+)
+ */
+
+@State(Scope.Benchmark)
+public class HttpFilmorateState extends FilmorateState {
+    @Param("false")
+    public boolean virtualThreads;
+
+    // Адрес приложения вида http://localhost:port
+    public String baseUrl() {
+        return "http://localhost:" + ((WebServerApplicationContext) getContext()).getWebServer().getPort();
+    }
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> arguments() {
+        List<String> arguments = super.arguments();
+        arguments.add("--server.port=0");
+        arguments.add("--management.server.port=-1");
+        arguments.add("--spring.threads.virtual.enabled=" + virtualThreads);
+        // запросы должны доходить до БД, а не отдаваться из кэша ответов
+        arguments.add("--filmorate.response-cache.enabled=false");
+        return arguments;
+    }
+}
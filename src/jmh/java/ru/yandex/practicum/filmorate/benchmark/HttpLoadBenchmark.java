@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP-нагрузка 1000 параллельных соединений на эндпоинты фильмов и пользователей.
+ * Пропускная способность и перцентили задержки (p0.99 в режиме SampleTime) сравниваются
+ * для потоков платформы и виртуальных потоков: -p virtualThreads=false,true
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1000)
+public class HttpLoadBenchmark {
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setUp(HttpFilmorateState state) {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = state.baseUrl();
+    }
+
+    @Benchmark
+    public String getFilm(HttpFilmorateState state) throws IOException, InterruptedException {
+        return get("/films/" + state.randomFilmId());
+    }
+
+    @Benchmark
+    public String getUser(HttpFilmorateState state) throws IOException, InterruptedException {
+        return get("/users/" + state.randomUserId());
+    }
+
+    @Benchmark
+    public String getFriends(HttpFilmorateState state) throws IOException, InterruptedException {
+        return get("/users/" + state.randomUserId() + "/friends");
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + ": " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость HTTP-журнала: пропускная способность эндпоинтов фильмов в режимах журнала off, sync и async
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class HttpLoggingBenchmark {
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setUp(HttpLoggingState state) {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = state.baseUrl();
+    }
+
+    // Список всех фильмов - самый большой ответ
+    @Benchmark
+    public int getAllFilms() throws IOException, InterruptedException {
+        return get("/films");
+    }
+
+    @Benchmark
+    public int getFilm(HttpLoggingState state) throws IOException, InterruptedException {
+        return get("/films/" + state.randomFilmId());
+    }
+
+    @Benchmark
+    public int getPopularFilms() throws IOException, InterruptedException {
+        return get("/films/popular?count=100");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + ": " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Приложение с веб-сервером в одном из режимов HTTP-журнала (-p httpLog=off,sync,async):
+ * off - журнал выключен, sync - прежний режим (синхронно, тела целиком, без выборки и исключений списков),
+ * async - режим из application.properties. Консольный вывод перенаправляется во временный файл.
+ */
+
+@State(Scope.Benchmark)
+public class HttpLoggingState extends HttpFilmorateState {
+    @Param({"off", "sync", "async"})
+    public String httpLog;
+
+    private PrintStream originalOut;
+    private Path logFile;
+
+    @Override
+    protected void beforeStart() throws IOException {
+        logFile = Files.createTempFile("filmorate-http-log", ".log");
+        originalOut = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(logFile.toFile())), false));
+    }
+
+    @Override
+    protected List<String> arguments() {
+        List<String> arguments = super.arguments();
+        // повторный аргумент с тем же именем не перекрывает, а дописывается через запятую
+        arguments.removeIf(argument -> argument.startsWith("--logging.level.org.zalando.logbook="));
+        arguments.add("--logging.level.org.zalando.logbook=" + (httpLog.equals("off") ? "WARN" : "TRACE"));
+        if (httpLog.equals("sync")) {
+            arguments.removeIf(argument -> argument.startsWith("--spring.profiles.active="));
+            arguments.add("--spring.profiles.active=http-log-sync");
+            arguments.add("--logbook.write.max-body-size=-1");
+            arguments.add("--filmorate.http-log.sample-rates=");
+            // список исключений заменяется целиком
+            arguments.add("--logbook.predicate.exclude[0].path=/import/**");
+            arguments.add("--logbook.predicate.exclude[1].path=/snapshot/**");
+        }
+        return arguments;
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() throws IOException {
+        System.out.flush();
+        System.setOut(originalOut);
+        Files.deleteIfExists(logFile);
+    }
+}
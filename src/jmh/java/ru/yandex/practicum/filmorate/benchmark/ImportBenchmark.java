@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк пакетного импорта NDJSON: результат - строк в секунду.
+ * Каждый вызов импортирует ROWS новых строк; размер пакета записи задаётся параметром chunkSize
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImportBenchmark {
+    private static final int ROWS = 10_000;
+    private static final int GENRES = 6;
+    private static final int RATINGS = 5;
+
+    @Param("1000")
+    public int chunkSize;
+
+    private ImportService importService;
+    private int directors;
+    private long userSequence;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        importService = new ImportService(state.getBean(FilmStorage.class), state.getBean(UserStorage.class),
+                state.getBean(MpaService.class), state.getBean(GenreService.class), state.getBean(DirectorService.class),
+                state.getBean(ObjectMapper.class), state.getBean(ResourceVersions.class), chunkSize);
+        directors = Math.max(1, state.films / 10);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportResult importUsers() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            long n = userSequence++;
+            ndjson.append("{\"email\":\"import").append(n).append("@mail.ru\",\"login\":\"import").append(n)
+                    .append("\",\"name\":\"Импорт\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        return importService.importUsers(input(ndjson));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportResult importFilms(FilmorateState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            ndjson.append("{\"name\":\"").append(state.randomWord()).append(' ').append(state.randomWord())
+                    .append("\",\"description\":\"Описание\",\"releaseDate\":\"")
+                    .append(1950 + random.nextInt(75)).append("-01-01\",\"duration\":")
+                    .append(60 + random.nextInt(120)).append(",\"mpa\":{\"id\":").append(1 + random.nextInt(RATINGS))
+                    .append("},\"genres\":[{\"id\":").append(1 + random.nextInt(GENRES))
+                    .append("}],\"directors\":[{\"id\":").append(1 + random.nextInt(directors)).append("}]}\n");
+        }
+        return importService.importFilms(input(ndjson));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportResult importLikes(FilmorateState state) {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            ndjson.append("{\"filmId\":").append(state.randomFilmId())
+                    .append(",\"userId\":").append(state.randomUserId()).append("}\n");
+        }
+        return importService.importLikes(input(ndjson));
+    }
+
+    private static ByteArrayInputStream input(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк лайков одного популярного фильма: 256 потоков ставят и снимают лайки первого фильма случайными
+ * пользователями; запись через буфер или в транзакции запроса задаётся параметром -p likesBuffered=true|false.
+ * storage - только хранилище лайков, service - запрос целиком, вместе с событием ленты.
+ * Без буфера одновременные лайки одной пары нарушают первичный ключ: такие запросы завершаются ошибкой
+ * и тоже учитываются в результате
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(256)
+public class LikeContentionBenchmark {
+    private static final int FILM_ID = 1;
+
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmStorage = state.getBean(FilmStorage.class);
+        filmService = state.getBean(FilmService.class);
+    }
+
+    @Benchmark
+    public boolean storage(FilmorateState state) {
+        return likeOrUnlike(state, filmStorage::addLike, filmStorage::removeLike);
+    }
+
+    @Benchmark
+    public boolean service(FilmorateState state) {
+        return likeOrUnlike(state, filmService::addLike, filmService::removeLike);
+    }
+
+    // Три лайка на одну отмену: один пользователь может несколько раз поставить и снять лайк
+    private static boolean likeOrUnlike(FilmorateState state, LikeAction like, LikeAction unlike) {
+        int userId = state.randomUserId();
+        try {
+            if (ThreadLocalRandom.current().nextInt(4) == 0) {
+                unlike.accept(FILM_ID, userId);
+            } else {
+                like.accept(FILM_ID, userId);
+            }
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private interface LikeAction {
+        void accept(int filmId, int userId);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки чтения: фильмы, популярное, поиск, рекомендации, общие друзья, рекомендации друзей и отзывы.
+ * Поиск ID фильмов по индексу (searchFilmIds) сравнивается с прежним запросом LIKE '%query%' (searchFilmIdsLike)
+ * без загрузки найденных фильмов, например на 100 тыс. фильмов:
+ * -Djmh.include=ReadBenchmark.searchFilmIds -Djmh.args="-f 1 -p films=100000"
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadBenchmark {
+    // Поиск по названию и режиссеру до появления поискового индекса, порядок - по популярности, как в индексе
+    private static final String SEARCH_LIKE_QUERY = "SELECT f.id FROM films f WHERE LOWER(f.name) " +
+            "LIKE LOWER(CONCAT('%', ?, '%')) OR EXISTS (SELECT 1 FROM film_director fd " +
+            "JOIN directors d ON fd.director_id = d.director_id " +
+            "WHERE fd.film_id = f.id AND LOWER(d.director_name) LIKE LOWER(CONCAT('%', ?, '%'))) " +
+            "ORDER BY f.like_count DESC, f.id";
+
+    private FilmStorage filmStorage;
+    private UserService userService;
+    private ReviewService reviewService;
+    private FriendSuggestionService friendSuggestionService;
+    private FilmSearchIndex filmSearchIndex;
+    private PopularFilmsIndex popularFilmsIndex;
+    private JdbcTemplate jdbc;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmStorage = state.getBean(FilmStorage.class);
+        userService = state.getBean(UserService.class);
+        reviewService = state.getBean(ReviewService.class);
+        friendSuggestionService = state.getBean(FriendSuggestionService.class);
+        filmSearchIndex = state.getBean(FilmSearchIndex.class);
+        popularFilmsIndex = state.getBean(PopularFilmsIndex.class);
+        jdbc = state.getBean(JdbcTemplate.class);
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilms() {
+        return filmStorage.getMostPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> searchFilm(FilmorateState state) {
+        return filmStorage.searchFilm(state.randomWord(), "title,director");
+    }
+
+    // ID найденных фильмов по поисковому индексу в порядке популярности
+    @Benchmark
+    public List<Integer> searchFilmIds(FilmorateState state) {
+        Set<Integer> filmIds = filmSearchIndex.search(state.randomWord(), true, true);
+        return popularFilmsIndex.sortByLikes(filmIds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // Те же ID полным просмотром таблицы (только для хранилищ в БД)
+    @Benchmark
+    public List<Integer> searchFilmIdsLike(FilmorateState state) {
+        String word = state.randomWord();
+        return jdbc.queryForList(SEARCH_LIKE_QUERY, Integer.class, word, word);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(FilmorateState state) {
+        return userService.getRecommendations(state.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(FilmorateState state) {
+        return userService.getCommonFriends(state.randomUserId(), state.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestions(FilmorateState state) {
+        return friendSuggestionService.getFriendSuggestions(state.randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<Review> getReviews(FilmorateState state) {
+        return reviewService.getReviews(state.randomFilmId(), 10);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики попаданий и промахов кэша
+ */
+
+public class CacheStats {
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Доля попаданий (0, если обращений не было)
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": hits=" + getHits() + ", misses=" + getMisses();
+    }
+}
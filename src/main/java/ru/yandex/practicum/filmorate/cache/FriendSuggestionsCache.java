@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Кэш рекомендаций друзей ("возможно, вы знакомы").
+ * Для каждого пользователя хранит ID первых SUGGESTIONS_PER_USER рекомендованных пользователей.
+ * При изменении дружбы сбрасываются записи пользователей, чьи друзья второго круга могли измениться;
+ * рекомендации, посчитанные до сброса записи пользователя, в кэш не попадают.
+ */
+
+@Component
+public class FriendSuggestionsCache {
+    public static final int SUGGESTIONS_PER_USER = 50;
+    private static final int MAX_USERS = 10_000;
+
+    private final LruCache<Integer, List<Integer>> suggestions = new LruCache<>("friend-suggestions", MAX_USERS);
+
+    // ID рекомендованных пользователей из кэша, при промахе - расчёт через loader
+    public List<Integer> get(int userId, Function<Integer, List<Integer>> loader) {
+        return suggestions.get(userId, id -> List.copyOf(loader.apply(id)));
+    }
+
+    // Сброс кэша пользователей, затронутых изменением дружбы
+    public void invalidate(Collection<Integer> userIds) {
+        userIds.forEach(suggestions::invalidate);
+    }
+
+    // Сброс кэша всех пользователей
+    public void invalidateAll() {
+        suggestions.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return suggestions.getStats();
+    }
+}
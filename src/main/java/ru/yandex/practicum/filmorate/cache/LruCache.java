@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру кэш с вытеснением давно не использованных записей (LRU).
+ * Загрузка при промахе получает метку ключа; сброс ключа во время загрузки снимает метку,
+ * и прочитанное до сброса значение в кэш не попадает.
+ */
+
+public class LruCache<K, V> {
+    private final Map<K, V> entries;
+    private final Map<K, Object> loads = new HashMap<>(); // ключ -> метка загрузки, начатой после последнего сброса
+    private final CacheStats stats;
+
+    public LruCache(String name, int maxSize) {
+        this.stats = new CacheStats(name);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    // Получение значения из кэша, при промахе - загрузка через loader вне блокировки.
+    // Значение сохраняется, только если ключ не сбрасывался и не загружался заново с начала загрузки
+    public V get(K key, Function<K, V> loader) {
+        Object load = new Object();
+        synchronized (this) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                stats.recordHit();
+                return cached;
+            }
+            stats.recordMiss();
+            loads.put(key, load);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loads.remove(key, load);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (loads.remove(key, load) && value != null) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public synchronized Optional<V> getIfPresent(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            stats.recordMiss();
+        } else {
+            stats.recordHit();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        loads.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        loads.clear();
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EventFeed;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Кэш последних событий активных пользователей.
+ * Для каждого пользователя хранит последние EVENTS_PER_USER событий, при записи новых событий
+ * пользователя запись кэша сбрасывается. Сброс во время чтения событий пользователя из БД не даёт положить
+ * в кэш прочитанные до записи данные; чтения других пользователей при этом кэшируются как обычно.
+ */
+
+@Component
+public class RecentEventsCache {
+    public static final int EVENTS_PER_USER = 50;
+    private static final int MAX_USERS = 10_000;
+
+    private final LruCache<Integer, List<EventFeed>> events = new LruCache<>("recent-events", MAX_USERS);
+
+    // Последние события пользователя (не больше limit); при промахе последние EVENTS_PER_USER событий
+    // загружаются через loader
+    public List<EventFeed> getLatest(int userId, int limit, Function<Integer, List<EventFeed>> loader) {
+        List<EventFeed> latest = events.get(userId, id -> List.copyOf(loader.apply(id)));
+        return latest.subList(Math.max(0, latest.size() - limit), latest.size());
+    }
+
+    // Сброс кэша пользователей, для которых записаны новые события
+    public void invalidate(Collection<Integer> userIds) {
+        userIds.forEach(events::invalidate);
+    }
+
+    // Сброс кэша всех пользователей
+    public void invalidateAll() {
+        events.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return events.getStats();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики версий ресурсов для кэша HTTP-ответов.
+ * Версия ресурса увеличивается после каждой зафиксированной записи, которая меняет его представление,
+ * поэтому ответ, сохранённый при версии v, актуален, пока текущая версия равна v.
+ */
+
+@Component
+public class ResourceVersions {
+    private final AtomicLongArray versions = new AtomicLongArray(Resource.values().length);
+
+    public long get(Resource resource) {
+        return versions.get(resource.ordinal());
+    }
+
+    // Увеличение версий ресурсов; вызывается после фиксации изменений в БД
+    public void bump(Resource... resources) {
+        for (Resource resource : resources) {
+            versions.incrementAndGet(resource.ordinal());
+        }
+    }
+
+    // Увеличение версий всех ресурсов, например после восстановления БД из снимка
+    public void bumpAll() {
+        bump(Resource.values());
+    }
+
+    public enum Resource {
+        GENRES, MPA, DIRECTORS, FILMS, REVIEWS
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Потоки фоновых задач приложения.
+ * В режиме spring.threads.virtual.enabled (Java 21+) задачи выполняются в виртуальных потоках,
+ * как и обработка запросов Tomcat, иначе - в потоках-демонах платформы.
+ */
+
+@Component
+public class BackgroundThreads {
+    private final boolean virtual;
+
+    public BackgroundThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Фабрика потоков с заданным именем
+    public ThreadFactory factory(String name) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
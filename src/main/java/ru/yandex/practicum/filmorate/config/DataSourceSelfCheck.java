@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Проверка настроек БД после запуска: в журнал пишутся фактические параметры пула и H2,
+ * расхождения с filmorate.datasource.h2-settings выводятся предупреждением
+ */
+
+@Slf4j
+@Component
+public class DataSourceSelfCheck {
+    private static final String FIND_H2_SETTINGS = "SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final Map<String, String> expectedH2Settings;
+
+    public DataSourceSelfCheck(DataSource dataSource, JdbcTemplate jdbc,
+                               @Value("${filmorate.datasource.tuning.enabled:false}") boolean tuningEnabled,
+                               @Value("${filmorate.datasource.h2-settings:}") String h2Settings) {
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        this.expectedH2Settings = tuningEnabled ? DataSourceTuning.parseSettings(h2Settings) : Map.of();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            log.info("Пул соединений {}: maximumPoolSize={}, minimumIdle={}, connectionTimeout={} мс, ядер: {}",
+                    hikari.getPoolName(), hikari.getMaximumPoolSize(), hikari.getMinimumIdle(),
+                    hikari.getConnectionTimeout(), Runtime.getRuntime().availableProcessors());
+        }
+        if (!isH2()) {
+            return;
+        }
+        Map<String, String> actual = new HashMap<>();
+        // настройка может встречаться дважды (уровень БД и хранилища), берётся первое значение
+        jdbc.query(FIND_H2_SETTINGS, rs -> {
+            actual.putIfAbsent(rs.getString("SETTING_NAME"), rs.getString("SETTING_VALUE"));
+        });
+        log.info("H2 {}: CACHE_SIZE={} КБ, WRITE_DELAY={} мс, QUERY_CACHE_SIZE={}, MV_STORE={}",
+                actual.get("info.VERSION"), actual.get("CACHE_SIZE"), actual.get("WRITE_DELAY"),
+                actual.get("QUERY_CACHE_SIZE"), actual.get("MV_STORE"));
+        expectedH2Settings.forEach((name, value) -> {
+            // часть настроек (например LOCK_TIMEOUT) относится к сессии и в таблице не выводится
+            if (actual.containsKey(name) && !actual.get(name).equalsIgnoreCase(value)) {
+                log.warn("Настройка H2 {} не применена: ожидалось {}, фактически {}", name, value, actual.get(name));
+            }
+        });
+    }
+
+    private boolean isH2() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return "H2".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Настройка пула соединений и H2 до первого подключения (профиль perf).
+ * Размер пула вычисляется по числу ядер, настройки H2 (размер кэша страниц, задержка записи,
+ * кэш разобранных запросов сессии) добавляются в URL, если не заданы в нём явно.
+ */
+
+@Slf4j
+@Component
+public class DataSourceTuning implements BeanPostProcessor {
+    private final boolean enabled;
+    private final int poolSize;
+    private final int poolSizePerCore;
+    private final Map<String, String> h2Settings;
+
+    public DataSourceTuning(@Value("${filmorate.datasource.tuning.enabled:false}") boolean enabled,
+                            @Value("${filmorate.datasource.pool-size:0}") int poolSize,
+                            @Value("${filmorate.datasource.pool-size-per-core:2}") int poolSizePerCore,
+                            @Value("${filmorate.datasource.h2-settings:}") String h2Settings) {
+        this.enabled = enabled;
+        this.poolSize = poolSize;
+        this.poolSizePerCore = poolSizePerCore;
+        this.h2Settings = parseSettings(h2Settings);
+    }
+
+    // Вызывается после привязки spring.datasource.hikari.*, но до создания пула
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof HikariDataSource dataSource) {
+            int size = poolSize(Runtime.getRuntime().availableProcessors());
+            // пул фиксированного размера: соединения не создаются и не закрываются под нагрузкой
+            dataSource.setMaximumPoolSize(size);
+            dataSource.setMinimumIdle(size);
+            dataSource.setJdbcUrl(withH2Settings(dataSource.getJdbcUrl(), h2Settings));
+            log.info("Профиль производительности БД: пул {} соединений, URL {}", size, dataSource.getJdbcUrl());
+        }
+        return bean;
+    }
+
+    // Размер пула: явно заданный или poolSizePerCore соединений на ядро
+    int poolSize(int cores) {
+        return poolSize > 0 ? poolSize : Math.max(2, cores * poolSizePerCore);
+    }
+
+    // Добавление настроек в URL H2; настройки, уже заданные в URL, не перекрываются
+    static String withH2Settings(String url, Map<String, String> settings) {
+        if (url == null || !url.startsWith("jdbc:h2:")) {
+            return url;
+        }
+        Map<String, String> present = parseSettings(url.contains(";") ? url.substring(url.indexOf(';') + 1) : "");
+        StringBuilder result = new StringBuilder(url);
+        settings.forEach((name, value) -> {
+            if (!present.containsKey(name)) {
+                result.append(';').append(name).append('=').append(value);
+            }
+        });
+        return result.toString();
+    }
+
+    // Разбор строки вида "CACHE_SIZE=65536;WRITE_DELAY=100"; имена приводятся к верхнему регистру
+    static Map<String, String> parseSettings(String settings) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String setting : settings.split(";")) {
+            int eq = setting.indexOf('=');
+            if (eq > 0) {
+                result.put(setting.substring(0, eq).trim().toUpperCase(Locale.ROOT), setting.substring(eq + 1).trim());
+            }
+        }
+        return result;
+    }
+}
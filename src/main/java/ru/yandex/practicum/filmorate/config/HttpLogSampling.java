@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Выборочная запись HTTP-журнала Logbook: доля журналируемых запросов задаётся по шаблонам пути.
+ * Бин заменяет условие Logbook requestCondition; исключения logbook.predicate.exclude продолжают действовать.
+ * Решение принимается до чтения тела, поэтому у непопавших в выборку запросов тело не буферизуется.
+ */
+
+@Component("requestCondition")
+public class HttpLogSampling implements Predicate<HttpRequest> {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final List<SampleRate> sampleRates;
+
+    public HttpLogSampling(@Value("${filmorate.http-log.sample-rates:}") String sampleRates) {
+        this.sampleRates = parseSampleRates(sampleRates);
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        double rate = sampleRate(request.getMethod(), request.getPath());
+        return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    // Доля по первому подходящему правилу; запросы без подходящего правила журналируются все
+    double sampleRate(String method, String path) {
+        for (SampleRate sampleRate : sampleRates) {
+            if ((sampleRate.method() == null || sampleRate.method().equalsIgnoreCase(method))
+                    && PATH_MATCHER.match(sampleRate.pattern(), path)) {
+                return sampleRate.rate();
+            }
+        }
+        return 1;
+    }
+
+    // Разбор правил вида "GET /films/**=0.1,/users/**=0.5": метод необязателен, доля от 0 до 1
+    static List<SampleRate> parseSampleRates(String sampleRates) {
+        List<SampleRate> result = new ArrayList<>();
+        for (String rule : sampleRates.split(",")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int eq = rule.lastIndexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Правило выборки без доли: " + rule);
+            }
+            String[] target = rule.substring(0, eq).trim().split("\\s+");
+            double rate = Double.parseDouble(rule.substring(eq + 1).trim());
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Доля выборки должна быть от 0 до 1: " + rule);
+            }
+            result.add(target.length == 1
+                    ? new SampleRate(null, target[0], rate)
+                    : new SampleRate(target[0].toUpperCase(Locale.ROOT), target[1], rate));
+        }
+        return List.copyOf(result);
+    }
+
+    record SampleRate(String method, String pattern, double rate) {
+    }
+}
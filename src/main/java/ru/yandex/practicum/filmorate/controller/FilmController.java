@@ -2,9 +2,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 
 import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.validation.CreateGroup;
@@ -22,10 +25,12 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -54,6 +59,20 @@ public class FilmController {
         return filmService.getAllFilms();
     }
 
+    // Получить страницу фильмов с ID больше afterId
+    @GetMapping(params = "limit")
+    public List<Film> getFilms(@RequestParam(required = false) Integer afterId, @RequestParam int limit) {
+        log.info("Получение {} фильмов после ID={}", limit, afterId);
+        return filmService.getFilms(afterId, limit);
+    }
+
+    // Получить все фильмы потоком, без загрузки списка в память; вместе с limit выдаётся страница
+    @GetMapping(params = {"stream=true", "!limit"})
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        log.info("Потоковое получение списка всех фильмов");
+        return JsonStreaming.jsonArray(objectMapper, filmService::streamAllFilms);
+    }
+
     @GetMapping("/{id}")
     public Film getFilmById(@PathVariable int id) {
         log.info("Получение фильма с ID=" + id);
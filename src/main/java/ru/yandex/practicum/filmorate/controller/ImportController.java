@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.InputStream;
+
+/**
+ * Контроллер пакетного импорта данных в формате NDJSON (application/x-ndjson), тело запроса читается потоково
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+public class ImportController {
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // Импорт фильмов
+    @PostMapping("/films")
+    public ImportResult importFilms(InputStream body) {
+        log.info("Импорт фильмов");
+        return importService.importFilms(body);
+    }
+
+    // Импорт пользователей
+    @PostMapping("/users")
+    public ImportResult importUsers(InputStream body) {
+        log.info("Импорт пользователей");
+        return importService.importUsers(body);
+    }
+
+    // Импорт дружбы
+    @PostMapping("/friends")
+    public ImportResult importFriends(InputStream body) {
+        log.info("Импорт дружбы");
+        return importService.importFriends(body);
+    }
+
+    // Импорт лайков
+    @PostMapping("/likes")
+    public ImportResult importLikes(InputStream body) {
+        log.info("Импорт лайков");
+        return importService.importLikes(body);
+    }
+}
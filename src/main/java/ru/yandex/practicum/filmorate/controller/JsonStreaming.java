@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая запись JSON-массива в ответ: элементы сериализуются по мере получения из хранилища,
+ * поэтому расход памяти не зависит от размера таблицы
+ */
+
+final class JsonStreaming {
+    private JsonStreaming() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> jsonArray(ObjectMapper objectMapper,
+                                                              Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                source.accept(element -> {
+                    try {
+                        generator.writeObject(element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
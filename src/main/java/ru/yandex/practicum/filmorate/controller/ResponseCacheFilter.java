@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.LruCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш GET-ответов справочников, фильмов и отзывов.
+ * Ответ сохраняется в сериализованном виде вместе с версией ресурса и отдаётся без обращения к контроллеру
+ * и Jackson, пока версия не изменилась. ETag строится из версии ресурса, поэтому If-None-Match
+ * проверяется без формирования тела и при совпадении возвращается 304.
+ */
+
+@Slf4j
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+    private static final int MAX_ENTRIES = 1000;
+    private static final int MAX_BODY_BYTES = 256 * 1024;
+    private static final Pattern FILM_PATH = Pattern.compile("/films/(\\d+|popular)");
+    private static final Pattern REVIEW_PATH = Pattern.compile("/reviews(/\\d+)?");
+
+    private final ResourceVersions resourceVersions;
+    private final boolean enabled;
+    private final LruCache<String, CachedResponse> responses = new LruCache<>("http-responses", MAX_ENTRIES);
+    // счётчики версий после перезапуска начинаются заново, метка запуска не даёт совпасть старым ETag
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    @Autowired
+    public ResponseCacheFilter(ResourceVersions resourceVersions,
+                               @Value("${filmorate.response-cache.enabled:true}") boolean enabled) {
+        this.resourceVersions = resourceVersions;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || resourceOf(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Resource resource = resourceOf(request.getRequestURI());
+        // версия читается до обработки запроса: если запись произойдёт во время обработки, ответ устареет сразу
+        long version = resourceVersions.get(resource);
+        String etag = "\"" + resource.name().toLowerCase() + "-" + instanceTag + "-" + version + "\"";
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        String key = cacheKey(request);
+        Optional<CachedResponse> cached = responses.getIfPresent(key);
+        if (cached.isPresent() && cached.get().version() == version) {
+            write(response, etag, cached.get());
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK) {
+            byte[] body = wrapper.getContentAsByteArray();
+            if (body.length <= MAX_BODY_BYTES) {
+                responses.put(key, new CachedResponse(version, wrapper.getContentType(), body));
+            }
+            wrapper.setHeader(HttpHeaders.ETAG, etag);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    public CacheStats getStats() {
+        return responses.getStats();
+    }
+
+    // Ресурс, от версии которого зависит ответ; null - ответ не кэшируется
+    static Resource resourceOf(String path) {
+        if (path.equals("/genres") || path.startsWith("/genres/")) {
+            return Resource.GENRES;
+        }
+        if (path.equals("/mpa") || path.startsWith("/mpa/")) {
+            return Resource.MPA;
+        }
+        if (path.equals("/directors") || path.startsWith("/directors/")) {
+            return Resource.DIRECTORS;
+        }
+        if (FILM_PATH.matcher(path).matches()) {
+            return Resource.FILMS;
+        }
+        if (REVIEW_PATH.matcher(path).matches()) {
+            return Resource.REVIEWS;
+        }
+        return null;
+    }
+
+    private static String cacheKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+    }
+
+    // Проверка If-None-Match: список ETag через запятую или "*"
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void write(HttpServletResponse response, String etag, CachedResponse cached) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    private record CachedResponse(long version, String contentType, byte[] body) {
+    }
+}
@@ -63,7 +63,7 @@ public class ReviewController {
     @GetMapping()
     public List<Review> getReviews(@RequestParam(required = false) Integer filmId, @RequestParam(defaultValue = "10") Integer count) {
         if (filmId == null) {
-            log.info("Получение всех отзывов");
+            log.info("Получение " + count + " самых полезных отзывов ко всем фильмам");
         } else {
             log.info("Получение " + count + " отзывов к фильму " + filmId);
         }
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Контроллер выгрузки и восстановления снимка всех данных (application/octet-stream)
+ */
+
+@Slf4j
+@RestController
+@Profile("!in-memory & !journal")
+@RequestMapping("/snapshot")
+public class SnapshotController {
+    private final SnapshotService snapshotService;
+    private final SnapshotRestoreFilter restoreFilter;
+    private final boolean restoreEnabled;
+
+    @Autowired
+    public SnapshotController(SnapshotService snapshotService, SnapshotRestoreFilter restoreFilter,
+                              @Value("${filmorate.snapshot.restore-enabled:false}") boolean restoreEnabled) {
+        this.snapshotService = snapshotService;
+        this.restoreFilter = restoreFilter;
+        this.restoreEnabled = restoreEnabled;
+    }
+
+    // Выгрузка снимка, тело ответа пишется потоково
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        log.info("Выгрузка снимка");
+        StreamingResponseBody body = snapshotService::exportSnapshot;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filmorate.snapshot\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+
+    // Восстановление из снимка: все текущие данные заменяются, изменяющие запросы на это время приостановлены
+    @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Map<String, Long> restoreSnapshot(InputStream body) {
+        if (!restoreEnabled) {
+            log.error("Попытка восстановления из снимка, восстановление отключено");
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Восстановление из снимка отключено (filmorate.snapshot.restore-enabled)");
+        }
+        log.info("Восстановление из снимка");
+        return restoreFilter.exclusive(() -> snapshotService.restoreSnapshot(body));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Запрет записи на время восстановления из снимка.
+ * Изменяющие запросы выполняются под блокировкой чтения, восстановление - под блокировкой записи:
+ * оно дожидается завершения начатых изменений, а новые ждут окончания восстановления.
+ * Блокировка честная, поэтому поток изменений не откладывает восстановление бесконечно.
+ */
+
+@Component
+@Profile("!in-memory & !journal")
+public class SnapshotRestoreFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final String SNAPSHOT_PATH = "/snapshot";
+
+    private final ReadWriteLock restoreLock = new ReentrantReadWriteLock(true);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod()) || SNAPSHOT_PATH.equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        restoreLock.readLock().lock();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            restoreLock.readLock().unlock();
+        }
+    }
+
+    // Выполнение восстановления, пока изменяющие запросы ждут
+    public <T> T exclusive(Supplier<T> restore) {
+        restoreLock.writeLock().lock();
+        try {
+            return restore.get();
+        } finally {
+            restoreLock.writeLock().unlock();
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.EventFeed;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.EventFeedService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validation.CreateGroup;
 import ru.yandex.practicum.filmorate.validation.UpdateGroup;
@@ -23,10 +27,15 @@ import java.util.List;
 public class UserController {
     private final UserService userService;
     private final EventFeedService eventFeedService;
+    private final FriendSuggestionService friendSuggestionService;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService, EventFeedService eventFeedService) {
+    public UserController(UserService userService, EventFeedService eventFeedService,
+                          FriendSuggestionService friendSuggestionService, ObjectMapper objectMapper) {
         this.userService = userService;
         this.eventFeedService = eventFeedService;
+        this.friendSuggestionService = friendSuggestionService;
+        this.objectMapper = objectMapper;
     }
 
     // Добавить пользователя
@@ -53,6 +62,20 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    // Получить страницу пользователей с ID больше afterId
+    @GetMapping(params = "limit")
+    public List<User> getUsers(@RequestParam(required = false) Integer afterId, @RequestParam int limit) {
+        log.info("Получение {} пользователей после ID={}", limit, afterId);
+        return userService.getUsers(afterId, limit);
+    }
+
+    // Получить всех пользователей потоком, без загрузки списка в память; вместе с limit выдаётся страница
+    @GetMapping(params = {"stream=true", "!limit"})
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        log.info("Потоковое получение списка всех пользователей");
+        return JsonStreaming.jsonArray(objectMapper, userService::streamAllUsers);
+    }
+
     // Получить пользователя по ID
     @GetMapping("/{id}")
     public User getUserById(@PathVariable int id) {
@@ -87,6 +110,13 @@ public class UserController {
         return userService.getCommonFriends(id, friendId);
     }
 
+    // Получить рекомендации друзей: друзья друзей, больше всего общих друзей и лайков - первыми
+    @GetMapping("/{id}/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Получение {} рекомендаций друзей для пользователя ID={}", count, id);
+        return friendSuggestionService.getFriendSuggestions(id, count);
+    }
+
     //Удаление юзера по id
     @DeleteMapping("/{userId}")
     public User deleteUser(@PathVariable int userId) {
@@ -107,4 +137,15 @@ public class UserController {
         log.info("Получение последних событий для пользователя с id - " + id);
         return eventFeedService.viewRecentEvents(id);
     }
+
+    // Просмотр событий постранично: последние limit событий до beforeId в интервале времени [since, until)
+    @GetMapping(value = "/{id}/feed", params = "limit")
+    public List<EventFeed> viewEvents(@PathVariable int id,
+                                      @RequestParam(required = false) Integer beforeId,
+                                      @RequestParam(required = false) Long since,
+                                      @RequestParam(required = false) Long until,
+                                      @RequestParam int limit) {
+        log.info("Получение {} событий пользователя с id - {} до события {}", limit, id, beforeId);
+        return eventFeedService.viewEvents(id, beforeId, since, until, limit);
+    }
 }
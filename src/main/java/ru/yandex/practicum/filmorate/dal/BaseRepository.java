@@ -2,13 +2,19 @@ package ru.yandex.practicum.filmorate.dal;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -70,6 +76,29 @@ public class BaseRepository<T> {
         }
     }
 
+    // Пакетное добавление записей, возвращает сгенерированные ID в порядке строк
+    protected List<Integer> insertBatch(String query, List<Object[]> rows) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(query, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = rows.get(i);
+                        for (int idx = 0; idx < params.length; idx++) {
+                            ps.setObject(idx + 1, params[idx]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keyHolder);
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).intValue())
+                .toList();
+    }
+
     protected void insertTwoKeys(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
@@ -81,4 +110,29 @@ public class BaseRepository<T> {
             return ps;
         }, keyHolder);
     }
+
+    // Строка плейсхолдеров для IN-списка: "?, ?, ?"
+    protected static String inPlaceholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // Параметр-массив для условия "id = ANY(?)": любое количество ID одним запросом.
+    // В отличие от IN (?, ?, ...) H2 ищет каждое значение по индексу, а не просматривает диапазон от min до max
+    protected static Object[] idArray(Collection<Integer> ids) {
+        return new Object[]{ids.toArray(new Integer[0])};
+    }
+
+    // Выполнение действия после фиксации текущей транзакции (или сразу, если транзакции нет)
+    protected static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
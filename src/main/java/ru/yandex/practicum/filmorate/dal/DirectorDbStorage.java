@@ -9,10 +9,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 @Slf4j
 @Repository
@@ -30,6 +27,9 @@ public class DirectorDbStorage extends BaseRepository<Director> implements Direc
             "WHERE DIRECTOR_ID IN (SELECT DIRECTOR_ID \n" +
             "FROM FILM_DIRECTOR fd\n" +
             "WHERE FILM_ID = ?);";
+    static final String FIND_DIRECTORS_BY_FILMS = "SELECT fd.film_id, d.director_id, d.director_name " +
+            "FROM film_director fd JOIN directors d ON fd.director_id = d.director_id " +
+            "WHERE fd.film_id = ANY(?)";
 
     public DirectorDbStorage(JdbcTemplate jdbc, RowMapper<Director> mapper) {
         super(jdbc, mapper);
@@ -77,4 +77,15 @@ public class DirectorDbStorage extends BaseRepository<Director> implements Direc
                 new Director(rs.getInt("director_id"), rs.getString("director_name")), filmId);
         return new HashSet<>(directorList);
     }
+
+    // Получение режиссеров сразу для нескольких фильмов (ID фильма -> режиссеры)
+    @Override
+    public Map<Integer, Set<Director>> getDirectorsFromFilms(Collection<Integer> filmIds) {
+        Map<Integer, Set<Director>> directorsByFilm = new HashMap<>();
+        jdbc.query(FIND_DIRECTORS_BY_FILMS, rs -> {
+            directorsByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                    .add(new Director(rs.getInt("director_id"), rs.getString("director_name")));
+        }, idArray(filmIds));
+        return directorsByFilm;
+    }
 }
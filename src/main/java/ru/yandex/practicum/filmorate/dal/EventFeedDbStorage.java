@@ -7,20 +7,21 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.EventFeed;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Slf4j
 @Repository
 @Primary
 public class EventFeedDbStorage extends BaseRepository<EventFeed> {
-    private static final String FIND_EVENT_FEED = "SELECT * FROM EVENT_FEED ef WHERE ef.USER_ID = ?";
+    static final String FIND_EVENT_FEED = "SELECT * FROM EVENT_FEED ef WHERE ef.USER_ID = ? ORDER BY ef.EVENT_ID";
     private static final String INSERT_EVENT_FEED = "INSERT INTO event_feed (user_id, times_tamp, event_type, operation," +
             " entity_id) VALUES (?, ?, ?, ?, ?)";
-    private static JdbcTemplate jdbcTemplate;
 
-    public EventFeedDbStorage(JdbcTemplate jdbc, RowMapper<EventFeed> mapper, JdbcTemplate jdbcTemplate) {
+    public EventFeedDbStorage(JdbcTemplate jdbc, RowMapper<EventFeed> mapper) {
         super(jdbc, mapper);
-        this.jdbcTemplate = jdbcTemplate;
     }
 
     // Просмотр сабытий пользователя
@@ -28,9 +29,35 @@ public class EventFeedDbStorage extends BaseRepository<EventFeed> {
         return findMany(FIND_EVENT_FEED, userId);
     }
 
+    // Последние limit событий пользователя с фильтрами по ID и времени (в порядке возрастания ID)
+    public List<EventFeed> findEvents(int userId, Integer beforeId, Timestamp since, Timestamp until, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM event_feed WHERE user_id = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+
+        if (beforeId != null) {
+            sql.append("AND event_id < ? ");
+            params.add(beforeId);
+        }
+        if (since != null) {
+            sql.append("AND times_tamp >= ? ");
+            params.add(since);
+        }
+        if (until != null) {
+            sql.append("AND times_tamp < ? ");
+            params.add(until);
+        }
+        sql.append("ORDER BY event_id DESC LIMIT ?");
+        params.add(limit);
+
+        List<EventFeed> events = new ArrayList<>(findMany(sql.toString(), params.toArray()));
+        Collections.reverse(events);
+        return events;
+    }
+
     // Запись в БД события
-    public static void createEventFeed(EventFeed eventFeed) {
-        jdbcTemplate.update(
+    public void createEventFeed(EventFeed eventFeed) {
+        jdbc.update(
                 INSERT_EVENT_FEED,
                 eventFeed.getUserId(),
                 eventFeed.getTimestamp(),
@@ -39,4 +66,15 @@ public class EventFeedDbStorage extends BaseRepository<EventFeed> {
                 eventFeed.getEntityId()
         );
     }
+
+    // Пакетная запись событий в БД
+    public void createEventFeeds(List<EventFeed> eventFeeds) {
+        jdbc.batchUpdate(INSERT_EVENT_FEED, eventFeeds, eventFeeds.size(), (ps, eventFeed) -> {
+            ps.setInt(1, eventFeed.getUserId());
+            ps.setTimestamp(2, eventFeed.getTimestamp());
+            ps.setString(3, eventFeed.getEventType().name());
+            ps.setString(4, eventFeed.getOperation().name());
+            ps.setInt(5, eventFeed.getEntityId());
+        });
+    }
 }
@@ -0,0 +1,315 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.model.EventFeed;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Асинхронная запись событий ленты.
+ * События складываются в ограниченную неблокирующую очередь и записываются в БД пакетами фоновым потоком.
+ * Очередь разбирается одним писателем в порядке поступления, поэтому порядок событий пользователя сохраняется.
+ * Запись в БД выполняется под ReentrantLock, а не synchronized: ожидающий виртуальный поток не занимает поток-носитель.
+ * Пакет, не записанный из-за ошибки БД, остаётся в очереди первым; при нарушении ограничений события пакета
+ * пишутся по одному, и пропускаются только отклонённые. Для каждого пользователя считается число событий в очереди:
+ * чтение ленты дописывает только события читающего пользователя и только если они есть.
+ */
+
+@Slf4j
+@Component
+public class EventFeedWriter {
+    private final EventFeedDbStorage eventFeedDbStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final RecentEventsCache recentEventsCache;
+    private final boolean async;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Queue<EventFeed> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Map<Integer, Integer> pendingByUser = new ConcurrentHashMap<>(); // пользователь -> событий в очереди
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final Lock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+    private List<EventFeed> failedBatch = new ArrayList<>(); // не записанные из-за ошибки БД, под flushLock
+
+    public EventFeedWriter(EventFeedDbStorage eventFeedDbStorage, PlatformTransactionManager transactionManager,
+                           RecentEventsCache recentEventsCache, BackgroundThreads backgroundThreads,
+                           @Value("${filmorate.event-feed.async:true}") boolean async,
+                           @Value("${filmorate.event-feed.flush-interval-ms:50}") long flushIntervalMs,
+                           @Value("${filmorate.event-feed.batch-size:500}") int batchSize,
+                           @Value("${filmorate.event-feed.queue-capacity:10000}") int queueCapacity,
+                           @Value("${filmorate.event-feed.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy) {
+        this.eventFeedDbStorage = eventFeedDbStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // пакет пишется целиком или не пишется: при откате его можно повторить по одному событию
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.recentEventsCache = recentEventsCache;
+        this.async = async;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        if (async) {
+            executor = Executors.newSingleThreadScheduledExecutor(backgroundThreads.factory("event-feed-writer"));
+            executor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    // Постановка события в очередь на запись
+    public void write(EventFeed eventFeed) {
+        if (!async || executor.isShutdown()) {
+            writeOne(eventFeed);
+            return;
+        }
+        while (!tryEnqueue(eventFeed)) {
+            if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                // очередь переполнена: записываем накопленные события и своё в потоке вызывающего
+                flushLock.lock();
+                try {
+                    flush();
+                    writeOne(eventFeed);
+                } finally {
+                    flushLock.unlock();
+                }
+                return;
+            }
+            requestFlush();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1)); // BLOCK: ждём освобождения места
+        }
+        if (queueSize.get() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    // Запись всех накопленных событий в БД пакетами
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushQueue();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Запись событий пользователя из очереди перед чтением его ленты; события других пользователей
+    // остаются в очереди, порядок событий пользователя сохраняется
+    public void flush(int userId) {
+        if (!pendingByUser.containsKey(userId)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (!failedBatch.isEmpty()) {
+                flushQueue(); // после ошибки БД сначала дописываются все отложенные события
+                return;
+            }
+            List<EventFeed> events = removeQueued(userId);
+            if (!events.isEmpty()) {
+                writeQueued(events);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Удаление из очереди событий пользователя: лента удаляемого пользователя удаляется вместе с ним
+    public void discard(int userId) {
+        flushLock.lock();
+        try {
+            int removed = failedBatch.size();
+            failedBatch.removeIf(eventFeed -> eventFeed.getUserId() == userId);
+            removed -= failedBatch.size();
+            removed += removeQueued(userId).size();
+            queueSize.addAndGet(-removed);
+            release(userId, removed);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQueue() {
+        while (queueSize.get() > 0) {
+            List<EventFeed> batch = failedBatch;
+            failedBatch = new ArrayList<>();
+            EventFeed eventFeed;
+            while (batch.size() < batchSize && (eventFeed = queue.poll()) != null) {
+                batch.add(eventFeed);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            writeQueued(batch);
+        }
+    }
+
+    // Запись событий, взятых из очереди; незаписанные из-за ошибки БД события возвращаются в начало очереди
+    private void writeQueued(List<EventFeed> batch) {
+        int size = batch.size();
+        Set<Integer> userIds = batch.stream().map(EventFeed::getUserId).collect(Collectors.toSet());
+        long start = System.nanoTime();
+        try {
+            writeBatch(batch);
+        } catch (RuntimeException e) {
+            queueSize.addAndGet(batch.size() - size); // события, обработанные по одному, уже не в очереди
+            failedBatch = batch;
+            throw e;
+        } finally {
+            recentEventsCache.invalidate(userIds);
+        }
+        long elapsed = System.nanoTime() - start;
+        queueSize.addAndGet(-size);
+        lastFlushNanos.set(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    // Изъятие событий пользователя из очереди в порядке поступления (счётчики очереди не меняются)
+    private List<EventFeed> removeQueued(int userId) {
+        List<EventFeed> removed = new ArrayList<>();
+        for (Iterator<EventFeed> iterator = queue.iterator(); iterator.hasNext(); ) {
+            EventFeed eventFeed = iterator.next();
+            if (eventFeed.getUserId() == userId) {
+                iterator.remove();
+                removed.add(eventFeed);
+            }
+        }
+        return removed;
+    }
+
+    // Уменьшение числа событий пользователя в очереди
+    private void release(int userId, int count) {
+        if (count > 0) {
+            pendingByUser.computeIfPresent(userId, (id, pending) -> pending > count ? pending - count : null);
+        }
+    }
+
+    // Запись пакета одной транзакцией; при нарушении ограничений (пользователь удалён после постановки события
+    // в очередь) события пишутся по одному, отклонённые пропускаются. Обработанные события удаляются из пакета
+    private void writeBatch(List<EventFeed> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> eventFeedDbStorage.createEventFeeds(batch));
+            writtenEvents.addAndGet(batch.size());
+            batch.forEach(eventFeed -> release(eventFeed.getUserId(), 1));
+            batch.clear();
+            return;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет событий отклонён БД, запись по одному: {}", e.getMessage());
+        }
+        for (Iterator<EventFeed> iterator = batch.iterator(); iterator.hasNext(); ) {
+            EventFeed eventFeed = iterator.next();
+            try {
+                eventFeedDbStorage.createEventFeed(eventFeed);
+                writtenEvents.incrementAndGet();
+            } catch (DataIntegrityViolationException rejected) {
+                log.warn("Событие пользователя {} не записано: {}", eventFeed.getUserId(), rejected.getMessage());
+            }
+            release(eventFeed.getUserId(), 1);
+            iterator.remove();
+        }
+    }
+
+    // Количество событий, ожидающих записи
+    public int getQueueDepth() {
+        return queueSize.get();
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    // Длительность последней записи пакета, мс
+    public double getLastFlushMillis() {
+        return lastFlushNanos.get() / 1_000_000.0;
+    }
+
+    // Максимальная длительность записи пакета, мс
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    // Остановка фонового потока с записью оставшихся событий
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushSafely();
+        log.info("Запись ленты событий остановлена, записано событий: {}", writtenEvents.get());
+    }
+
+    private void writeOne(EventFeed eventFeed) {
+        eventFeedDbStorage.createEventFeed(eventFeed);
+        recentEventsCache.invalidate(Set.of(eventFeed.getUserId()));
+    }
+
+    private boolean tryEnqueue(EventFeed eventFeed) {
+        int size;
+        do {
+            size = queueSize.get();
+            if (size >= queueCapacity) {
+                return false;
+            }
+        } while (!queueSize.compareAndSet(size, size + 1));
+        pendingByUser.merge(eventFeed.getUserId(), 1, Integer::sum); // до добавления: запись уменьшает счётчик после
+        queue.add(eventFeed);
+        return true;
+    }
+
+    private void requestFlush() {
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushRequested.set(false);
+                flushSafely();
+            });
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи ленты событий, в очереди: {}", queueSize.get(), e);
+        }
+    }
+
+    // Поведение при переполнении очереди
+    public enum OverflowPolicy {
+        BLOCK, // ждать освобождения места в очереди
+        CALLER_RUNS // записать события в потоке вызывающего
+    }
+}
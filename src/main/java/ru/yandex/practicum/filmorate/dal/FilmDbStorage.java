@@ -1,27 +1,38 @@
 package ru.yandex.practicum.filmorate.dal;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.DirectorService;
 import ru.yandex.practicum.filmorate.service.GenreService;
 import ru.yandex.practicum.filmorate.service.MpaService;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.sql.Date;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 @Slf4j
 @Repository
 @Primary
+@Profile("!in-memory & !journal")
 public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
     private static final String INSERT_QUERY = "INSERT INTO films(name, description, release_date, duration, rating_id)" +
             "VALUES (?, ?, ?, ?, ?)";
@@ -31,51 +42,105 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
             "duration = ?, rating_id = ? WHERE id = ?";
     private static final String DELETE_QUERY_GENRE = "DELETE FROM film_genres WHERE film_id = ?";
     private static final String DELETE_QUERY_DIRECTOR = "DELETE FROM film_director WHERE film_id = ?";
+    private static final String DELETE_QUERY_FILM_GENRE = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+    private static final String DELETE_QUERY_FILM_DIRECTOR = "DELETE FROM film_director " +
+            "WHERE film_id = ? AND director_id = ?";
+    private static final String FIND_GENRE_IDS_QUERY = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+    private static final String FIND_DIRECTOR_IDS_QUERY = "SELECT director_id FROM film_director WHERE film_id = ?";
     private static final String FIND_ALL_QUERY = "SELECT * FROM films";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM films WHERE id = ?";
-    private static final String FIND_USER_ID_FROM_LIKES = "SELECT user_id FROM films_like WHERE film_id = ?";
-    private static final String INSERT_QUERY_LIKE = "INSERT INTO films_like(film_id, user_id) VALUES (?, ?)";
-    private static final String DELETE_QUERY_LIKE = "DELETE FROM films_like WHERE film_id = ? AND user_id = ?";
-    private static final String SORTING_FILMS_BY_YEARS = "SELECT * FROM FILMS f WHERE ID IN" +
-            " (SELECT FILM_ID FROM FILM_DIRECTOR fd WHERE fd.DIRECTOR_ID = ?) ORDER BY RELEASE_DATE;";
-    private static final String SORTING_FILMS_BY_LIKES = "SELECT f.id, f.name, f.description, f.release_date, " +
-            "f.duration, f.rating_id, COUNT(fl.user_id) as like_count " +
-            "FROM films f JOIN film_director fd ON f.id = fd.film_id " +
-            "LEFT JOIN films_like fl ON f.id = fl.film_id " +
-            "WHERE fd.director_id = ? " +
-            "GROUP BY f.id " +
-            "ORDER BY like_count DESC";
-    private static final String FIND_COMMON_FILMS = "SELECT f.id FROM films f " +
-            "JOIN films_like fl1 ON f.id = fl1.film_id AND fl1.user_id = ? " +
-            "JOIN films_like fl2 ON f.id = fl2.film_id AND fl2.user_id = ? " +
-            "GROUP BY f.id " +
-            "ORDER BY COUNT(f.id) DESC";
+    static final String FIND_PAGE_QUERY = "SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?";
+    private static final int STREAM_PAGE_SIZE = 500;
+    static final String FIND_USER_ID_FROM_LIKES = "SELECT user_id FROM films_like WHERE film_id = ?";
+    static final String FIND_LIKES_BY_FILMS = "SELECT film_id, user_id FROM films_like WHERE film_id = ANY(?)";
+    // повторный лайк отклоняется первичным ключом: проверка NOT EXISTS не защищает от одновременной вставки
+    static final String INSERT_QUERY_LIKE = "INSERT INTO films_like(film_id, user_id) VALUES (?, ?)";
+    static final String LIKE_EXISTS_QUERY = "SELECT COUNT(*) FROM films_like WHERE film_id = ? AND user_id = ?";
+    // Пакет лайков из массивов ID: уже существующие пары и вставка новых - по одному запросу на пакет
+    static final String FIND_EXISTING_LIKES = "SELECT l.film_id, l.user_id " +
+            "FROM UNNEST(CAST(? AS INT ARRAY), CAST(? AS INT ARRAY)) AS v(film_id, user_id) " +
+            "JOIN films_like l ON l.film_id = v.film_id AND l.user_id = v.user_id";
+    static final String INSERT_LIKES_QUERY = "INSERT INTO films_like(film_id, user_id) " +
+            "SELECT * FROM UNNEST(CAST(? AS INT ARRAY), CAST(? AS INT ARRAY))";
+    static final String UPDATE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
+    static final String FIND_FILMS_BY_IDS = "SELECT * FROM films WHERE id = ANY(?)";
+    private static final String FIND_POPULARITY_DATA = "SELECT id, release_date, like_count FROM films";
+    private static final String FIND_ALL_FILM_GENRES = "SELECT film_id, genre_id FROM film_genres";
+    private static final String FIND_ALL_LIKES = "SELECT film_id, user_id FROM films_like";
+    private static final String FIND_ALL_TITLES = "SELECT id, name FROM films";
+    private static final String FIND_ALL_FILM_DIRECTORS = "SELECT film_id, director_id FROM film_director";
+    static final String DELETE_QUERY_LIKE = "DELETE FROM films_like WHERE film_id = ? AND user_id = ?";
+    static final String FIND_FILM_IDS_LIKED_BY_USER = "SELECT film_id FROM films_like WHERE user_id = ?";
+    static final String DELETE_USER_LIKES_QUERY = "DELETE FROM films_like WHERE user_id = ?";
+    static final String SORTING_FILMS_BY_YEARS = "SELECT f.* FROM film_director fd JOIN films f ON f.id = fd.film_id " +
+            "WHERE fd.director_id = ? ORDER BY f.release_date";
+    static final String SORTING_FILMS_BY_LIKES = "SELECT f.* FROM film_director fd JOIN films f ON f.id = fd.film_id " +
+            "WHERE fd.director_id = ? ORDER BY f.like_count DESC";
     private static final String DELETE_FILM_QUERY = "DELETE FROM films WHERE id = ?";
     private static final String DELETE_ALL_LIKES_QUERY = "DELETE FROM films_like WHERE film_id = ?";
-    private static final String FIND_FILMS_BY_TITLE = "SELECT * FROM films WHERE LOWER(name) " +
-            "LIKE LOWER(CONCAT('%', ?, '%'))";
-    private static final String FIND_FILMS_BY_DIRECTOR = "SELECT f.* FROM films f " +
-            "JOIN film_director fd ON f.id = fd.film_id " +
-            "JOIN directors d ON fd.director_id = d.director_id WHERE LOWER(d.director_name) LIKE LOWER(CONCAT('%', ?, '%'))";
-    private static final String FIND_FILMS_BY_TITLE_AND_DIRECTOR = "SELECT f.* FROM films f WHERE LOWER(f.name) " +
-            "LIKE LOWER(CONCAT('%', ?, '%')) OR EXISTS (SELECT 1 FROM film_director fd JOIN directors d ON fd.director_id = d.director_id " +
-            "WHERE fd.film_id = f.id AND LOWER(d.director_name) LIKE LOWER(CONCAT('%', ?, '%'))) ORDER BY f.NAME DESC;";
-
+    private static final int LIKE_LOCK_STRIPES = 64;
+    private static final String USER_EXISTS_QUERY = "SELECT COUNT(*) FROM users WHERE id = ?";
 
     private MpaService mpaService;
     private GenreService genreService;
     private DirectorService directorService;
+    private PopularFilmsIndex popularFilmsIndex;
+    private LikesIndex likesIndex;
+    private FilmSearchIndex filmSearchIndex;
+    private LikeWriteBuffer likeWriteBuffer; // null - лайки пишутся сразу в транзакции запроса
+    private final Object[] likeLocks = new Object[LIKE_LOCK_STRIPES]; // синхронизация индекса лайков по парам
 
 
-    public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper, MpaService mpaService, GenreService genreService, DirectorService directorService) {
+    public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper, MpaService mpaService, GenreService genreService,
+                         DirectorService directorService, PopularFilmsIndex popularFilmsIndex, LikesIndex likesIndex,
+                         FilmSearchIndex filmSearchIndex, Optional<LikeWriteBuffer> likeWriteBuffer) {
         super(jdbc, mapper);
         this.mpaService = mpaService;
         this.genreService = genreService;
         this.directorService = directorService;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.likesIndex = likesIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.likeWriteBuffer = likeWriteBuffer.filter(LikeWriteBuffer::isEnabled).orElse(null);
+        Arrays.setAll(likeLocks, i -> new Object());
+    }
+
+    // Построение индексов популярности, лайков и поиска по данным из БД при старте
+    @PostConstruct
+    public void rebuildIndexes() {
+        flushLikes(); // индексы строятся по БД: лайки из буфера должны быть уже записаны
+        likesIndex.rebuild(jdbc.query(FIND_ALL_LIKES,
+                (rs, rowNum) -> new int[]{rs.getInt("film_id"), rs.getInt("user_id")}));
+
+        Map<Integer, Set<Integer>> genresByFilm = new HashMap<>();
+        jdbc.query(FIND_ALL_FILM_GENRES, rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id"));
+        });
+        List<PopularFilmsIndex.FilmEntry> entries = jdbc.query(FIND_POPULARITY_DATA, (rs, rowNum) -> {
+            int id = rs.getInt("id");
+            Date releaseDate = rs.getDate("release_date");
+            return new PopularFilmsIndex.FilmEntry(id, rs.getInt("like_count"),
+                    releaseDate == null ? null : releaseDate.toLocalDate().getYear(),
+                    genresByFilm.getOrDefault(id, Set.of()));
+        });
+        popularFilmsIndex.rebuild(entries);
+
+        Map<Integer, String> titles = new HashMap<>();
+        jdbc.query(FIND_ALL_TITLES, rs -> {
+            titles.put(rs.getInt("id"), rs.getString("name"));
+        });
+        Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+        jdbc.query(FIND_ALL_FILM_DIRECTORS, rs -> {
+            filmDirectors.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("director_id"));
+        });
+        Map<Integer, String> directorNames = new HashMap<>();
+        directorService.getAllDirectors().forEach(director -> directorNames.put(director.getId(), director.getName()));
+        filmSearchIndex.rebuild(titles, directorNames, filmDirectors);
     }
 
-    // Добавления фильма в БД
+    // Добавления фильма в БД: фильм, жанры и режиссеры записываются в одной транзакции
     @Override
+    @Transactional
     public Film addFilm(Film film) {
         try {
             int id = insert(INSERT_QUERY,
@@ -85,29 +150,46 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
                     film.getDuration(),
                     film.getMpa().getId());
             film.setId(id);
-            //добавление жанров
-            if (film.getGenres() != null) {
-                for (Genre genre : film.getGenres()) {
-                    insertTwoKeys(INSERT_QUERY_GENRE, id, genre.getId());
-                }
-            }
-
-            //добавление режиссеров
-            if (film.getDirectors() != null) {
-                for (Director director : film.getDirectors()) {
-                    insertTwoKeys(INSERT_QUERY_DIRECTOR, id, director.getId());
-                }
-            }
+            insertLinks(INSERT_QUERY_GENRE, id, genreIds(film)); //добавление жанров
+            insertLinks(INSERT_QUERY_DIRECTOR, id, directorIds(film)); //добавление режиссеров
 
+            putToIndexes(film);
             return film;
         } catch (RuntimeException e) {
             throw new ValidationException(e.getMessage());
         }
     }
 
-    // Обновление фильма в БД
+    // Пакетное добавление фильмов с жанрами и режиссёрами в одной транзакции
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        List<Integer> ids = insertBatch(INSERT_QUERY, films.stream()
+                .map(film -> new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getMpa().getId()})
+                .toList());
+
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> directorRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            genreIds(film).forEach(genreId -> genreRows.add(new Object[]{film.getId(), genreId}));
+            directorIds(film).forEach(directorId -> directorRows.add(new Object[]{film.getId(), directorId}));
+        }
+        jdbc.batchUpdate(INSERT_QUERY_GENRE, genreRows);
+        jdbc.batchUpdate(INSERT_QUERY_DIRECTOR, directorRows);
+
+        films.forEach(this::putToIndexes);
+        return films;
+    }
+
+    // Обновление фильма в БД в одной транзакции; жанры и режиссеры (если переданы) обновляются по разнице
+    // с текущими: удаляются только убранные связи и добавляются только новые
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
+        // UPDATE блокирует строку фильма, поэтому параллельные обновления одного фильма не пересекаются
         update(UPDATE_QUERY,
                 film.getName(),
                 film.getDescription(),
@@ -116,21 +198,14 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
                 film.getMpa().getId(),
                 film.getId());
 
-        // Удаление старых жанров и вставка новых если они есть
         if (film.getGenres() != null) {
-            delete(DELETE_QUERY_GENRE, film.getId()); // Удаление старых жанров
-            for (Genre genre : film.getGenres()) {
-                insertTwoKeys(INSERT_QUERY_GENRE, film.getId(), genre.getId());
-            }
+            syncLinks(FIND_GENRE_IDS_QUERY, DELETE_QUERY_FILM_GENRE, INSERT_QUERY_GENRE, film.getId(), genreIds(film));
         }
-
-        // Удаление предыдущих режиссеров и вставка новых если они есть
         if (film.getDirectors() != null) {
-            delete(DELETE_QUERY_DIRECTOR, film.getId()); // Удаление старого режиссера
-            for (Director director : film.getDirectors()) {
-                insertTwoKeys(INSERT_QUERY_DIRECTOR, film.getId(), director.getId());
-            }
+            syncLinks(FIND_DIRECTOR_IDS_QUERY, DELETE_QUERY_FILM_DIRECTOR, INSERT_QUERY_DIRECTOR, film.getId(),
+                    directorIds(film));
         }
+        putToIndexes(film);
         return film;
     }
 
@@ -138,15 +213,32 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
     @Override
     public List<Film> getAllFilms() {
         List<Film> allFilms = findMany(FIND_ALL_QUERY);
-        allFilms.forEach(film -> {
-            film.setGenres(genreService.getGenresFromFilm(film.getId())); //установить жанр
-            film.setLikes(getLikes(film.getId()));
-            film.setMpa(mpaService.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorService.getDirectorsFromFilm(film.getId()));
-        });
+        setFilmsFields(allFilms);
         return allFilms;
     }
 
+    // Получение страницы фильмов с ID больше afterId
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        List<Film> films = findMany(FIND_PAGE_QUERY, afterId, limit);
+        setFilmsFields(films);
+        return films;
+    }
+
+    // Передача всех фильмов страницами, в памяти одновременно находится не больше одной страницы
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = getFilms(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     // Получение фильма по ID из БД
     @Override
     public Film getFilmById(int id) {
@@ -159,89 +251,277 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
         return film;
     }
 
-    // Добавление лайков в БД
+    // Добавление лайков в БД (повторный лайк не учитывается).
+    // С буфером лайк сразу виден в индексах, а в БД записывается фоновым потоком
     @Override
+    @Transactional
     public void addLike(int filmId, int userId) {
-        insertTwoKeys(INSERT_QUERY_LIKE, filmId, userId);
+        if (likeWriteBuffer != null) {
+            if (!popularFilmsIndex.contains(filmId)) {
+                throw new NotFoundException("Фильм с ID=" + filmId + " не найден");
+            }
+            if (jdbc.queryForObject(USER_EXISTS_QUERY, Integer.class, userId) == 0) {
+                throw new NotFoundException("Пользователь с ID=" + userId + " не найден");
+            }
+            likeWriteBuffer.setLike(filmId, userId, true);
+            return;
+        }
+        try {
+            jdbc.update(INSERT_QUERY_LIKE, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return; // лайк уже есть, в том числе добавленный параллельной транзакцией
+        }
+        update(UPDATE_LIKE_COUNT, 1, filmId);
+        afterCommit(() -> {
+            popularFilmsIndex.changeLikes(filmId, 1);
+            syncLikesIndex(filmId, userId);
+        });
+    }
+
+    // Пакетное добавление лайков {filmId, userId}: H2 выполняет пакет JDBC построчно, поэтому существующие лайки
+    // ищутся и новые вставляются из массивов одним запросом каждое; возвращает количество новых лайков
+    @Override
+    @Transactional
+    public int addLikes(List<int[]> likes) {
+        flushLikes(); // иначе ожидающая отмена лайка запишется после пакета и удалит добавленный лайк
+        Set<Long> existing = new HashSet<>();
+        jdbc.query(FIND_EXISTING_LIKES, rs -> {
+            existing.add(likeKey(rs.getInt("film_id"), rs.getInt("user_id")));
+        }, likeColumns(likes, 0), likeColumns(likes, 1));
+        List<int[]> added = new ArrayList<>();
+        Map<Integer, Integer> likesByFilm = new HashMap<>();
+        for (int[] like : likes) {
+            if (existing.add(likeKey(like[0], like[1]))) { // повтор внутри пакета тоже пропускается
+                added.add(like);
+                likesByFilm.merge(like[0], 1, Integer::sum);
+            }
+        }
+        if (added.isEmpty()) {
+            return 0;
+        }
+        // одновременная вставка того же лайка нарушит первичный ключ, и пакет откатится целиком
+        jdbc.update(INSERT_LIKES_QUERY, likeColumns(added, 0), likeColumns(added, 1));
+        jdbc.batchUpdate(UPDATE_LIKE_COUNT, likesByFilm.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+        afterCommit(() -> {
+            likesByFilm.forEach(popularFilmsIndex::changeLikes);
+            added.forEach(like -> likesIndex.addLike(like[0], like[1]));
+        });
+        return added.size();
     }
 
     // Удаление лайков из БД
     @Override
+    @Transactional
     public void removeLike(int filmId, int userId) {
-        delete(DELETE_QUERY_LIKE, filmId, userId);
+        if (likeWriteBuffer != null) {
+            likeWriteBuffer.setLike(filmId, userId, false);
+            return;
+        }
+        if (delete(DELETE_QUERY_LIKE, filmId, userId)) {
+            update(UPDATE_LIKE_COUNT, -1, filmId);
+            afterCommit(() -> {
+                popularFilmsIndex.changeLikes(filmId, -1);
+                syncLikesIndex(filmId, userId);
+            });
+        }
     }
 
-    // Получение ID общих фильмов
+    // Приведение пары в индексе лайков к зафиксированному состоянию. Действия afterCommit параллельных транзакций
+    // выполняются в произвольном порядке, и добавление с удалением одного лайка могут поменяться местами;
+    // перечитывание пары под блокировкой оставляет в индексе состояние последней фиксации.
+    // Изменения счётчика лайков перестановочны и применяются как есть
+    private void syncLikesIndex(int filmId, int userId) {
+        synchronized (likeLocks[Math.floorMod(Long.hashCode(likeKey(filmId, userId)), LIKE_LOCK_STRIPES)]) {
+            if (jdbc.queryForObject(LIKE_EXISTS_QUERY, Integer.class, filmId, userId) > 0) {
+                likesIndex.addLike(filmId, userId);
+            } else {
+                likesIndex.removeLike(filmId, userId);
+            }
+        }
+    }
+
+    // Снятие всех лайков пользователя при его удалении: счётчики лайков фильмов уменьшаются,
+    // индексы обновляются после фиксации транзакции
+    @Transactional
+    public void removeUserLikes(int userId) {
+        flushLikes(); // лайки пользователя из буфера удаляются вместе с записанными
+        List<Integer> filmIds = jdbc.queryForList(FIND_FILM_IDS_LIKED_BY_USER, Integer.class, userId);
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        jdbc.update(DELETE_USER_LIKES_QUERY, userId);
+        jdbc.batchUpdate(UPDATE_LIKE_COUNT, filmIds.stream()
+                .map(filmId -> new Object[]{-1, filmId})
+                .toList());
+        afterCommit(() -> filmIds.forEach(filmId -> {
+            popularFilmsIndex.changeLikes(filmId, -1);
+            likesIndex.removeLike(filmId, userId);
+        }));
+    }
+
+    // ID фильмов, которые лайкнули оба пользователя: пересечение лайков в индексе,
+    // по убыванию количества лайков, при равенстве - по возрастанию ID
     @Override
     public List<Integer> getCommonFilms(int userId, int friendId) {
-        List<Integer> filmIds = jdbc.query(FIND_COMMON_FILMS, (rs, rowNum) -> rs.getInt("id"), userId, friendId);
-        return filmIds;
+        return popularFilmsIndex.sortByLikes(likesIndex.getCommonFilmIds(userId, friendId));
     }
 
     @Override
+    @Transactional
     public Film deleteFilmById(int filmId) {
         Film film = getFilmById(filmId);
+        flushLikes();
         delete(DELETE_ALL_LIKES_QUERY, filmId);
         delete(DELETE_QUERY_GENRE, filmId);
+        delete(DELETE_QUERY_DIRECTOR, filmId);
 
         delete(DELETE_FILM_QUERY, filmId);
+        afterCommit(() -> {
+            popularFilmsIndex.removeFilm(filmId);
+            likesIndex.removeFilm(filmId);
+            filmSearchIndex.removeFilm(filmId);
+        });
         return film;
     }
 
-    //Получение популярных фильмов
+    //Получение популярных фильмов из индекса популярности
     @Override
     public List<Film> getMostPopularFilms(Integer count, Integer genreId, Integer year) {
-        StringBuilder sql = new StringBuilder(
-                "SELECT f.*, COUNT(fl.user_id) as likes " +
-                        "FROM films f " +
-                        "LEFT JOIN films_like fl ON f.id = fl.film_id " +
-                        "LEFT JOIN film_genres fg ON f.id = fg.film_id "
-        );
-
-        List<Object> params = new ArrayList<>();
-        boolean whereAdded = false;
-
-        if (genreId != null) {
-            sql.append("WHERE fg.genre_id = ? ");
-            params.add(genreId);
-            whereAdded = true;
+        return getFilmsByIds(popularFilmsIndex.getTopFilmIds(count, genreId, year));
+    }
+
+    // Получение заполненных фильмов по списку ID с сохранением порядка
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        findMany(FIND_FILMS_BY_IDS, idArray(filmIds)).forEach(film -> filmsById.put(film.getId(), film));
+        List<Film> films = filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        setFilmsFields(films);
+        return films;
+    }
+
+    // Пакетная вставка связей фильма (жанров или режиссеров)
+    private void insertLinks(String insertQuery, int filmId, Collection<Integer> linkedIds) {
+        if (!linkedIds.isEmpty()) {
+            jdbc.batchUpdate(insertQuery, linkedIds.stream()
+                    .map(linkedId -> new Object[]{filmId, linkedId})
+                    .toList());
         }
+    }
 
-        if (year != null) {
-            if (whereAdded) {
-                sql.append("AND YEAR(f.release_date) = ? ");
-            } else {
-                sql.append("WHERE YEAR(f.release_date) = ? ");
-            }
-            params.add(year);
+    // Приведение связей фильма к заданному набору: удаляются лишние, добавляются недостающие
+    private void syncLinks(String findQuery, String deleteQuery, String insertQuery, int filmId,
+                           Set<Integer> linkedIds) {
+        Set<Integer> currentIds = new HashSet<>(jdbc.queryForList(findQuery, Integer.class, filmId));
+        List<Object[]> removed = currentIds.stream()
+                .filter(id -> !linkedIds.contains(id))
+                .map(id -> new Object[]{filmId, id})
+                .toList();
+        if (!removed.isEmpty()) {
+            jdbc.batchUpdate(deleteQuery, removed);
         }
+        insertLinks(insertQuery, filmId, linkedIds.stream().filter(id -> !currentIds.contains(id)).toList());
+    }
 
-        sql.append("GROUP BY f.id ")
-                .append("ORDER BY likes DESC ");
+    private static Set<Integer> genreIds(Film film) {
+        return film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
 
-        if (count != null) {
-            sql.append("LIMIT ?");
-            params.add(count);
-        }
+    private static Set<Integer> directorIds(Film film) {
+        return film.getDirectors() == null ? Set.of() : film.getDirectors().stream()
+                .map(Director::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
 
-        List<Film> allFilms = jdbc.query(sql.toString(), params.toArray(), new FilmRowMapper());
-        allFilms.forEach(film -> {
-            film.setGenres(genreService.getGenresFromFilm(film.getId())); //установить жанр
-            film.setLikes(getLikes(film.getId()));
-            film.setMpa(mpaService.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorService.getDirectorsFromFilm(film.getId()));
+    // Обновление фильма в индексах популярности и поиска
+    private void putToIndexes(Film film) {
+        Set<Integer> genreIds = film.getGenres() == null
+                ? new HashSet<>(jdbc.queryForList(FIND_GENRE_IDS_QUERY, Integer.class, film.getId()))
+                : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
+        Set<Director> directors = film.getDirectors() == null
+                ? directorService.getDirectorsFromFilm(film.getId())
+                : film.getDirectors();
+        Set<Integer> directorIds = directors.stream()
+                .map(Director::getId)
+                .collect(Collectors.toSet());
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        afterCommit(() -> {
+            popularFilmsIndex.putFilm(film.getId(), year, genreIds);
+            filmSearchIndex.putFilm(film.getId(), film.getName(), directorIds);
         });
+    }
 
-        return allFilms;
+    private static long likeKey(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
     }
 
+    // Столбец пар {filmId, userId} массивом для UNNEST
+    private static Integer[] likeColumns(List<int[]> likes, int column) {
+        Integer[] ids = new Integer[likes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = likes.get(i)[column];
+        }
+        return ids;
+    }
+
+    // Запись лайков, ожидающих в буфере
+    public void flushLikes() {
+        if (likeWriteBuffer != null) {
+            likeWriteBuffer.flush();
+        }
+    }
 
-    // Получение лайков фильма
+    // Получение лайков фильма; с буфером - из индекса, в котором уже учтены незаписанные лайки
     private Set<Integer> getLikes(int filmId) {
+        if (likeWriteBuffer != null) {
+            return toSet(likesIndex.getLikedUserIds(filmId));
+        }
         List<Integer> likes = jdbc.query(FIND_USER_ID_FROM_LIKES, (rs, rowNum) -> rs.getInt("user_id"), filmId);
         return new HashSet<>(likes);
     }
 
+    // Получение лайков сразу для нескольких фильмов (ID фильма -> ID пользователей)
+    private Map<Integer, Set<Integer>> getLikes(Collection<Integer> filmIds) {
+        Map<Integer, Set<Integer>> likesByFilm = new HashMap<>();
+        if (likeWriteBuffer != null) {
+            filmIds.forEach(filmId -> likesByFilm.put(filmId, toSet(likesIndex.getLikedUserIds(filmId))));
+            return likesByFilm;
+        }
+        jdbc.query(FIND_LIKES_BY_FILMS, rs -> {
+            likesByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("user_id"));
+        }, idArray(filmIds));
+        return likesByFilm;
+    }
+
+    // Заполнение жанров, лайков, рейтинга и режиссеров для списка фильмов фиксированным числом запросов
+    private void setFilmsFields(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Integer> filmIds = films.stream().map(Film::getId).toList();
+        Map<Integer, Set<Genre>> genres = genreService.getGenresFromFilms(filmIds);
+        Map<Integer, Set<Integer>> likes = getLikes(filmIds);
+        Map<Integer, Set<Director>> directors = directorService.getDirectorsFromFilms(filmIds);
+        Map<Integer, Mpa> mpaById = new HashMap<>();
+        mpaService.getAllMpa().forEach(mpa -> mpaById.put(mpa.getId(), mpa));
+
+        films.forEach(film -> {
+            film.setGenres(genres.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            film.setLikes(likes.getOrDefault(film.getId(), new HashSet<>()));
+            film.setMpa(mpaById.get(film.getMpa().getId()));
+            film.setDirectors(directors.getOrDefault(film.getId(), new HashSet<>()));
+        });
+    }
+
     // Получение списка отсортированных фильмов
     @Override
     public List<Film> sortingFilms(int directorId, String sortBy) {
@@ -253,36 +533,33 @@ public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
             }
             case "likes" -> {
                 films = findMany(SORTING_FILMS_BY_LIKES, directorId);
+                if (likeWriteBuffer != null) { // like_count в БД отстаёт от буфера, порядок - по индексу
+                    films.sort(Comparator.comparingInt((Film film) -> popularFilmsIndex.getLikes(film.getId()))
+                            .reversed());
+                }
             }
             default -> throw new NotFoundException("Сортировка по  " + sortBy + " недоступна");
         }
-        films.forEach(film -> {
-            film.setGenres(genreService.getGenresFromFilm(film.getId())); //установить жанр
-            film.setLikes(getLikes(film.getId()));
-            film.setMpa(mpaService.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorService.getDirectorsFromFilm(film.getId())); //установить режиссера
-        });
+        setFilmsFields(films);
 
         return films;
     }
 
 
+    // Поиск фильмов по названию и/или режиссеру через поисковый индекс, сортировка по популярности
+    @Override
     public List<Film> searchFilm(String query, String by) {
-        List<Film> filmList = new ArrayList<>();
-        if (by.equals("title")) {
-            log.info("Поиск по названию фильма: " + query);
-            filmList = findMany(FIND_FILMS_BY_TITLE, query);
-        }
-
-        if (by.equals("director")) {
-            log.info("Поиск по режиссёру: " + query);
-            filmList = findMany(FIND_FILMS_BY_DIRECTOR, query);
-        }
+        Set<String> fields = Arrays.stream(by.split(",")).map(String::trim).collect(Collectors.toSet());
+        log.info("Поиск фильмов по {}: {}", fields, query);
+        Set<Integer> filmIds = filmSearchIndex.search(query, fields.contains("title"), fields.contains("director"));
+        return getFilmsByIds(popularFilmsIndex.sortByLikes(filmIds.stream().mapToInt(Integer::intValue).toArray()));
+    }
 
-        if (by.equals("title,director")) {
-            log.info("Поиск по режиссёру и названию фильма: " + query);
-            filmList = findMany(FIND_FILMS_BY_TITLE_AND_DIRECTOR, query, query);
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(ids.length * 2);
+        for (int id : ids) {
+            set.add(id);
         }
-        return filmList;
+        return set;
     }
 }
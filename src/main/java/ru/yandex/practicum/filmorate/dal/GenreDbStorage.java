@@ -9,10 +9,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Класс для взаимодействия Genre с БД
@@ -26,6 +23,9 @@ public class GenreDbStorage extends BaseRepository<Genre> implements GenreStorag
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM genre WHERE id = ?";
     private static final String FIND_GENRE_BY_FILM = "SELECT film_genres.genre_id, genre.genre_name FROM film_genres " +
             "INNER JOIN genre ON film_genres.genre_id = genre.id WHERE film_genres.film_id = ?;";
+    static final String FIND_GENRES_BY_FILMS = "SELECT film_genres.film_id, film_genres.genre_id, " +
+            "genre.genre_name FROM film_genres INNER JOIN genre ON film_genres.genre_id = genre.id " +
+            "WHERE film_genres.film_id = ANY(?) ORDER BY film_genres.film_id, film_genres.genre_id";
 
 
     public GenreDbStorage(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
@@ -53,4 +53,14 @@ public class GenreDbStorage extends BaseRepository<Genre> implements GenreStorag
         return new HashSet<>(genreList);
     }
 
+    // Получение жанров сразу для нескольких фильмов (ID фильма -> жанры)
+    @Override
+    public Map<Integer, Set<Genre>> getGenresFromFilms(Collection<Integer> filmIds) {
+        Map<Integer, Set<Genre>> genresByFilm = new HashMap<>();
+        jdbc.query(FIND_GENRES_BY_FILMS, rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new LinkedHashSet<>())
+                    .add(new Genre(rs.getInt("genre_id"), rs.getString("genre_name")));
+        }, idArray(filmIds));
+        return genresByFilm;
+    }
 }
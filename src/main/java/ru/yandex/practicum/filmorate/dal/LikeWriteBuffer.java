@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.index.IntArrays;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Буфер записи лайков фильмов.
+ * Лайк или его отмена сразу применяется к индексам лайков и популярности (чтение видит его без задержки)
+ * и запоминается в одной из полос буфера, выбранной по паре (фильм, пользователь), поэтому запросы к одному
+ * популярному фильму не ждут друг друга. Повторное изменение той же пары до записи отменяет предыдущее:
+ * лайк и его отмена не доходят до БД. Фоновый поток записывает итоговое состояние пар пакетами
+ * идемпотентных MERGE и DELETE в одной транзакции вместе со счётчиками лайков.
+ */
+
+@Slf4j
+@Component
+@Profile("!in-memory & !journal")
+public class LikeWriteBuffer {
+    private static final int STRIPES = 64;
+    static final String MERGE_LIKE = "MERGE INTO films_like l USING (VALUES (CAST(? AS INT), CAST(? AS INT))) " +
+            "v(film_id, user_id) ON l.film_id = v.film_id AND l.user_id = v.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final LikesIndex likesIndex;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final ResourceVersions resourceVersions;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong acceptedChanges = new AtomicLong();
+    private final AtomicLong writtenChanges = new AtomicLong();
+    private final Lock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+
+    public LikeWriteBuffer(JdbcTemplate jdbc, PlatformTransactionManager transactionManager, LikesIndex likesIndex,
+                           PopularFilmsIndex popularFilmsIndex, ResourceVersions resourceVersions,
+                           BackgroundThreads backgroundThreads,
+                           @Value("${filmorate.likes.buffered:true}") boolean enabled,
+                           @Value("${filmorate.likes.flush-interval-ms:20}") long flushIntervalMs,
+                           @Value("${filmorate.likes.batch-size:1000}") int batchSize) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // запись из транзакции запроса (удаление фильма) не должна откатываться вместе с ней
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.likesIndex = likesIndex;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.resourceVersions = resourceVersions;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        if (enabled) {
+            executor = Executors.newSingleThreadScheduledExecutor(backgroundThreads.factory("like-writer"));
+            executor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    // false - лайки пишутся в БД сразу, в транзакции запроса
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Установка или снятие лайка; false, если состояние не изменилось (повторный лайк или отмена отсутствующего)
+    public boolean setLike(int filmId, int userId, boolean liked) {
+        long key = key(filmId, userId);
+        Stripe stripe = stripe(key);
+        boolean changed;
+        stripe.lock.lock();
+        try {
+            changed = IntArrays.contains(likesIndex.getLikedUserIds(filmId), userId) != liked;
+            if (changed) {
+                toggle(stripe, key, liked);
+                if (liked) {
+                    likesIndex.addLike(filmId, userId);
+                } else {
+                    likesIndex.removeLike(filmId, userId);
+                }
+                popularFilmsIndex.changeLikes(filmId, liked ? 1 : -1);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (changed) {
+            acceptedChanges.incrementAndGet();
+            if (pendingSize.get() >= batchSize) {
+                requestFlush();
+            }
+        }
+        return changed;
+    }
+
+    // Запись всех накопленных изменений в БД; при ошибке незаписанные изменения возвращаются в буфер.
+    // Повторная запись уже записанного безопасна: MERGE и DELETE идемпотентны, счётчики считаются по их результату
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Change> changes = drain();
+            for (int from = 0; from < changes.size(); from += batchSize) {
+                try {
+                    write(changes.subList(from, Math.min(changes.size(), from + batchSize)));
+                } catch (RuntimeException e) {
+                    changes.subList(from, changes.size()).forEach(this::requeue);
+                    throw e;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Количество пар (фильм, пользователь), ожидающих записи
+    public int getPendingLikes() {
+        return pendingSize.get();
+    }
+
+    // Принятые изменения: разница с записанными - отменившие друг друга изменения и ожидающие записи
+    public long getAcceptedChanges() {
+        return acceptedChanges.get();
+    }
+
+    public long getWrittenChanges() {
+        return writtenChanges.get();
+    }
+
+    // Остановка фонового потока с записью оставшихся изменений
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushSafely();
+        log.info("Запись лайков остановлена, принято изменений: {}, записано: {}",
+                acceptedChanges.get(), writtenChanges.get());
+    }
+
+    // Изменение пары, уже ожидающей записи, возвращает её к состоянию в БД - запись не нужна.
+    // Вызывается под блокировкой полосы
+    private void toggle(Stripe stripe, long key, boolean liked) {
+        if (stripe.pending.remove(key) != null) {
+            pendingSize.decrementAndGet();
+        } else {
+            stripe.pending.put(key, liked);
+            pendingSize.incrementAndGet();
+        }
+    }
+
+    // Забираем накопленные изменения из всех полос
+    private List<Change> drain() {
+        List<Change> changes = new ArrayList<>(pendingSize.get());
+        for (Stripe stripe : stripes) {
+            Map<Long, Boolean> pending;
+            stripe.lock.lock();
+            try {
+                if (stripe.pending.isEmpty()) {
+                    continue;
+                }
+                pending = stripe.pending;
+                stripe.pending = new HashMap<>();
+                pendingSize.addAndGet(-pending.size());
+            } finally {
+                stripe.lock.unlock();
+            }
+            pending.forEach((key, liked) -> changes.add(new Change((int) (key >>> 32), (int) (long) key, liked)));
+        }
+        return changes;
+    }
+
+    // Запись пакета одной транзакцией; при нарушении ограничений (фильм или пользователь удалены после лайка)
+    // изменения пишутся по одному, а отклонённые отменяются в индексах
+    private void write(List<Change> changes) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(changes));
+            writtenChanges.addAndGet(changes.size());
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет лайков отклонён БД, запись по одному: {}", e.getMessage());
+            for (Change change : changes) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeBatch(List.of(change)));
+                    writtenChanges.incrementAndGet();
+                } catch (DataIntegrityViolationException rejected) {
+                    log.warn("Лайк фильма {} пользователем {} не записан: {}", change.filmId(), change.userId(),
+                            rejected.getMessage());
+                    discard(change);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<Change> changes) {
+        List<Change> likes = changes.stream().filter(Change::liked).toList();
+        List<Change> unlikes = changes.stream().filter(change -> !change.liked()).toList();
+        int[] inserted = jdbc.batchUpdate(MERGE_LIKE, params(likes));
+        int[] deleted = jdbc.batchUpdate(FilmDbStorage.DELETE_QUERY_LIKE, params(unlikes));
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < inserted.length; i++) {
+            deltas.merge(likes.get(i).filmId(), inserted[i], Integer::sum);
+        }
+        for (int i = 0; i < deleted.length; i++) {
+            deltas.merge(unlikes.get(i).filmId(), -deleted[i], Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        jdbc.batchUpdate(FilmDbStorage.UPDATE_LIKE_COUNT, deltas.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+    }
+
+    // Возврат изменения в буфер после неудачной записи; более позднее изменение той же пары сохраняет свой итог
+    private void requeue(Change change) {
+        long key = key(change.filmId(), change.userId());
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            toggle(stripe, key, change.liked());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Отмена в индексах изменения, которое БД не приняла, если пара с тех пор не менялась
+    private void discard(Change change) {
+        long key = key(change.filmId(), change.userId());
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            boolean liked = IntArrays.contains(likesIndex.getLikedUserIds(change.filmId()), change.userId());
+            if (stripe.pending.containsKey(key) || liked != change.liked()) {
+                return;
+            }
+            if (liked) {
+                likesIndex.removeLike(change.filmId(), change.userId());
+            } else {
+                likesIndex.addLike(change.filmId(), change.userId());
+            }
+            popularFilmsIndex.changeLikes(change.filmId(), liked ? -1 : 1);
+        } finally {
+            stripe.lock.unlock();
+        }
+        resourceVersions.bump(Resource.FILMS); // ответы, отданные с отменённым лайком, устарели
+    }
+
+    private void requestFlush() {
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushRequested.set(false);
+                flushSafely();
+            });
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи лайков, ожидают записи: {}", pendingSize.get(), e);
+        }
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (Long.hashCode(key * 0x9E3779B97F4A7C15L) & (STRIPES - 1))];
+    }
+
+    private static long key(int filmId, int userId) {
+        return (long) filmId << 32 | (userId & 0xFFFFFFFFL);
+    }
+
+    private static List<Object[]> params(List<Change> changes) {
+        return changes.stream().map(change -> new Object[]{change.filmId(), change.userId()}).toList();
+    }
+
+    private static final class Stripe {
+        final Lock lock = new ReentrantLock();
+        Map<Long, Boolean> pending = new HashMap<>(); // пара (фильм, пользователь) -> итоговое состояние лайка
+    }
+
+    private record Change(int filmId, int userId, boolean liked) {
+    }
+}
@@ -3,9 +3,11 @@ package ru.yandex.practicum.filmorate.dal;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.ReviewStorage;
@@ -15,21 +17,30 @@ import java.util.Optional;
 @Slf4j
 @Repository
 @Primary
+@Profile("!in-memory & !journal")
 public class ReviewDbStorage extends BaseRepository<Review> implements ReviewStorage {
     private static final String INSERT_QUERY = "INSERT INTO reviews(film_id, user_id, content, is_positive)" +
             "VALUES (?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE reviews SET content = ?, is_positive = ? WHERE id = ?";
     private static final String DELETE_QUERY = "DELETE FROM reviews WHERE id = ?";
     private static final String DELETE_QUERY_REVIEW_LIKES = "DELETE FROM review_likes WHERE review_id = ?";
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM reviews WHERE id = ?";
+    static final String FIND_BY_ID_QUERY = "SELECT * FROM reviews WHERE id = ?";
     private static final String INSERT_QUERY_LIKE = "MERGE INTO review_likes USING VALUES (?, ?, ?) AS " +
             "new_like(review_id, user_id, is_like) ON review_likes.review_id = new_like.review_id AND " +
             "review_likes.user_id = new_like.user_id WHEN MATCHED THEN UPDATE SET is_like = new_like.is_like " +
             "WHEN NOT MATCHED THEN INSERT (review_id, user_id, is_like) VALUES (new_like.review_id, new_like.user_id, " +
             "new_like.is_like)";
     private static final String DELETE_QUERY_LIKE = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ?";
-    private static final String GET_QUERY_LIKES = "SELECT * FROM review_likes WHERE review_id = ?";
-    private static final String FIND_ALL_QUERY = "SELECT * FROM reviews";
+    static final String GET_QUERY_LIKE = "SELECT is_like FROM review_likes WHERE review_id = ? AND user_id = ?";
+    // Блокировка строки отзыва: оценки отзыва меняются по очереди, даже если строки оценки ещё нет
+    static final String LOCK_REVIEW_QUERY = "SELECT id FROM reviews WHERE id = ? FOR UPDATE";
+    private static final String UPDATE_USEFUL = "UPDATE reviews SET useful = useful + ? WHERE id = ?";
+    private static final String FIND_ALL_QUERY = "SELECT * FROM reviews ORDER BY id";
+    // Индекс указан явно: иначе H2 выбирает индекс внешнего ключа по film_id и сортирует все отзывы фильма;
+    // film_id в ORDER BY позволяет читать индекс (film_id, useful DESC, id) уже отсортированным
+    static final String FIND_TOP_BY_FILM_QUERY = "SELECT * FROM reviews USE INDEX (reviews_film_useful_idx) " +
+            "WHERE film_id = ? ORDER BY film_id, useful DESC, id LIMIT ?";
+    static final String FIND_TOP_QUERY = "SELECT * FROM reviews ORDER BY useful DESC, id LIMIT ?";
 
     public ReviewDbStorage(JdbcTemplate jdbc, RowMapper<Review> mapper) {
         super(jdbc, mapper);
@@ -69,9 +80,7 @@ public class ReviewDbStorage extends BaseRepository<Review> implements ReviewSto
     @Override
     public Review getReviewById(int id) {
         Optional<Review> optionalReview = findOne(FIND_BY_ID_QUERY, id);
-        Review review = optionalReview.orElseThrow(() -> new NotFoundException("Отзыв с ID=" + id + " не найден"));
-        review.setUseful(getLikes(review.getReviewId()));
-        return review;
+        return optionalReview.orElseThrow(() -> new NotFoundException("Отзыв с ID=" + id + " не найден"));
     }
 
     // Удаление отзыва из БД по id
@@ -84,46 +93,82 @@ public class ReviewDbStorage extends BaseRepository<Review> implements ReviewSto
     // Получение отзывов из БД
     @Override
     public List<Review> getAllReviews() {
-        List<Review> allReviews = findMany(FIND_ALL_QUERY);
-        allReviews.forEach(r -> r.setUseful(getLikes(r.getReviewId())));
-        return allReviews;
+        return findMany(FIND_ALL_QUERY);
+    }
+
+    // Получение самых полезных отзывов к фильму (или ко всем фильмам, если filmId не указан)
+    @Override
+    public List<Review> getTopReviews(Integer filmId, int count) {
+        if (filmId == null) {
+            return findMany(FIND_TOP_QUERY, count);
+        }
+        return findMany(FIND_TOP_BY_FILM_QUERY, filmId, count);
     }
 
     // Добавление лайка к отзыву
     @Override
+    @Transactional
     public void addLike(int id, int userId) {
+        lockReview(id);
+        int delta = score(true) - score(findVote(id, userId));
         insertTwoKeys(INSERT_QUERY_LIKE, id, userId, true);
+        changeUseful(id, delta);
     }
 
     // Добавление дизлайка к отзыву
     @Override
+    @Transactional
     public void addDislike(int id, int userId) {
+        lockReview(id);
+        int delta = score(false) - score(findVote(id, userId));
         insertTwoKeys(INSERT_QUERY_LIKE, id, userId, false);
+        changeUseful(id, delta);
     }
 
     // Удаление лайка к отзыву
     @Override
+    @Transactional
     public void removeLike(int id, int userId) {
-        delete(DELETE_QUERY_LIKE, id, userId);
+        removeVote(id, userId);
     }
 
     // Удаление дизлайка к отзыву
     @Override
+    @Transactional
     public void removeDislike(int id, int userId) {
+        removeVote(id, userId);
+    }
+
+    private void removeVote(int id, int userId) {
+        lockReview(id);
+        int delta = -score(findVote(id, userId));
         delete(DELETE_QUERY_LIKE, id, userId);
+        changeUseful(id, delta);
+    }
+
+    // Блокировка отзыва до конца транзакции: без неё две первые оценки одного пользователя обе видят
+    // отсутствие оценки и обе меняют useful, хотя в review_likes остаётся одна строка
+    private void lockReview(int id) {
+        jdbc.query(LOCK_REVIEW_QUERY, (rs, rowNum) -> rs.getInt("id"), id);
+    }
+
+    // Текущая оценка пользователя (null, если оценки нет); читается под блокировкой отзыва
+    private Boolean findVote(int id, int userId) {
+        List<Boolean> votes = jdbc.query(GET_QUERY_LIKE, (rs, rowNum) -> rs.getBoolean("is_like"), id, userId);
+        return votes.isEmpty() ? null : votes.get(0);
+    }
+
+    private void changeUseful(int id, int delta) {
+        if (delta != 0) {
+            jdbc.update(UPDATE_USEFUL, delta, id);
+        }
     }
 
-    // Получение количества лайков
-    private int getLikes(int id) {
-        List<Boolean> likes = jdbc.query(GET_QUERY_LIKES, (rs, rowNum) -> rs.getBoolean("is_like"), id);
-        int useful = 0;
-        for (Boolean l : likes) {
-            if (l) {
-                useful++;
-            } else {
-                useful--;
-            }
+    // Вклад оценки в рейтинг полезности
+    private static int score(Boolean isLike) {
+        if (isLike == null) {
+            return 0;
         }
-        return useful;
+        return isLike ? 1 : -1;
     }
 }
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotFormatException;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotReader;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotTable;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotTable.Column;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotTable.ColumnType;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Выгрузка всех таблиц в снимок и восстановление из снимка пакетными вставками
+ */
+
+@Repository
+public class SnapshotDbStorage {
+    // Таблицы в порядке зависимостей по внешним ключам: при восстановлении вставляются в этом порядке
+    static final List<SnapshotTable> TABLES = List.of(
+            table("films_rating", column("id", ColumnType.INT), column("name", ColumnType.STRING)),
+            table("genre", column("id", ColumnType.INT), column("genre_name", ColumnType.STRING)),
+            table("directors", column("director_id", ColumnType.INT),
+                    column("director_name", ColumnType.STRING)),
+            table("users", column("id", ColumnType.INT), column("email", ColumnType.STRING),
+                    column("login", ColumnType.STRING), column("name", ColumnType.STRING),
+                    column("birthday", ColumnType.DATE)),
+            table("films", column("id", ColumnType.INT), column("name", ColumnType.STRING),
+                    column("description", ColumnType.STRING), column("release_date", ColumnType.DATE),
+                    column("duration", ColumnType.INT), column("rating_id", ColumnType.INT),
+                    column("like_count", ColumnType.INT)),
+            table("film_genres", column("film_id", ColumnType.INT), column("genre_id", ColumnType.INT)),
+            table("film_director", column("film_id", ColumnType.INT), column("director_id", ColumnType.INT)),
+            table("films_like", column("film_id", ColumnType.INT), column("user_id", ColumnType.INT)),
+            table("user_friends", column("user_id", ColumnType.INT), column("friend_id", ColumnType.INT),
+                    column("friendship_status", ColumnType.STRING)),
+            table("reviews", column("id", ColumnType.INT), column("film_id", ColumnType.INT),
+                    column("user_id", ColumnType.INT), column("content", ColumnType.STRING),
+                    column("is_positive", ColumnType.BOOLEAN), column("useful", ColumnType.INT)),
+            table("review_likes", column("review_id", ColumnType.INT), column("user_id", ColumnType.INT),
+                    column("is_like", ColumnType.BOOLEAN)),
+            table("event_feed", column("event_id", ColumnType.INT), column("user_id", ColumnType.INT),
+                    column("times_tamp", ColumnType.TIMESTAMP), column("event_type", ColumnType.STRING),
+                    column("operation", ColumnType.STRING), column("entity_id", ColumnType.INT)));
+
+    // Автоинкрементные колонки: после восстановления счётчик продолжается с максимального ID
+    private static final Map<String, String> IDENTITY_COLUMNS = Map.of("directors", "director_id",
+            "users", "id", "films", "id", "reviews", "id", "event_feed", "event_id");
+
+    private static final Map<String, SnapshotTable> TABLES_BY_NAME = TABLES.stream()
+            .collect(Collectors.toMap(SnapshotTable::name, Function.identity()));
+
+    private final JdbcTemplate jdbc;
+
+    public SnapshotDbStorage(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Выгрузка всех таблиц; все таблицы читаются в одной транзакции, поэтому снимок согласован
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Long> exportTables(SnapshotWriter writer) throws IOException {
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        for (SnapshotTable table : TABLES) {
+            writer.beginTable(table);
+            long[] rows = new long[1];
+            try {
+                jdbc.query(selectQuery(table), rs -> {
+                    Object[] values = new Object[table.columns().size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1, javaType(table.columns().get(i).type()));
+                    }
+                    try {
+                        writer.writeRow(values);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.endTable();
+            rowCounts.put(table.name(), rows[0]);
+        }
+        return rowCounts;
+    }
+
+    // Замена всех данных содержимым снимка; при любой ошибке транзакция откатывается целиком
+    @Transactional(rollbackFor = IOException.class)
+    public Map<String, Long> restoreTables(SnapshotReader reader) throws IOException {
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            jdbc.update("DELETE FROM " + TABLES.get(i).name());
+        }
+
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        SnapshotTable snapshotTable;
+        while ((snapshotTable = reader.nextTable()) != null) {
+            if (rowCounts.containsKey(snapshotTable.name())) {
+                throw new SnapshotFormatException("Таблица " + snapshotTable.name() + " встречается дважды");
+            }
+            String insertQuery = insertQuery(snapshotTable);
+            long rows = 0;
+            List<Object[]> block;
+            while (!(block = reader.readBlock()).isEmpty()) {
+                jdbc.batchUpdate(insertQuery, block);
+                rows += block.size();
+            }
+            rowCounts.put(snapshotTable.name(), rows);
+        }
+
+        // счётчики меняются вне транзакции, поэтому сдвигаются последним шагом
+        IDENTITY_COLUMNS.forEach((table, column) -> {
+            Long nextId = jdbc.queryForObject("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table,
+                    Long.class);
+            jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + nextId);
+        });
+        return rowCounts;
+    }
+
+    private static String selectQuery(SnapshotTable table) {
+        String columns = table.columns().stream().map(Column::name).collect(Collectors.joining(", "));
+        // в порядке первичного ключа дельты ID минимальны
+        String orderBy = table.columns().get(0).name() + ", " + table.columns().get(1).name();
+        return "SELECT " + columns + " FROM " + table.name() + " ORDER BY " + orderBy;
+    }
+
+    // Запрос вставки; имена таблицы и колонок из снимка сверяются с известной схемой
+    private static String insertQuery(SnapshotTable snapshotTable) throws SnapshotFormatException {
+        SnapshotTable table = TABLES_BY_NAME.get(snapshotTable.name());
+        if (table == null) {
+            throw new SnapshotFormatException("Неизвестная таблица: " + snapshotTable.name());
+        }
+        Set<Column> knownColumns = Set.copyOf(table.columns());
+        for (Column column : snapshotTable.columns()) {
+            if (!knownColumns.contains(column)) {
+                throw new SnapshotFormatException("Неизвестная колонка " + table.name() + "." + column.name()
+                        + " типа " + column.type());
+            }
+        }
+        String columns = snapshotTable.columns().stream().map(Column::name).collect(Collectors.joining(", "));
+        return "INSERT INTO " + table.name() + "(" + columns + ") VALUES ("
+                + BaseRepository.inPlaceholders(snapshotTable.columns().size()) + ")";
+    }
+
+    private static Class<?> javaType(ColumnType type) {
+        return switch (type) {
+            case INT -> Integer.class;
+            case STRING -> String.class;
+            case DATE -> LocalDate.class;
+            case TIMESTAMP -> LocalDateTime.class;
+            case BOOLEAN -> Boolean.class;
+        };
+    }
+
+    private static SnapshotTable table(String name, Column... columns) {
+        return new SnapshotTable(name, List.of(columns));
+    }
+
+    private static Column column(String name, ColumnType type) {
+        return new Column(name, type);
+    }
+}
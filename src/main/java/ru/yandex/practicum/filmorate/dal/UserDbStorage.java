@@ -1,17 +1,29 @@
 package ru.yandex.practicum.filmorate.dal;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -21,27 +33,65 @@ import java.util.stream.Collectors;
 @Slf4j
 @Repository
 @Primary
+@Profile("!in-memory & !journal")
 public class UserDbStorage extends BaseRepository<User> implements UserStorage {
     private static final String INSERT_QUERY = "INSERT INTO users(email, login, name, birthday) VALUES (?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? " +
             "WHERE id = ?";
     private static final String FIND_ALL_QUERY = "SELECT * FROM users";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE id = ?";
+    static final String FIND_PAGE_QUERY = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_ALL_ORDERED_QUERY = "SELECT * FROM users ORDER BY id";
     private static final String INSERT_FRIEND_QUERY = "INSERT INTO user_friends(user_id, friend_id, friendship_status) " +
             "VALUES (?, ?, ?)";
+    private static final String INSERT_FRIEND_IF_ABSENT_QUERY = "INSERT INTO user_friends(user_id, friend_id, " +
+            "friendship_status) SELECT ?, ?, 'unconfirmed' " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
+    private static final String CONFIRM_MUTUAL_FRIEND_QUERY = "UPDATE user_friends SET friendship_status = 'confirmed' " +
+            "WHERE user_id = ? AND friend_id = ? " +
+            "AND EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
     private static final String DELETE_FRIEND_QUERY = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
     private static final String UPDATE_FRIEND_STATUS = "UPDATE user_friends SET friendship_status = ? " +
             "WHERE user_id = ? AND friend_id = ?";
+    private static final String FIND_ALL_FRIENDSHIPS = "SELECT user_id, friend_id FROM user_friends";
+    private static final String IS_FRIEND_QUERY = "SELECT COUNT(*) FROM user_friends WHERE user_id = ? AND friend_id = ?";
+    static final String FIND_COMMON_FRIENDS = "SELECT * FROM users WHERE id IN (" +
+            "SELECT friend_id FROM user_friends WHERE user_id = ? " +
+            "INTERSECT SELECT friend_id FROM user_friends WHERE user_id = ?) ORDER BY id";
+    static final String FIND_USERS_BY_IDS = "SELECT * FROM users WHERE id = ANY(?)";
+    private static final String FIND_FRIEND_IDS_QUERY = "SELECT friend_id FROM user_friends WHERE user_id = ? " +
+            "ORDER BY friend_id";
     private static final String FIND_USER_FRIENDS_ID = "SELECT friend_id FROM user_friends WHERE user_id = ?";
-    private static final String FIND_USER_FRIENDS = "SELECT friend_id as id, email, login, name, birthday FROM user_friends " +
+    static final String FIND_USER_FRIENDS = "SELECT friend_id as id, email, login, name, birthday FROM user_friends " +
             "INNER JOIN users ON user_friends.friend_id = users.id WHERE user_friends.user_id = ?";
     private static final String DELETE_USER_FRIENDS_QUERY = "DELETE FROM user_friends WHERE user_id = ? OR friend_id = ?";
     private static final String DELETE_USER_QUERY = "DELETE FROM users WHERE id = ?";
     private static final String DELETE_USER_EVENT = "DELETE FROM event_feed WHERE user_id = ?";
 
 
-    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper) {
+    private final FriendsIndex friendsIndex;
+    private final FilmDbStorage filmStorage;
+    private final FriendSuggestionsCache suggestionsCache;
+    private final boolean friendsIndexEnabled;
+
+    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper, FriendsIndex friendsIndex,
+                         FriendSuggestionsCache suggestionsCache, FilmDbStorage filmStorage,
+                         @Value("${filmorate.friends-index.enabled:true}") boolean friendsIndexEnabled) {
         super(jdbc, mapper);
+        this.friendsIndex = friendsIndex;
+        this.filmStorage = filmStorage;
+        this.suggestionsCache = suggestionsCache;
+        this.friendsIndexEnabled = friendsIndexEnabled;
+    }
+
+    // Построение индекса дружбы по данным из БД при старте
+    @PostConstruct
+    public void rebuildFriendsIndex() {
+        if (friendsIndexEnabled) {
+            friendsIndex.rebuild(jdbc.query(FIND_ALL_FRIENDSHIPS,
+                    (rs, rowNum) -> new int[]{rs.getInt("user_id"), rs.getInt("friend_id")}));
+        }
+        suggestionsCache.invalidateAll();
     }
 
     // Добавление пользователя в БД
@@ -53,6 +103,19 @@ public class UserDbStorage extends BaseRepository<User> implements UserStorage {
         return user;
     }
 
+    // Пакетное добавление пользователей
+    @Override
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        List<Integer> ids = insertBatch(INSERT_QUERY, users.stream()
+                .map(user -> new Object[]{user.getEmail(), user.getLogin(), user.getName(), user.getBirthday()})
+                .toList());
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids.get(i));
+        }
+        return users;
+    }
+
     // Обновление пользователя в БД
     @Override
     public User updateUser(User user) {
@@ -72,6 +135,20 @@ public class UserDbStorage extends BaseRepository<User> implements UserStorage {
         return findMany(FIND_ALL_QUERY);
     }
 
+    // Получение страницы пользователей с ID больше afterId
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return findMany(FIND_PAGE_QUERY, afterId, limit);
+    }
+
+    // Построчная передача всех пользователей без загрузки всей таблицы в память
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        jdbc.query(FIND_ALL_ORDERED_QUERY, rs -> {
+            consumer.accept(mapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
     // Получение пользователя из БД по ID
     @Override
     public User getUserById(int id) {
@@ -79,16 +156,57 @@ public class UserDbStorage extends BaseRepository<User> implements UserStorage {
         return userOptional.orElseThrow(() -> new NotFoundException("Пользователь с ID=" + id + " не найден"));
     }
 
+    // Получение пользователей по списку ID одним запросом с сохранением порядка
+    @Override
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        Map<Integer, User> usersById = new HashMap<>();
+        findMany(FIND_USERS_BY_IDS, idArray(userIds)).forEach(user -> usersById.put(user.getId(), user));
+        return userIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     // Добавление в друзья(внесение данных по дружбе в БД)
     @Override
     public void addFriend(int userId, int friendId, String status) {
         insertTwoKeys(INSERT_FRIEND_QUERY, userId, friendId, status);
+        afterFriendshipChange(userId, () -> friendsIndex.addFriend(userId, friendId));
+    }
+
+    // Пакетное добавление дружбы {userId, friendId}; взаимная дружба получает статус confirmed
+    @Override
+    @Transactional
+    public void addFriends(List<int[]> friendships) {
+        jdbc.batchUpdate(INSERT_FRIEND_IF_ABSENT_QUERY, friendships.stream()
+                .map(pair -> new Object[]{pair[0], pair[1], pair[0], pair[1]})
+                .toList());
+        List<Object[]> confirmRows = new ArrayList<>(friendships.size() * 2);
+        for (int[] pair : friendships) {
+            confirmRows.add(new Object[]{pair[0], pair[1], pair[1], pair[0]});
+            confirmRows.add(new Object[]{pair[1], pair[0], pair[0], pair[1]});
+        }
+        jdbc.batchUpdate(CONFIRM_MUTUAL_FRIEND_QUERY, confirmRows);
+        afterCommit(() -> {
+            if (friendsIndexEnabled) {
+                friendships.forEach(pair -> friendsIndex.addFriend(pair[0], pair[1]));
+            }
+            suggestionsCache.invalidateAll();
+        });
     }
 
     // Удаление дружбы из БД
     @Override
     public void removeFriend(int userId, int friendId) {
-        delete(DELETE_FRIEND_QUERY, userId, friendId);
+        if (delete(DELETE_FRIEND_QUERY, userId, friendId)) {
+            afterFriendshipChange(userId, () -> friendsIndex.removeFriend(userId, friendId));
+        }
+    }
+
+    // Проверка, есть ли friendId в друзьях у userId
+    @Override
+    public boolean isFriend(int userId, int friendId) {
+        return jdbc.queryForObject(IS_FRIEND_QUERY, Integer.class, userId, friendId) > 0;
     }
 
     // Обновления статуса дружбы в БД
@@ -103,17 +221,62 @@ public class UserDbStorage extends BaseRepository<User> implements UserStorage {
         return findMany(FIND_USER_FRIENDS, userId);
     }
 
+    // Общие друзья двух пользователей по возрастанию ID: пересечение в индексе или INTERSECT в БД
+    @Override
+    public List<User> getCommonFriends(int userId, int otherUserId) {
+        if (!friendsIndexEnabled) {
+            return findMany(FIND_COMMON_FRIENDS, userId, otherUserId);
+        }
+        return getUsersByIds(Arrays.stream(friendsIndex.getCommonFriendIds(userId, otherUserId)).boxed().toList());
+    }
+
+    // Отсортированные ID друзей пользователя
     @Override
+    public int[] getFriendIds(int userId) {
+        if (friendsIndexEnabled) {
+            return friendsIndex.getFriendIds(userId);
+        }
+        return jdbc.queryForList(FIND_FRIEND_IDS_QUERY, Integer.class, userId).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Удаление пользователя вместе с его дружбой, событиями и лайками
+    @Override
+    @Transactional
     public User deleteUserById(int userid) {
         User user = getUserById(userid);
 
+        filmStorage.removeUserLikes(userid);
         delete(DELETE_USER_FRIENDS_QUERY, userid, userid);
         delete(DELETE_USER_EVENT, userid);
         delete(DELETE_USER_QUERY, userid);
+        afterCommit(() -> {
+            if (friendsIndexEnabled) {
+                friendsIndex.removeUser(userid);
+            }
+            suggestionsCache.invalidateAll();
+        });
 
         return user;
     }
 
+    // Изменение дружбы пользователя userId: после фиксации транзакции обновляется индекс
+    // и сбрасываются рекомендации самого пользователя и тех, у кого он в друзьях
+    private void afterFriendshipChange(int userId, Runnable indexUpdate) {
+        afterCommit(() -> {
+            if (!friendsIndexEnabled) {
+                suggestionsCache.invalidateAll();
+                return;
+            }
+            indexUpdate.run();
+            List<Integer> affectedUsers = new ArrayList<>();
+            affectedUsers.add(userId);
+            Arrays.stream(friendsIndex.getFollowerIds(userId)).forEach(affectedUsers::add);
+            suggestionsCache.invalidate(affectedUsers);
+        });
+    }
+
     // Получение списка ID друзей
     private Set<Integer> getUserFriendsId(int userId) {
         List<User> userFriends = findMany(FIND_USER_FRIENDS_ID, userId);
@@ -16,6 +16,7 @@ public class ReviewRowMapper implements RowMapper<Review> {
         review.setFilmId(rs.getInt("film_id"));
         review.setContent(rs.getString("content"));
         review.setIsPositive(rs.getBoolean("is_positive"));
+        review.setUseful(rs.getInt("useful"));
         return review;
     }
 }
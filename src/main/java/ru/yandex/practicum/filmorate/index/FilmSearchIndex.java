@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Полнотекстовый индекс в памяти по названиям фильмов и именам режиссеров.
+ * Строки разбиваются на триграммы, поиск подстроки сводится к пересечению списков триграмм запроса
+ * с последующей проверкой найденных кандидатов, поэтому результат совпадает с поиском LIKE '%query%'.
+ * Изменения выполняются под блокировкой индекса, чтение блокировок не требует.
+ */
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int GRAM_SIZE = 3;
+
+    private final Map<Integer, String> filmTitles = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> filmsByTitleGram = new ConcurrentHashMap<>();
+    private final Map<Integer, String> directorNames = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> directorsByNameGram = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> filmsByDirector = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> directorsByFilm = new ConcurrentHashMap<>();
+
+    // Полная перестройка индекса: названия фильмов, имена режиссеров и связи фильм -> режиссеры
+    public synchronized void rebuild(Map<Integer, String> titles, Map<Integer, String> names,
+                                     Map<Integer, Set<Integer>> filmDirectors) {
+        filmTitles.clear();
+        filmsByTitleGram.clear();
+        directorNames.clear();
+        directorsByNameGram.clear();
+        filmsByDirector.clear();
+        directorsByFilm.clear();
+        // списки ID копятся без сортировки и сортируются один раз: вставка по одному стоит O(n) на элемент
+        Map<Long, IntArrays.Builder> directorGrams = new HashMap<>();
+        names.forEach((directorId, name) -> {
+            String normalized = normalize(name);
+            directorNames.put(directorId, normalized);
+            for (long gram : grams(normalized)) {
+                directorGrams.computeIfAbsent(gram, key -> new IntArrays.Builder()).add(directorId);
+            }
+        });
+        Map<Long, IntArrays.Builder> titleGrams = new HashMap<>();
+        Map<Integer, IntArrays.Builder> directorFilms = new HashMap<>();
+        titles.forEach((filmId, title) -> {
+            String normalized = normalize(title);
+            filmTitles.put(filmId, normalized);
+            for (long gram : grams(normalized)) {
+                titleGrams.computeIfAbsent(gram, key -> new IntArrays.Builder()).add(filmId);
+            }
+            Set<Integer> directorIds = filmDirectors.getOrDefault(filmId, Set.of());
+            if (!directorIds.isEmpty()) {
+                directorsByFilm.put(filmId, directorIds.stream().mapToInt(Integer::intValue).sorted().toArray());
+                for (int directorId : directorIds) {
+                    directorFilms.computeIfAbsent(directorId, key -> new IntArrays.Builder()).add(filmId);
+                }
+            }
+        });
+        directorGrams.forEach((gram, directors) -> directorsByNameGram.put(gram, directors.build()));
+        titleGrams.forEach((gram, films) -> filmsByTitleGram.put(gram, films.build()));
+        directorFilms.forEach((directorId, films) -> filmsByDirector.put(directorId, films.build()));
+        log.info("Поисковый индекс построен, фильмов: {}, режиссеров: {}", filmTitles.size(), directorNames.size());
+    }
+
+    // Добавление или обновление фильма
+    public synchronized void putFilm(int filmId, String title, Set<Integer> directorIds) {
+        removeFilm(filmId);
+        String normalized = normalize(title);
+        filmTitles.put(filmId, normalized);
+        for (long gram : grams(normalized)) {
+            filmsByTitleGram.compute(gram, (key, films) -> IntArrays.insert(films, filmId));
+        }
+        for (int directorId : directorIds) {
+            filmsByDirector.compute(directorId, (key, films) -> IntArrays.insert(films, filmId));
+            directorsByFilm.compute(filmId, (key, directors) -> IntArrays.insert(directors, directorId));
+        }
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        String title = filmTitles.remove(filmId);
+        if (title != null) {
+            for (long gram : grams(title)) {
+                filmsByTitleGram.computeIfPresent(gram, (key, films) -> IntArrays.remove(films, filmId));
+            }
+        }
+        int[] directors = directorsByFilm.remove(filmId);
+        if (directors != null) {
+            for (int directorId : directors) {
+                filmsByDirector.computeIfPresent(directorId, (key, films) -> IntArrays.remove(films, filmId));
+            }
+        }
+    }
+
+    // Добавление или обновление режиссера
+    public synchronized void putDirector(int directorId, String name) {
+        removeDirectorName(directorId);
+        String normalized = normalize(name);
+        directorNames.put(directorId, normalized);
+        for (long gram : grams(normalized)) {
+            directorsByNameGram.compute(gram, (key, directors) -> IntArrays.insert(directors, directorId));
+        }
+    }
+
+    // Удаление режиссера вместе с его связями с фильмами
+    public synchronized void removeDirector(int directorId) {
+        removeDirectorName(directorId);
+        int[] films = filmsByDirector.remove(directorId);
+        if (films != null) {
+            for (int filmId : films) {
+                directorsByFilm.computeIfPresent(filmId, (key, directors) -> IntArrays.remove(directors, directorId));
+            }
+        }
+    }
+
+    // Поиск ID фильмов, у которых название и/или имя режиссера содержит запрос (без учёта регистра)
+    public Set<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        String normalized = normalize(query);
+        Set<Integer> result = new HashSet<>();
+        if (byTitle) {
+            for (int filmId : findMatches(normalized, filmTitles, filmsByTitleGram)) {
+                result.add(filmId);
+            }
+        }
+        if (byDirector) {
+            for (int directorId : findMatches(normalized, directorNames, directorsByNameGram)) {
+                for (int filmId : filmsByDirector.getOrDefault(directorId, IntArrays.EMPTY)) {
+                    result.add(filmId);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeDirectorName(int directorId) {
+        String name = directorNames.remove(directorId);
+        if (name != null) {
+            for (long gram : grams(name)) {
+                directorsByNameGram.computeIfPresent(gram, (key, directors) -> IntArrays.remove(directors, directorId));
+            }
+        }
+    }
+
+    // Кандидаты по пересечению списков триграмм и проверка вхождения подстроки
+    private static int[] findMatches(String query, Map<Integer, String> texts, Map<Long, int[]> postings) {
+        int[] candidates = null;
+        if (query.length() >= GRAM_SIZE) {
+            for (long gram : grams(query)) {
+                candidates = candidates == null ? postings.get(gram) : IntArrays.intersect(candidates, postings.get(gram));
+                if (candidates == null || candidates.length == 0) {
+                    return IntArrays.EMPTY;
+                }
+            }
+        } else { // короткий запрос - проверяем все строки
+            candidates = texts.keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int[] matches = new int[candidates.length];
+        int size = 0;
+        for (int id : candidates) {
+            String text = texts.get(id);
+            if (text != null && text.contains(query)) {
+                matches[size++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Набор триграмм строки, каждая упакована в long
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+}
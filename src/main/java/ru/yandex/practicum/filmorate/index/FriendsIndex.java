@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс дружбы (граф связей user_id -> friend_id) в памяти.
+ * Для каждого пользователя хранит отсортированный массив ID друзей и обратный массив ID тех, кто добавил его в друзья.
+ * Массивы не изменяются на месте: обновление одного пользователя блокирует только его ключ (compute),
+ * чтение не требует блокировок.
+ */
+
+@Slf4j
+@Component
+public class FriendsIndex {
+    private final Map<Integer, int[]> friendsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> followersByUser = new ConcurrentHashMap<>();
+
+    // Полная перестройка индекса по парам {user_id, friend_id}
+    public void rebuild(List<int[]> friendships) {
+        Map<Integer, int[]> friends = collect(friendships, 0, 1);
+        Map<Integer, int[]> followers = collect(friendships, 1, 0);
+        friendsByUser.clear();
+        followersByUser.clear();
+        friendsByUser.putAll(friends);
+        followersByUser.putAll(followers);
+        log.info("Индекс дружбы построен, связей: {}", friendships.size());
+    }
+
+    public void addFriend(int userId, int friendId) {
+        friendsByUser.compute(userId, (id, friends) -> IntArrays.insert(friends, friendId));
+        followersByUser.compute(friendId, (id, followers) -> IntArrays.insert(followers, userId));
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        friendsByUser.computeIfPresent(userId, (id, friends) -> IntArrays.remove(friends, friendId));
+        followersByUser.computeIfPresent(friendId, (id, followers) -> IntArrays.remove(followers, userId));
+    }
+
+    // Удаление пользователя вместе со всеми связями в обе стороны
+    public void removeUser(int userId) {
+        int[] friends = friendsByUser.remove(userId);
+        if (friends != null) {
+            for (int friendId : friends) {
+                followersByUser.computeIfPresent(friendId, (id, followers) -> IntArrays.remove(followers, userId));
+            }
+        }
+        int[] followers = followersByUser.remove(userId);
+        if (followers != null) {
+            for (int followerId : followers) {
+                friendsByUser.computeIfPresent(followerId, (id, userFriends) -> IntArrays.remove(userFriends, userId));
+            }
+        }
+    }
+
+    // Отсортированные ID друзей пользователя
+    public int[] getFriendIds(int userId) {
+        return friendsByUser.getOrDefault(userId, IntArrays.EMPTY);
+    }
+
+    // Отсортированные ID пользователей, у которых userId в друзьях
+    public int[] getFollowerIds(int userId) {
+        return followersByUser.getOrDefault(userId, IntArrays.EMPTY);
+    }
+
+    public boolean isFriend(int userId, int friendId) {
+        return IntArrays.contains(friendsByUser.get(userId), friendId);
+    }
+
+    // Количество друзей пользователя
+    public int degree(int userId) {
+        return getFriendIds(userId).length;
+    }
+
+    // ID общих друзей двух пользователей за O(n + m)
+    public int[] getCommonFriendIds(int userId, int otherUserId) {
+        return IntArrays.intersect(friendsByUser.get(userId), friendsByUser.get(otherUserId));
+    }
+
+    // Друзья друзей: ID пользователей на расстоянии 2, кроме самого пользователя и его друзей
+    public int[] getFriendsOfFriendIds(int userId) {
+        int[] friends = getFriendIds(userId);
+        IntArrays.Builder candidates = new IntArrays.Builder();
+        for (int friendId : friends) {
+            for (int candidateId : getFriendIds(friendId)) {
+                if (candidateId != userId) {
+                    candidates.add(candidateId);
+                }
+            }
+        }
+        return IntArrays.difference(candidates.build(), friends);
+    }
+
+    // Группировка пар по ключу keyIdx в отсортированные массивы значений valueIdx
+    private static Map<Integer, int[]> collect(List<int[]> pairs, int keyIdx, int valueIdx) {
+        Map<Integer, IntArrays.Builder> builders = new HashMap<>();
+        for (int[] pair : pairs) {
+            builders.computeIfAbsent(pair[keyIdx], key -> new IntArrays.Builder()).add(pair[valueIdx]);
+        }
+        Map<Integer, int[]> result = new HashMap<>();
+        builders.forEach((key, builder) -> result.put(key, builder.build()));
+        return result;
+    }
+}
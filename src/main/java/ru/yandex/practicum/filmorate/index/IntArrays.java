@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными массивами int без повторов (компактные множества ID)
+ */
+
+public final class IntArrays {
+    public static final int[] EMPTY = new int[0];
+
+    private IntArrays() {
+    }
+
+    // Новый массив с добавленным значением (исходный массив не меняется)
+    public static int[] insert(int[] array, int value) {
+        if (array == null) {
+            return new int[]{value};
+        }
+        int pos = Arrays.binarySearch(array, value);
+        if (pos >= 0) {
+            return array;
+        }
+        pos = -pos - 1;
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(array, pos, result, pos + 1, array.length - pos);
+        return result;
+    }
+
+    // Новый массив без значения, null если массив стал пустым
+    public static int[] remove(int[] array, int value) {
+        if (array == null) {
+            return null;
+        }
+        int pos = Arrays.binarySearch(array, value);
+        if (pos < 0) {
+            return array;
+        }
+        if (array.length == 1) {
+            return null;
+        }
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        System.arraycopy(array, pos + 1, result, pos, array.length - pos - 1);
+        return result;
+    }
+
+    public static boolean contains(int[] array, int value) {
+        return array != null && Arrays.binarySearch(array, value) >= 0;
+    }
+
+    // Массив из произвольных значений: сортировка и удаление повторов
+    static int[] sortedSet(int[] values, int size) {
+        int[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+    }
+
+    // Пересечение двух отсортированных массивов за O(n + m)
+    static int[] intersect(int[] first, int[] second) {
+        if (first == null || second == null) {
+            return EMPTY;
+        }
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Значения первого массива, отсутствующие во втором, за O(n + m)
+    static int[] difference(int[] first, int[] second) {
+        if (first == null) {
+            return EMPTY;
+        }
+        if (second == null) {
+            return first.clone();
+        }
+        int[] result = new int[first.length];
+        int size = 0;
+        int j = 0;
+        for (int value : first) {
+            while (j < second.length && second[j] < value) {
+                j++;
+            }
+            if (j >= second.length || second[j] != value) {
+                result[size++] = value;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Накопитель значений для пакетного построения массивов: добавление за O(1), сортировка один раз в build()
+    static final class Builder {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] build() {
+            return sortedSet(values, size);
+        }
+    }
+}
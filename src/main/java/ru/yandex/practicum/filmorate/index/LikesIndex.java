@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс лайков фильмов в памяти.
+ * Для каждого пользователя хранит отсортированный массив ID понравившихся фильмов,
+ * для каждого фильма - обратный индекс пользователей, поставивших лайк.
+ * Массивы не изменяются на месте: при обновлении подменяется весь массив, поэтому чтение не требует блокировок.
+ */
+
+@Slf4j
+@Component
+public class LikesIndex {
+    private final Map<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> usersByFilm = new ConcurrentHashMap<>();
+
+    // Полная перестройка индекса по парам {film_id, user_id}
+    public void rebuild(List<int[]> likes) {
+        Map<Integer, int[]> films = collect(likes, 1, 0);
+        Map<Integer, int[]> users = collect(likes, 0, 1);
+        filmsByUser.clear();
+        usersByFilm.clear();
+        filmsByUser.putAll(films);
+        usersByFilm.putAll(users);
+        log.info("Индекс лайков построен, лайков: {}", likes.size());
+    }
+
+    public void addLike(int filmId, int userId) {
+        filmsByUser.compute(userId, (id, films) -> IntArrays.insert(films, filmId));
+        usersByFilm.compute(filmId, (id, users) -> IntArrays.insert(users, userId));
+    }
+
+    public void removeLike(int filmId, int userId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> IntArrays.remove(films, filmId));
+        usersByFilm.computeIfPresent(filmId, (id, users) -> IntArrays.remove(users, userId));
+    }
+
+    // Удаление всех лайков фильма
+    public void removeFilm(int filmId) {
+        int[] users = usersByFilm.remove(filmId);
+        if (users != null) {
+            for (int userId : users) {
+                filmsByUser.computeIfPresent(userId, (id, films) -> IntArrays.remove(films, filmId));
+            }
+        }
+    }
+
+    // Отсортированные ID фильмов, которые лайкнул пользователь
+    public int[] getLikedFilmIds(int userId) {
+        return filmsByUser.getOrDefault(userId, IntArrays.EMPTY);
+    }
+
+    // Отсортированные ID пользователей, лайкнувших фильм
+    public int[] getLikedUserIds(int filmId) {
+        return usersByFilm.getOrDefault(filmId, IntArrays.EMPTY);
+    }
+
+    // ID фильмов, которые лайкнули оба пользователя
+    public int[] getCommonFilmIds(int userId, int otherUserId) {
+        return IntArrays.intersect(filmsByUser.get(userId), filmsByUser.get(otherUserId));
+    }
+
+    // Пользователь с наибольшим количеством общих лайков (при равенстве - с меньшим ID), -1 если такого нет.
+    // Отсортированные списки лайкнувших каждый фильм пользователя сливаются по возрастанию ID:
+    // одинаковые ID идут подряд, длина серии - количество общих лайков
+    public int findMostSimilarUser(int userId) {
+        int[] likedFilms = filmsByUser.get(userId);
+        if (likedFilms == null) {
+            return -1;
+        }
+        int[][] lists = new int[likedFilms.length][];
+        int[] positions = new int[likedFilms.length];
+        int[] heap = new int[likedFilms.length]; // индексы непройденных списков, минимум текущего ID в вершине
+        int heapSize = 0;
+        for (int i = 0; i < likedFilms.length; i++) {
+            lists[i] = usersByFilm.getOrDefault(likedFilms[i], IntArrays.EMPTY);
+            if (lists[i].length > 0) {
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, lists, positions);
+        }
+        int bestUser = -1;
+        int maxOverlap = 0;
+        int currentUser = -1;
+        int overlap = 0;
+        while (heapSize > 0) {
+            int list = heap[0];
+            int otherUserId = lists[list][positions[list]++];
+            if (positions[list] == lists[list].length) {
+                heap[0] = heap[--heapSize];
+            }
+            if (heapSize > 0) {
+                siftDown(heap, heapSize, 0, lists, positions);
+            }
+            if (otherUserId != currentUser) {
+                if (overlap > maxOverlap && currentUser != userId) {
+                    maxOverlap = overlap;
+                    bestUser = currentUser;
+                }
+                currentUser = otherUserId;
+                overlap = 0;
+            }
+            overlap++;
+        }
+        return overlap > maxOverlap && currentUser != userId ? currentUser : bestUser;
+    }
+
+    // Просеивание вниз в куче индексов списков по текущему элементу списка
+    private static void siftDown(int[] heap, int size, int index, int[][] lists, int[] positions) {
+        int list = heap[index];
+        int value = lists[list][positions[list]];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            int childValue = lists[heap[child]][positions[heap[child]]];
+            if (child + 1 < size) {
+                int rightValue = lists[heap[child + 1]][positions[heap[child + 1]]];
+                if (rightValue < childValue) {
+                    child++;
+                    childValue = rightValue;
+                }
+            }
+            if (value <= childValue) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = list;
+    }
+
+    // Рекомендации: фильмы самого похожего пользователя, которые пользователь ещё не лайкнул
+    public int[] recommendFilmIds(int userId) {
+        int similarUser = findMostSimilarUser(userId);
+        if (similarUser < 0) {
+            return IntArrays.EMPTY;
+        }
+        return IntArrays.difference(filmsByUser.get(similarUser), filmsByUser.get(userId));
+    }
+
+    // Группировка пар по ключу keyIdx в отсортированные массивы значений valueIdx
+    private static Map<Integer, int[]> collect(List<int[]> pairs, int keyIdx, int valueIdx) {
+        Map<Integer, int[]> result = new HashMap<>();
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (int[] pair : pairs) {
+            int key = pair[keyIdx];
+            int[] values = result.get(key);
+            int size = sizes.getOrDefault(key, 0);
+            if (values == null) {
+                values = new int[4];
+            } else if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = pair[valueIdx];
+            result.put(key, values);
+            sizes.put(key, size + 1);
+        }
+        result.replaceAll((key, values) -> Arrays.stream(values, 0, sizes.get(key)).sorted().distinct().toArray());
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Индекс популярности фильмов в памяти.
+ * Хранит отсортированные по количеству лайков списки фильмов: общий, по жанрам и по годам выпуска,
+ * поэтому топ-K отдаётся без обращения к таблице films_like.
+ */
+
+@Slf4j
+@Component
+public class PopularFilmsIndex {
+    // Порядок: больше лайков - выше, при равенстве - меньший ID
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingInt(Rank::filmId);
+
+    private final Map<Integer, FilmEntry> films = new ConcurrentHashMap<>();
+    private final NavigableSet<Rank> allRanks = new ConcurrentSkipListSet<>(RANK_ORDER);
+    private final Map<Integer, NavigableSet<Rank>> ranksByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<Rank>> ranksByYear = new ConcurrentHashMap<>();
+
+    // Полная перестройка индекса (при старте приложения)
+    public void rebuild(Collection<FilmEntry> entries) {
+        films.clear();
+        allRanks.clear();
+        ranksByGenre.clear();
+        ranksByYear.clear();
+        entries.forEach(this::putFilm);
+        log.info("Индекс популярности построен, фильмов: {}", films.size());
+    }
+
+    // Добавление или обновление фильма (жанры и год выпуска), количество лайков сохраняется
+    public void putFilm(int filmId, Integer year, Set<Integer> genreIds) {
+        films.compute(filmId, (id, old) -> {
+            int likes = old == null ? 0 : old.likes();
+            if (old != null) {
+                removeRanks(old);
+            }
+            FilmEntry entry = new FilmEntry(filmId, likes, year, Set.copyOf(genreIds));
+            addRanks(entry);
+            return entry;
+        });
+    }
+
+    // Удаление фильма из индекса
+    public void removeFilm(int filmId) {
+        films.computeIfPresent(filmId, (id, old) -> {
+            removeRanks(old);
+            return null;
+        });
+    }
+
+    // Изменение количества лайков фильма на delta
+    public void changeLikes(int filmId, int delta) {
+        films.computeIfPresent(filmId, (id, old) -> {
+            FilmEntry entry = new FilmEntry(filmId, old.likes() + delta, old.year(), old.genreIds());
+            addRanks(entry); // сначала добавляем новую позицию, чтобы фильм не пропадал из выдачи
+            removeRanks(old);
+            return entry;
+        });
+    }
+
+    public boolean contains(int filmId) {
+        return films.containsKey(filmId);
+    }
+
+    // Количество лайков фильма (0, если фильма нет в индексе)
+    public int getLikes(int filmId) {
+        FilmEntry entry = films.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    // Получение ID самых популярных фильмов с учётом фильтров по жанру и году
+    public List<Integer> getTopFilmIds(Integer count, Integer genreId, Integer year) {
+        NavigableSet<Rank> ranks;
+        if (genreId != null) {
+            ranks = ranksByGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+        } else if (year != null) {
+            ranks = ranksByYear.getOrDefault(year, Collections.emptyNavigableSet());
+        } else {
+            ranks = allRanks;
+        }
+
+        int limit = count == null ? Integer.MAX_VALUE : count;
+        Set<Integer> result = new LinkedHashSet<>();
+        for (Rank rank : ranks) {
+            if (result.size() >= limit) {
+                break;
+            }
+            FilmEntry entry = films.get(rank.filmId());
+            // пропускаем устаревшие позиции, оставшиеся от параллельного изменения лайков
+            if (entry == null || entry.likes() != rank.likes()) {
+                continue;
+            }
+            if (year != null && !year.equals(entry.year())) {
+                continue;
+            }
+            result.add(rank.filmId());
+        }
+        return new ArrayList<>(result);
+    }
+
+    // Сортировка ID фильмов по убыванию количества лайков, при равенстве - по возрастанию ID
+    public List<Integer> sortByLikes(int[] filmIds) {
+        // количество лайков читается один раз: во время сортировки оно может измениться
+        long[] keys = new long[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            keys[i] = (long) (Integer.MAX_VALUE - getLikes(filmIds[i])) << 32 | filmIds[i];
+        }
+        Arrays.sort(keys);
+        List<Integer> sortedIds = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            sortedIds.add((int) key);
+        }
+        return sortedIds;
+    }
+
+    private void putFilm(FilmEntry entry) {
+        films.put(entry.filmId(), entry);
+        addRanks(entry);
+    }
+
+    private void addRanks(FilmEntry entry) {
+        Rank rank = new Rank(entry.filmId(), entry.likes());
+        allRanks.add(rank);
+        entry.genreIds().forEach(genreId -> ranksByGenre
+                .computeIfAbsent(genreId, id -> new ConcurrentSkipListSet<>(RANK_ORDER))
+                .add(rank));
+        if (entry.year() != null) {
+            ranksByYear.computeIfAbsent(entry.year(), id -> new ConcurrentSkipListSet<>(RANK_ORDER)).add(rank);
+        }
+    }
+
+    private void removeRanks(FilmEntry entry) {
+        Rank rank = new Rank(entry.filmId(), entry.likes());
+        allRanks.remove(rank);
+        entry.genreIds().forEach(genreId -> {
+            NavigableSet<Rank> ranks = ranksByGenre.get(genreId);
+            if (ranks != null) {
+                ranks.remove(rank);
+            }
+        });
+        if (entry.year() != null) {
+            NavigableSet<Rank> ranks = ranksByYear.get(entry.year());
+            if (ranks != null) {
+                ranks.remove(rank);
+            }
+        }
+    }
+
+    // Позиция фильма в рейтинге
+    private record Rank(int filmId, int likes) {
+    }
+
+    // Данные фильма, необходимые для построения рейтинга
+    public record FilmEntry(int filmId, int likes, Integer year, Set<Integer> genreIds) {
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимки состояния для журнала: всё состояние хранилищ в виде записей журнала.
+ *
+ * <pre>
+ * снимок := MAGIC version:int позиция:long запись* -1:int
+ * запись := длина:int crc32c:int данные
+ * </pre>
+ * Позиция - конец журнала в момент начала снимка, при восстановлении журнал воспроизводится с неё.
+ * Снимок пишется во временный файл, сбрасывается на диск и только затем переименовывается,
+ * поэтому в каталоге лежат только полные снимки.
+ */
+
+final class Checkpoints {
+    private static final byte[] MAGIC = {'F', 'J', 'C', 'P'};
+    private static final int VERSION = 1;
+    private static final int END = -1;
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".chk";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    // Недописанные при прошлом запуске снимки удаляются
+    Checkpoints(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(TEMPORARY_SUFFIX)).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Позиция последнего снимка или 0, если снимков нет
+    long latestPosition() throws IOException {
+        List<Long> positions = positions();
+        return positions.isEmpty() ? 0 : positions.get(positions.size() - 1);
+    }
+
+    // Чтение последнего снимка; возвращает его позицию или 0, если снимков нет
+    long readLatest(SegmentLog.RecordHandler handler) throws IOException {
+        long position = latestPosition();
+        if (position == 0) {
+            return 0;
+        }
+        Path file = path(position);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION || in.readLong() != position) {
+                throw new JournalFormatException("Файл " + file + " не является снимком журнала");
+            }
+            CRC32C crc = new CRC32C();
+            for (int length = in.readInt(); length != END; length = in.readInt()) {
+                int checksum = in.readInt();
+                if (length < 0) {
+                    throw new JournalFormatException("Некорректная длина записи в снимке " + file + ": " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    throw new JournalFormatException("Неверная контрольная сумма записи в снимке " + file);
+                }
+                handler.accept(position, ByteBuffer.wrap(payload));
+            }
+        } catch (EOFException e) {
+            throw new JournalFormatException("Снимок журнала " + file + " обрезан");
+        }
+        return position;
+    }
+
+    // Запись снимка: records передаёт все записи функции записи одной записи
+    void write(long position, Consumer<Consumer<byte[]>> records) throws IOException {
+        Path target = path(position);
+        Path temporary = directory.resolve(target.getFileName() + TEMPORARY_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position);
+            CRC32C crc = new CRC32C();
+            records.accept(payload -> {
+                crc.reset();
+                crc.update(payload);
+                try {
+                    out.writeInt(payload.length);
+                    out.writeInt((int) crc.getValue());
+                    out.write(payload);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeInt(END);
+            out.flush();
+            file.getChannel().force(true);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temporary);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        SegmentLog.syncDirectory(directory); // до удаления сегментов, учтённых в снимке
+    }
+
+    // Удаление снимков старше позиции
+    void deleteBefore(long position) throws IOException {
+        for (long older : positions()) {
+            if (older < position) {
+                Files.deleteIfExists(path(older));
+            }
+        }
+    }
+
+    private List<Long> positions() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(long position) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, position, SUFFIX));
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.storage.MutationLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений хранилищ в памяти в файлах (профиль journal): записи кодируются MutationCodec
+ * и добавляются в SegmentLog, рядом лежат снимки состояния (Checkpoints).
+ * С filmorate.journal.await-durable=false изменение подтверждается сразу после добавления в журнал,
+ * не дожидаясь сброса на диск: при сбое ОС теряются изменения за последнее окно устойчивости.
+ */
+
+@Slf4j
+@Component
+@Profile("journal")
+public class FileMutationLog implements MutationLog {
+    private final SegmentLog segmentLog;
+    private final Checkpoints checkpoints;
+    private final boolean awaitDurable;
+
+    public FileMutationLog(BackgroundThreads backgroundThreads,
+                           @Value("${filmorate.journal.dir:./db/journal}") Path directory,
+                           @Value("${filmorate.journal.segment-size-mb:64}") int segmentSizeMb,
+                           @Value("${filmorate.journal.durability-window-ms:5}") long durabilityWindowMs,
+                           @Value("${filmorate.journal.await-durable:true}") boolean awaitDurable) throws IOException {
+        this.checkpoints = new Checkpoints(directory);
+        this.segmentLog = new SegmentLog(directory, segmentSizeMb << 20, Duration.ofMillis(durabilityWindowMs),
+                backgroundThreads.factory("journal-flusher"), checkpoints.latestPosition());
+        this.awaitDurable = awaitDurable;
+        log.info("Журнал изменений: {}, позиция {}, окно устойчивости {} мс", directory.toAbsolutePath(),
+                segmentLog.position(), durabilityWindowMs);
+    }
+
+    @Override
+    public long append(Mutation mutation) {
+        try {
+            return segmentLog.append(MutationCodec.encode(mutation));
+        } catch (UncheckedIOException | IllegalStateException e) {
+            throw new InternalServerException("Изменение не записано в журнал: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (!awaitDurable) {
+            return;
+        }
+        try {
+            segmentLog.awaitDurable(position);
+        } catch (UncheckedIOException | IllegalStateException e) {
+            throw new InternalServerException("Изменение не сохранено на диск: " + e.getMessage());
+        }
+    }
+
+    // Текущий конец журнала
+    long position() {
+        return segmentLog.position();
+    }
+
+    // Воспроизведение последнего снимка и записей журнала после него; возвращает позицию снимка
+    long replay(Consumer<Mutation> consumer) throws IOException {
+        long[] records = new long[2];
+        long checkpoint = checkpoints.readLatest((position, payload) -> {
+            consumer.accept(MutationCodec.decode(payload));
+            records[0]++;
+        });
+        segmentLog.read(checkpoint, (position, payload) -> {
+            consumer.accept(MutationCodec.decode(payload));
+            records[1]++;
+        });
+        log.info("Журнал восстановлен: записей в снимке {}, в журнале после снимка {}", records[0], records[1]);
+        return checkpoint;
+    }
+
+    // Запись снимка состояния на позиции журнала и удаление сегментов и снимков, которые в нём учтены
+    void checkpoint(long position, Consumer<Consumer<Mutation>> state) throws IOException {
+        checkpoints.write(position, sink -> state.accept(mutation -> sink.accept(MutationCodec.encode(mutation))));
+        checkpoints.deleteBefore(position);
+        int deleted = segmentLog.deleteBefore(position);
+        log.info("Снимок журнала на позиции {} записан, удалено сегментов: {}", position, deleted);
+    }
+
+    @PreDestroy
+    public void close() {
+        segmentLog.close();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.storage.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Восстановление хранилищ в памяти из журнала при старте и фоновые снимки состояния (профиль journal).
+ * Снимок снимается без остановки записи: позиция журнала запоминается до выгрузки состояния, и изменения
+ * после неё при восстановлении применяются повторно поверх снимка - записи журнала идемпотентны.
+ * После снимка удаляются сегменты журнала и старые снимки, которые в нём уже учтены.
+ */
+
+@Slf4j
+@Component
+@Profile("journal")
+public class JournalCheckpointer {
+    private final FileMutationLog mutationLog;
+    private final List<JournaledStorage> storages;
+    private final long checkIntervalMs;
+    private final long checkpointBytes;
+    private final Lock checkpointLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+    private volatile long lastCheckpoint;
+
+    public JournalCheckpointer(FileMutationLog mutationLog, List<JournaledStorage> storages,
+                               BackgroundThreads backgroundThreads,
+                               @Value("${filmorate.journal.checkpoint-interval-ms:10000}") long checkIntervalMs,
+                               @Value("${filmorate.journal.checkpoint-min-mb:16}") long checkpointMb) {
+        this.mutationLog = mutationLog;
+        this.storages = storages;
+        this.checkIntervalMs = checkIntervalMs;
+        this.checkpointBytes = checkpointMb << 20;
+        this.executor = Executors.newSingleThreadScheduledExecutor(backgroundThreads.factory("journal-checkpoint"));
+    }
+
+    // Загрузка снимка и хвоста журнала до начала обработки запросов; снимки снимаются только после неё,
+    // иначе в снимок попало бы частично восстановленное состояние
+    @PostConstruct
+    public void recover() throws IOException {
+        lastCheckpoint = mutationLog.replay(this::apply);
+        executor.scheduleWithFixedDelay(this::checkpointIfDue, checkIntervalMs, checkIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Снимок состояния, если журнал изменился после предыдущего
+    public void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            long position = mutationLog.position();
+            if (position == lastCheckpoint) {
+                return;
+            }
+            mutationLog.checkpoint(position, sink -> storages.forEach(storage -> storage.exportState(sink)));
+            lastCheckpoint = position;
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void apply(Mutation mutation) {
+        for (JournaledStorage storage : storages) {
+            if (storage.apply(mutation)) {
+                return;
+            }
+        }
+        log.warn("Запись журнала {} не относится ни к одному хранилищу", mutation.getClass().getSimpleName());
+    }
+
+    // Снимок, когда журнал после предыдущего снимка вырос больше чем на checkpoint-min-mb
+    private void checkpointIfDue() {
+        if (mutationLog.position() - lastCheckpoint < checkpointBytes) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            log.error("Ошибка записи снимка журнала", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import java.io.IOException;
+
+/**
+ * Данные журнала или снимка журнала некорректны
+ */
+
+public class JournalFormatException extends IOException {
+    public JournalFormatException(String message) {
+        super(message);
+    }
+}
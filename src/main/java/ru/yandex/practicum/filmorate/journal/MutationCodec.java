@@ -0,0 +1,208 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import ru.yandex.practicum.filmorate.storage.Mutation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Двоичное представление записей журнала: байт типа и поля записи.
+ * Числа пишутся как int, даты - днями от эпохи, строки - длиной и байтами UTF-8,
+ * перед полями, которые могут быть null, пишется байт наличия значения.
+ */
+
+final class MutationCodec {
+    private static final byte FILM_PUT = 1;
+    private static final byte FILM_DELETE = 2;
+    private static final byte LIKE = 3;
+    private static final byte USER_PUT = 4;
+    private static final byte USER_DELETE = 5;
+    private static final byte FRIEND = 6;
+    private static final byte REVIEW_PUT = 7;
+    private static final byte REVIEW_DELETE = 8;
+    private static final byte REVIEW_VOTE = 9;
+    private static final byte LAST_ID = 10;
+    private static final Mutation.Entity[] ENTITIES = Mutation.Entity.values();
+
+    private MutationCodec() {
+    }
+
+    static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if (mutation instanceof Mutation.FilmPut film) {
+                out.writeByte(FILM_PUT);
+                out.writeInt(film.id());
+                writeString(out, film.name());
+                writeString(out, film.description());
+                writeDate(out, film.releaseDate());
+                writeInteger(out, film.duration());
+                writeInteger(out, film.mpaId());
+                writeIds(out, film.genreIds());
+                writeIds(out, film.directorIds());
+            } else if (mutation instanceof Mutation.FilmDelete delete) {
+                out.writeByte(FILM_DELETE);
+                out.writeInt(delete.id());
+            } else if (mutation instanceof Mutation.Like like) {
+                out.writeByte(LIKE);
+                out.writeInt(like.filmId());
+                out.writeInt(like.userId());
+                out.writeBoolean(like.liked());
+            } else if (mutation instanceof Mutation.UserPut user) {
+                out.writeByte(USER_PUT);
+                out.writeInt(user.id());
+                writeString(out, user.email());
+                writeString(out, user.login());
+                writeString(out, user.name());
+                writeDate(out, user.birthday());
+            } else if (mutation instanceof Mutation.UserDelete delete) {
+                out.writeByte(USER_DELETE);
+                out.writeInt(delete.id());
+            } else if (mutation instanceof Mutation.Friend friend) {
+                out.writeByte(FRIEND);
+                out.writeInt(friend.userId());
+                out.writeInt(friend.friendId());
+                out.writeBoolean(friend.added());
+            } else if (mutation instanceof Mutation.ReviewPut review) {
+                out.writeByte(REVIEW_PUT);
+                out.writeInt(review.id());
+                out.writeInt(review.filmId());
+                out.writeInt(review.userId());
+                writeString(out, review.content());
+                writeBoolean(out, review.isPositive());
+            } else if (mutation instanceof Mutation.ReviewDelete delete) {
+                out.writeByte(REVIEW_DELETE);
+                out.writeInt(delete.id());
+            } else if (mutation instanceof Mutation.ReviewVote vote) {
+                out.writeByte(REVIEW_VOTE);
+                out.writeInt(vote.reviewId());
+                out.writeInt(vote.userId());
+                out.writeByte(vote.vote());
+            } else if (mutation instanceof Mutation.LastId lastId) {
+                out.writeByte(LAST_ID);
+                out.writeByte(lastId.entity().ordinal());
+                out.writeInt(lastId.id());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // запись в массив не бросает IOException
+        }
+        return bytes.toByteArray();
+    }
+
+    // Разбор записи; некорректные данные - JournalFormatException
+    static Mutation decode(ByteBuffer in) throws JournalFormatException {
+        try {
+            byte type = in.get();
+            Mutation mutation = switch (type) {
+                case FILM_PUT -> new Mutation.FilmPut(in.getInt(), readString(in), readString(in), readDate(in),
+                        readInteger(in), readInteger(in), readIds(in), readIds(in));
+                case FILM_DELETE -> new Mutation.FilmDelete(in.getInt());
+                case LIKE -> new Mutation.Like(in.getInt(), in.getInt(), in.get() != 0);
+                case USER_PUT -> new Mutation.UserPut(in.getInt(), readString(in), readString(in), readString(in),
+                        readDate(in));
+                case USER_DELETE -> new Mutation.UserDelete(in.getInt());
+                case FRIEND -> new Mutation.Friend(in.getInt(), in.getInt(), in.get() != 0);
+                case REVIEW_PUT -> new Mutation.ReviewPut(in.getInt(), in.getInt(), in.getInt(), readString(in),
+                        readBoolean(in));
+                case REVIEW_DELETE -> new Mutation.ReviewDelete(in.getInt());
+                case REVIEW_VOTE -> new Mutation.ReviewVote(in.getInt(), in.getInt(), in.get());
+                case LAST_ID -> new Mutation.LastId(readEntity(in), in.getInt());
+                default -> throw new JournalFormatException("Неизвестный тип записи журнала: " + type);
+            };
+            if (in.hasRemaining()) {
+                throw new JournalFormatException("Лишние данные в записи журнала типа " + type);
+            }
+            return mutation;
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw new JournalFormatException("Обрезанная или некорректная запись журнала");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochDay());
+        }
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : value ? 1 : 0);
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Некорректная длина строки: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        return in.get() == 0 ? null : LocalDate.ofEpochDay(in.getLong());
+    }
+
+    private static Integer readInteger(ByteBuffer in) {
+        return in.get() == 0 ? null : in.getInt();
+    }
+
+    private static Boolean readBoolean(ByteBuffer in) {
+        byte value = in.get();
+        return value < 0 ? null : value != 0;
+    }
+
+    private static int[] readIds(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Некорректное количество ID: " + count);
+        }
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.getInt();
+        }
+        return ids;
+    }
+
+    private static Mutation.Entity readEntity(ByteBuffer in) {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= ENTITIES.length) {
+            throw new IllegalArgumentException("Неизвестный тип счётчика: " + ordinal);
+        }
+        return ENTITIES[ordinal];
+    }
+}
@@ -0,0 +1,415 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал только на добавление из файлов-сегментов фиксированного размера, отображённых в память.
+ *
+ * <pre>
+ * сегмент := запись* 0:int     -- имя файла: смещение начала сегмента в журнале, остаток файла - нули
+ * запись  := длина:int crc32c:int данные
+ * </pre>
+ * Позиция записи - смещение её конца от начала журнала. Добавление копирует запись в отображение под блокировкой;
+ * на диск отображение сбрасывает фоновый поток, одним вызовом force() для всех накопленных записей (group commit):
+ * не чаще, чем раз в окно устойчивости, и не позже, чем через окно после добавления. Записи в отображении
+ * переживают падение процесса, окно ограничивает потери только при сбое ОС или питания.
+ * При открытии журнал читается до первой повреждённой или недописанной записи, хвост после неё обнуляется.
+ */
+
+@Slf4j
+public class SegmentLog implements Closeable {
+    static final int HEADER_SIZE = 8;
+    private static final String SUFFIX = ".seg";
+    // Опрос несохранённых записей, если окно нулевое и их никто не ждёт
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long windowNanos;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition synced = syncLock.newCondition();
+    private final Thread flusher;
+
+    private Segment current;
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    // Открытие журнала в каталоге; пустой журнал начинается с позиции startPosition
+    public SegmentLog(Path directory, int segmentSize, Duration durabilityWindow, ThreadFactory threadFactory,
+                      long startPosition) throws IOException {
+        if (segmentSize <= HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("Слишком маленький сегмент журнала: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.windowNanos = durabilityWindow.toNanos();
+        Files.createDirectories(directory);
+        recover(startPosition);
+        durablePosition = writtenPosition;
+        flusher = threadFactory.newThread(this::flushLoop);
+        flusher.start();
+    }
+
+    // Добавление записи; возвращает позицию её конца
+    public long append(byte[] payload) {
+        int length = HEADER_SIZE + payload.length;
+        if (length > segmentSize - Integer.BYTES) {
+            throw new IllegalArgumentException("Запись журнала больше сегмента: " + payload.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        appendLock.lock();
+        try {
+            checkUsable();
+            int offset = (int) (writtenPosition - current.base());
+            // после записи должно остаться место под нулевую длину - отметку конца сегмента
+            if (offset + length > segmentSize - Integer.BYTES) {
+                roll();
+                offset = 0;
+            }
+            MappedByteBuffer buffer = current.buffer();
+            buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            buffer.put(offset + HEADER_SIZE, payload);
+            buffer.putInt(offset, payload.length);
+            writtenPosition = current.base() + offset + length;
+            return writtenPosition;
+        } catch (IOException e) {
+            throw fail(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Ожидание сброса на диск всех записей до позиции включительно
+    public void awaitDurable(long position) {
+        if (position <= durablePosition) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            syncRequested.signal();
+            while (position > durablePosition) {
+                checkUsable();
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long position() {
+        return writtenPosition;
+    }
+
+    public long durablePosition() {
+        return durablePosition;
+    }
+
+    // Чтение записей, которые заканчиваются после позиции from (from - граница записи)
+    public void read(long from, RecordHandler handler) throws IOException {
+        List<Long> bases = segmentBases();
+        if (!bases.isEmpty() && bases.get(0) > from) {
+            throw new IOException("Журнал начинается с позиции " + bases.get(0) + ", нужна позиция " + from);
+        }
+        for (long base : bases) {
+            if (base + segmentSize > from) {
+                try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+                    scan(buffer, base, (int) Math.max(0, from - base), handler);
+                }
+            }
+        }
+    }
+
+    // Удаление сегментов, все записи которых заканчиваются не позже позиции (уже есть в снимке)
+    public int deleteBefore(long position) {
+        long currentBase;
+        appendLock.lock();
+        try {
+            currentBase = current.base();
+        } finally {
+            appendLock.unlock();
+        }
+        int deleted = 0;
+        for (long base : segmentBases()) {
+            if (base + segmentSize <= position && base < currentBase) {
+                try {
+                    Files.deleteIfExists(segmentPath(base));
+                    deleted++;
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить сегмент журнала {}: {}", segmentPath(base), e.getMessage());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Остановка фонового потока и сброс на диск всех добавленных записей
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure == null) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+        signalSynced();
+    }
+
+    // Сброс на диск, пока журнал открыт: сразу, если ждут записи и окно с прошлого сброса прошло,
+    // иначе по истечении окна
+    private void flushLoop() {
+        long lastFlush = System.nanoTime() - windowNanos;
+        while (!closed) {
+            try {
+                awaitFlushDue(lastFlush);
+                if (closed) {
+                    return;
+                }
+                lastFlush = System.nanoTime();
+                flush();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    private void awaitFlushDue(long lastFlush) throws InterruptedException {
+        syncLock.lock();
+        try {
+            while (!closed) {
+                long remaining = lastFlush + windowNanos - System.nanoTime();
+                boolean pending = writtenPosition > durablePosition;
+                if (pending && remaining <= 0) {
+                    return;
+                }
+                syncRequested.awaitNanos(pending ? remaining : Math.max(windowNanos, IDLE_POLL_NANOS));
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void flush() {
+        long target;
+        Segment segment;
+        appendLock.lock();
+        try {
+            target = writtenPosition;
+            segment = current;
+        } finally {
+            appendLock.unlock();
+        }
+        // предыдущие сегменты сброшены при переходе на новый
+        long from = Math.max(durablePosition, segment.base());
+        if (target > from) {
+            segment.buffer().force((int) (from - segment.base()), (int) (target - from));
+        }
+        syncLock.lock();
+        try {
+            durablePosition = Math.max(durablePosition, target);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Переход на новый сегмент; вызывается под блокировкой добавления
+    private void roll() throws IOException {
+        current.buffer().force();
+        long base = current.base() + segmentSize;
+        current = createSegment(base);
+        writtenPosition = base;
+    }
+
+    // Поиск конца журнала; всё после первой повреждённой записи отбрасывается
+    private void recover(long startPosition) throws IOException {
+        List<Long> bases = segmentBases();
+        if (bases.isEmpty()) {
+            current = createSegment(startPosition);
+            writtenPosition = startPosition;
+            return;
+        }
+        for (int i = 0; i < bases.size(); i++) {
+            long base = bases.get(i);
+            Segment segment = openSegment(base);
+            int end = scan(segment.buffer(), base, 0, (position, payload) -> {
+            });
+            boolean last = i == bases.size() - 1;
+            boolean complete = end + Integer.BYTES > segmentSize || segment.buffer().getInt(end) == 0;
+            if (last || !complete) {
+                if (!last) {
+                    log.warn("Журнал повреждён в сегменте {} на смещении {}, следующие сегменты удаляются",
+                            segmentPath(base), end);
+                    for (long next : bases.subList(i + 1, bases.size())) {
+                        Files.deleteIfExists(segmentPath(next));
+                    }
+                }
+                clearTail(segment.buffer(), end);
+                current = segment;
+                writtenPosition = base + end;
+                return;
+            }
+        }
+    }
+
+    // Обход записей сегмента с проверкой контрольных сумм; возвращает смещение конца последней целой записи
+    private int scan(ByteBuffer buffer, long base, int offset, RecordHandler handler) throws IOException {
+        while (offset + HEADER_SIZE <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+                return offset;
+            }
+            ByteBuffer payload = buffer.slice(offset + HEADER_SIZE, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                return offset;
+            }
+            offset += HEADER_SIZE + length;
+            handler.accept(base + offset, payload);
+        }
+        return offset;
+    }
+
+    // Обнуление хвоста сегмента после последней целой записи: страницы отображения сбрасываются на диск
+    // в любом порядке, и остатки недописанных записей не должны читаться после новых
+    private void clearTail(MappedByteBuffer buffer, int from) {
+        int dirty = from;
+        while (dirty < segmentSize && dirty % Long.BYTES != 0 && buffer.get(dirty) == 0) {
+            dirty++;
+        }
+        while (dirty + Long.BYTES <= segmentSize && buffer.getLong(dirty) == 0) {
+            dirty += Long.BYTES;
+        }
+        while (dirty < segmentSize && buffer.get(dirty) == 0) {
+            dirty++;
+        }
+        if (dirty == segmentSize) {
+            return;
+        }
+        byte[] zeros = new byte[1 << 16];
+        for (int offset = from; offset < segmentSize; offset += zeros.length) {
+            buffer.put(offset, zeros, 0, Math.min(zeros.length, segmentSize - offset));
+        }
+        buffer.force();
+        log.warn("Отброшен недописанный хвост журнала после смещения {}", from);
+    }
+
+    private Segment createSegment(long base) throws IOException {
+        Segment segment = openSegment(base);
+        syncDirectory(directory);
+        return segment;
+    }
+
+    private Segment openSegment(long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(base, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    // Сброс каталога на диск, чтобы новый или переименованный файл не потерялся при сбое; не везде поддерживается
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Каталог журнала не сброшен на диск: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> segmentBases() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> bases = new ArrayList<>();
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+            bases.sort(null);
+            return bases;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал недоступен после ошибки записи",
+                    failure instanceof UncheckedIOException e ? e.getCause() : new IOException(failure));
+        }
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+    }
+
+    // После ошибки записи журнал не принимает изменений: состояние в памяти уже могло разойтись с диском
+    private RuntimeException fail(Exception e) {
+        log.error("Ошибка записи журнала", e);
+        failure = e instanceof RuntimeException runtime ? runtime : new UncheckedIOException((IOException) e);
+        signalSynced();
+        return failure;
+    }
+
+    private void signalSynced() {
+        syncLock.lock();
+        try {
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Обработчик записи журнала: позиция конца записи и её данные
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(long position, ByteBuffer payload) throws IOException;
+    }
+
+    private record Segment(long base, MappedByteBuffer buffer) {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
+import ru.yandex.practicum.filmorate.controller.ResponseCacheFilter;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+import java.util.List;
+
+/**
+ * Попадания, промахи и доля попаданий кэшей приложения (filmorate.cache.*, тег cache - имя кэша)
+ */
+
+@Component
+public class CacheMetrics implements MeterBinder {
+    private final List<CacheStats> caches;
+
+    public CacheMetrics(GenreService genreService, MpaService mpaService, DirectorService directorService,
+                        RecentEventsCache recentEventsCache, FriendSuggestionsCache friendSuggestionsCache,
+                        ResponseCacheFilter responseCacheFilter) {
+        this.caches = List.of(genreService.getCacheStats(), mpaService.getCacheStats(),
+                directorService.getCacheStats(), recentEventsCache.getStats(), friendSuggestionsCache.getStats(),
+                responseCacheFilter.getStats());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (CacheStats stats : caches) {
+            FunctionCounter.builder("filmorate.cache.hits", stats, CacheStats::getHits)
+                    .tag("cache", stats.getName())
+                    .register(registry);
+            FunctionCounter.builder("filmorate.cache.misses", stats, CacheStats::getMisses)
+                    .tag("cache", stats.getName())
+                    .register(registry);
+            Gauge.builder("filmorate.cache.hit.ratio", stats, CacheStats::getHitRatio)
+                    .tag("cache", stats.getName())
+                    .register(registry);
+        }
+    }
+}
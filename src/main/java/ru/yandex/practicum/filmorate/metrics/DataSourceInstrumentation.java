@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Замена источника данных на InstrumentedDataSource.
+ * Оборачивается сам бин DataSource, поэтому JdbcTemplate репозиториев и менеджер транзакций
+ * работают с одними и теми же соединениями.
+ */
+
+@Component
+public class DataSourceInstrumentation implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean enabled;
+
+    public DataSourceInstrumentation(ObjectProvider<MeterRegistry> meterRegistry,
+                                     @Value("${filmorate.metrics.sql.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof InstrumentedDataSource) {
+            return bean;
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry == null ? bean : new InstrumentedDataSource(dataSource, registry);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Источник данных, который измеряет каждый выполненный SQL-запрос.
+ * Соединения и запросы оборачиваются динамическими прокси: время выполнения пишется в таймер
+ * filmorate.db.statements и в трассу текущего HTTP-запроса (SqlTrace).
+ */
+
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private static final Set<String> PREPARE_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final Timer statementTimer;
+
+    public InstrumentedDataSource(DataSource target, MeterRegistry meterRegistry) {
+        super(target);
+        this.statementTimer = Timer.builder("filmorate.db.statements")
+                .description("Время выполнения SQL-запросов")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (PREPARE_METHODS.contains(method.getName())) {
+                        // у prepareStatement/prepareCall первый аргумент - текст запроса
+                        String sql = method.getName().equals("createStatement") ? null : (String) args[0];
+                        return wrapStatement((Statement) result, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type, String preparedSql) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (!EXECUTE_METHODS.contains(method.getName())) {
+                        return invoke(statement, method, args);
+                    }
+                    String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                    long start = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        long elapsed = System.nanoTime() - start;
+                        statementTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                        SqlTrace.record(method.getName().endsWith("Batch") ? "[batch] " + sql : sql, elapsed);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
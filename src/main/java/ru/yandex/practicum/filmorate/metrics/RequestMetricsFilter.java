@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики обработки запроса: количество SQL-запросов и время в БД по эндпоинтам
+ * (filmorate.request.sql.statements, filmorate.request.db.time).
+ * Запросы дольше filmorate.metrics.slow-request-ms пишутся в журнал вместе с последовательностью SQL,
+ * повторяющиеся запросы (признак N+1) выводятся отдельно.
+ */
+
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+    private final long slowRequestNanos;
+
+    @Autowired
+    public RequestMetricsFilter(MeterRegistry meterRegistry,
+                                @Value("${filmorate.metrics.slow-request-ms:500}") long slowRequestMs) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlTrace trace = SqlTrace.start();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlTrace.stop();
+            record(request, response, trace, System.nanoTime() - start);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, SqlTrace trace, long elapsed) {
+        // шаблон пути известен после обработки контроллером; ответы из кэша и ошибки маршрутизации - UNKNOWN
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+        DistributionSummary.builder("filmorate.request.sql.statements")
+                .description("Количество SQL-запросов на HTTP-запрос")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(trace.getStatementCount());
+        Timer.builder("filmorate.request.db.time")
+                .description("Время выполнения SQL-запросов за HTTP-запрос")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(trace.getDbNanos(), TimeUnit.NANOSECONDS);
+
+        if (elapsed >= slowRequestNanos) {
+            log.warn("Медленный запрос {}", describe(request, response.getStatus(), trace, elapsed));
+        }
+    }
+
+    static String describe(HttpServletRequest request, int status, SqlTrace trace, long elapsed) {
+        StringBuilder message = new StringBuilder()
+                .append(request.getMethod()).append(' ').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            message.append('?').append(request.getQueryString());
+        }
+        message.append(" (").append(status).append("): ").append(millis(elapsed))
+                .append(" мс, SQL-запросов: ").append(trace.getStatementCount())
+                .append(", время в БД: ").append(millis(trace.getDbNanos())).append(" мс");
+
+        Map<String, Integer> repeats = new LinkedHashMap<>();
+        int number = 0;
+        for (SqlTrace.Statement statement : trace.getStatements()) {
+            message.append("\n  ").append(++number).append(". ").append(millis(statement.nanos())).append(" мс  ")
+                    .append(statement.sql());
+            repeats.merge(String.valueOf(statement.sql()), 1, Integer::sum);
+        }
+        if (trace.getStatementCount() > trace.getStatements().size()) {
+            message.append("\n  ... ещё ").append(trace.getStatementCount() - trace.getStatements().size());
+        }
+        repeats.forEach((sql, count) -> {
+            if (count > 1) {
+                message.append("\n  повторяется ").append(count).append(" раз: ").append(sql);
+            }
+        });
+        return message.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL-запросы, выполненные при обработке одного HTTP-запроса.
+ * Трасса привязана к потоку обработки запроса; запросы фоновых потоков в неё не попадают.
+ * Сохраняются первые MAX_STATEMENTS запросов, количество и время считаются по всем.
+ */
+
+public final class SqlTrace {
+    static final int MAX_STATEMENTS = 200;
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private final List<Statement> statements = new ArrayList<>();
+    private int statementCount;
+    private long dbNanos;
+
+    private SqlTrace() {
+    }
+
+    // Начало трассы в текущем потоке
+    public static SqlTrace start() {
+        SqlTrace trace = new SqlTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    // Учёт выполненного запроса, если в потоке идёт трасса
+    static void record(String sql, long nanos) {
+        SqlTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.statementCount++;
+            trace.dbNanos += nanos;
+            if (trace.statements.size() < MAX_STATEMENTS) {
+                trace.statements.add(new Statement(sql, nanos));
+            }
+        }
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getDbNanos() {
+        return dbNanos;
+    }
+
+    public List<Statement> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    public record Statement(String sql, long nanos) {
+    }
+}
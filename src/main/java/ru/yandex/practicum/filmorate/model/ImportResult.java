@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог пакетного импорта: количество записанных и отклонённых строк, ошибки по номерам строк
+ */
+
+@Data
+public class ImportResult {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    // Учёт ошибочной строки; в ответ попадают только первые MAX_REPORTED_ERRORS ошибок
+    public void addError(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -2,20 +2,34 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.LruCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Slf4j
 @Service
 public class DirectorService {
+    private static final int CACHE_SIZE = 1000;
     private final DirectorStorage directorStorage;
+    private final LruCache<Integer, Director> directorCache = new LruCache<>("directors", CACHE_SIZE);
+    private final FilmSearchIndex filmSearchIndex;
+    private final ResourceVersions resourceVersions;
 
-    public DirectorService(DirectorStorage directorStorage) {
+    public DirectorService(DirectorStorage directorStorage, FilmSearchIndex filmSearchIndex,
+                           ResourceVersions resourceVersions) {
         this.directorStorage = directorStorage;
+        this.filmSearchIndex = filmSearchIndex;
+        this.resourceVersions = resourceVersions;
     }
 
     public List<Director> getAllDirectors() {
@@ -24,18 +38,26 @@ public class DirectorService {
 
     // Добавление режиссера
     public Director addDirector(Director director) {
-        return directorStorage.addDirector(director);
+        Director newDirector = directorStorage.addDirector(director);
+        directorCache.invalidate(newDirector.getId());
+        filmSearchIndex.putDirector(newDirector.getId(), newDirector.getName());
+        resourceVersions.bump(Resource.DIRECTORS);
+        return newDirector;
     }
 
-    // Получение режиссера по id
+    // Получение режиссера по id (копия из кэша, чтобы изменения объекта не попадали в кэш)
     public Director getDirectorById(int id) {
-        return directorStorage.getDirectorById(id);
+        Director director = directorCache.get(id, directorStorage::getDirectorById);
+        return new Director(director.getId(), director.getName());
     }
 
     // Удаление режиссера
     public void removeDirector(int directorId) {
         Director director = directorStorage.getDirectorById(directorId);
         directorStorage.removeDirector(directorId);
+        directorCache.invalidate(directorId);
+        filmSearchIndex.removeDirector(directorId);
+        resourceVersions.bump(Resource.DIRECTORS, Resource.FILMS); // режиссеры входят в представление фильмов
     }
 
     // Обновление режиссера
@@ -51,12 +73,28 @@ public class DirectorService {
             oldDirector.setName(newDirector.getName());
         }
         directorStorage.updateDirector(oldDirector);
+        directorCache.invalidate(oldDirector.getId());
+        filmSearchIndex.putDirector(oldDirector.getId(), oldDirector.getName());
+        resourceVersions.bump(Resource.DIRECTORS, Resource.FILMS);
         return oldDirector;
     }
 
+    public CacheStats getCacheStats() {
+        return directorCache.getStats();
+    }
+
+    // Сброс кэша режиссеров, например после восстановления БД из снимка
+    public void invalidateCache() {
+        directorCache.invalidateAll();
+    }
+
     // Получение режиссеров фильма
     public Set<Director> getDirectorsFromFilm(int filmId) {
         return directorStorage.getDirectorsFromFilm(filmId);
     }
 
+    // Получение режиссеров нескольких фильмов
+    public Map<Integer, Set<Director>> getDirectorsFromFilms(Collection<Integer> filmIds) {
+        return directorStorage.getDirectorsFromFilms(filmIds);
+    }
 }
@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
 import ru.yandex.practicum.filmorate.dal.EventFeedDbStorage;
+import ru.yandex.practicum.filmorate.dal.EventFeedWriter;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.EventFeed;
 import ru.yandex.practicum.filmorate.model.EventTypes;
@@ -17,11 +20,16 @@ import java.util.List;
 @Service
 public class EventFeedService {
     private final EventFeedDbStorage eventFeedDbStorage;
+    private final EventFeedWriter eventFeedWriter;
     private final UserStorage userStorage;
+    private final RecentEventsCache recentEventsCache;
 
-    public EventFeedService(EventFeedDbStorage eventFeedDbStorage, UserStorage userStorage) {
+    public EventFeedService(EventFeedDbStorage eventFeedDbStorage, EventFeedWriter eventFeedWriter,
+                            UserStorage userStorage, RecentEventsCache recentEventsCache) {
         this.eventFeedDbStorage = eventFeedDbStorage;
+        this.eventFeedWriter = eventFeedWriter;
         this.userStorage = userStorage;
+        this.recentEventsCache = recentEventsCache;
     }
 
     // Просмотр событий пользователя
@@ -31,10 +39,38 @@ public class EventFeedService {
             log.error("Пользователя с ID: {} не существует", userId);
             throw new NotFoundException("Пользователя с ID = " + userId + " не существует");
         }
+        eventFeedWriter.flush(userId); // дописываем события пользователя из очереди, чтобы лента была актуальной
         return eventFeedDbStorage.viewRecentEvents(userId);
     }
 
-    // Добавление события в БД
+    // Просмотр событий пользователя постранично: последние limit событий с ID меньше beforeId
+    // и временем в интервале [since, until)
+    public List<EventFeed> viewEvents(int userId, Integer beforeId, Long since, Long until, int limit) {
+        if (limit <= 0) {
+            log.error("Некорректный размер страницы: {}", limit);
+            throw new ValidationException("Размер страницы должен быть больше нуля");
+        }
+        userStorage.getUserById(userId); // проверка существования пользователя
+        eventFeedWriter.flush(userId);
+
+        boolean latestPage = beforeId == null && since == null && until == null
+                && limit <= RecentEventsCache.EVENTS_PER_USER;
+        if (latestPage) {
+            return recentEventsCache.getLatest(userId, limit, id -> eventFeedDbStorage.findEvents(id, null, null,
+                    null, RecentEventsCache.EVENTS_PER_USER));
+        }
+        return eventFeedDbStorage.findEvents(userId, beforeId,
+                since == null ? null : new Timestamp(since),
+                until == null ? null : new Timestamp(until),
+                limit);
+    }
+
+    // Удаление событий пользователя, ещё не записанных в БД
+    public void discardEvents(int userId) {
+        eventFeedWriter.discard(userId);
+    }
+
+    // Добавление события в очередь на запись в БД
     public void createEventFeed(int userId, EventTypes eventType, Operations operation, int entityId) {
         EventFeed eventFeed = EventFeed.builder()
                 .userId(userId)
@@ -43,6 +79,6 @@ public class EventFeedService {
                 .operation(operation)
                 .entityId(entityId)
                 .build();
-        EventFeedDbStorage.createEventFeed(eventFeed);
+        eventFeedWriter.write(eventFeed);
     }
 }
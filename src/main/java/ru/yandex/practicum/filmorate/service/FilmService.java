@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.service;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
 import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.*;
@@ -12,7 +14,7 @@ import ru.yandex.practicum.filmorate.validation.ValidationResult;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -22,14 +24,16 @@ public class FilmService {
     private final DirectorDbStorage directorDbStorage;
     private final EventFeedService eventFeedService;
     private final UserService userService;
+    private final ResourceVersions resourceVersions;
 
 
     public FilmService(FilmStorage filmStorage, DirectorDbStorage directorDbStorage, EventFeedService eventFeedService,
-                       UserService userService) {
+                       UserService userService, ResourceVersions resourceVersions) {
         this.filmStorage = filmStorage;
         this.directorDbStorage = directorDbStorage;
         this.eventFeedService = eventFeedService;
         this.userService = userService;
+        this.resourceVersions = resourceVersions;
     }
 
     // Добавление фильма
@@ -44,7 +48,9 @@ public class FilmService {
             sortedGenres.sort(Comparator.comparing(Genre::getId));
             film.setGenres(new LinkedHashSet<>(sortedGenres));
         }
-        return filmStorage.addFilm(film);
+        Film addedFilm = filmStorage.addFilm(film);
+        resourceVersions.bump(Resource.FILMS);
+        return addedFilm;
     }
 
     // Обновление(редактирование) фильма
@@ -88,6 +94,7 @@ public class FilmService {
         }
 
         filmStorage.updateFilm(oldFilm);
+        resourceVersions.bump(Resource.FILMS);
 
         return oldFilm;
     }
@@ -97,6 +104,16 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    // Получение страницы фильмов (keyset-пагинация по ID)
+    public List<Film> getFilms(Integer afterId, int limit) {
+        return filmStorage.getFilms(afterId == null ? 0 : afterId, checkLimit(limit));
+    }
+
+    // Передача всех фильмов по одному
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(consumer);
+    }
+
     public Film getFilmById(int filmId) {
         return filmStorage.getFilmById(filmId);
     }
@@ -104,22 +121,21 @@ public class FilmService {
     // Добавление лайка фильму
     public void addLike(int filmId, int userId) {
         filmStorage.addLike(filmId, userId);
+        resourceVersions.bump(Resource.FILMS);
         eventFeedService.createEventFeed(userId, EventTypes.LIKE, Operations.ADD, filmId); // Запись события в БД
     }
 
     // Удаление лайка с фильма
     public void removeLike(int filmId, int userId) {
         filmStorage.removeLike(filmId, userId);
+        resourceVersions.bump(Resource.FILMS);
         userService.getUserById(userId); // проверка существования пользователя
         eventFeedService.createEventFeed(userId, EventTypes.LIKE, Operations.REMOVE, filmId); // Запись события в БД
     }
 
     // Получение топ-фильмов по лайкам
     public List<Film> getTopFilms(int count) {
-        return filmStorage.getAllFilms().stream()
-                .sorted(Comparator.comparingInt(Film::getLikesCount).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.getMostPopularFilms(count, null, null);
     }
 
     // Сотрировка фильмов режиссера
@@ -134,29 +150,35 @@ public class FilmService {
         return filmStorage.sortingFilms(directorId, sortBy);
     }
 
-    // Получение общих фильмов
-    public List<Film> getCommonFilms(int userId, int filmId) {
-        List<Integer> commonFilmsId = filmStorage.getCommonFilms(userId, filmId);
-        return commonFilmsId.stream()
-                .map(this::getFilmById) // инициализация всех полей film
-                .collect(Collectors.toList());
+    // Получение общих фильмов, самые популярные первыми; фильмы загружаются пакетно
+    public List<Film> getCommonFilms(int userId, int friendId) {
+        return filmStorage.getFilmsByIds(filmStorage.getCommonFilms(userId, friendId));
     }
 
     public Film deleteFilmById(int filmId) {
-        return filmStorage.deleteFilmById(filmId);
+        Film film = filmStorage.deleteFilmById(filmId);
+        resourceVersions.bump(Resource.FILMS);
+        return film;
     }
 
     public List<Film> getMostPopularFilms(Integer count, Integer genreId, Integer year) {
         return filmStorage.getMostPopularFilms(count, genreId, year);
     }
 
-    public List<Film> searchFilms(String query, String by) {
-        List<Film> filmsList = filmStorage.searchFilm(query, by);
-        return filmsList.stream()
-                .map(film -> getFilmById(film.getId()))
-                .peek(film -> film.setDirectors(directorDbStorage.getDirectorsFromFilm(film.getId())))
-                .collect(Collectors.toList());
+    private static int checkLimit(int limit) {
+        ValidationResult validationResult = ModelValidator.validatePageSize(limit);
+        if (!validationResult.isValid()) {
+            throw new ValidationException(validationResult.getCurrentError());
+        }
+        return limit;
+    }
 
+    public List<Film> searchFilms(String query, String by) {
+        ValidationResult validationResult = ModelValidator.validateSearchBy(by);
+        if (!validationResult.isValid()) {
+            throw new ValidationException(validationResult.getCurrentError());
+        }
+        return filmStorage.searchFilm(query, by); // фильмы возвращаются уже заполненными
     }
 
 }
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Рекомендации друзей ("возможно, вы знакомы"): друзья друзей пользователя,
+ * упорядоченные по количеству общих друзей, затем по количеству общих лайков фильмов.
+ * Обход графа ограничен вторым кругом и MAX_VISITED_FRIENDSHIPS связями.
+ */
+
+@Slf4j
+@Service
+public class FriendSuggestionService {
+    // Ограничение обхода для пользователей с очень большим числом друзей
+    static final int MAX_VISITED_FRIENDSHIPS = 100_000;
+    // Худшая рекомендация - первая: вершина кучи при отборе лучших
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingInt(Suggestion::mutualFriends)
+            .thenComparingInt(Suggestion::commonLikes)
+            .thenComparing(Comparator.comparingInt(Suggestion::userId).reversed());
+
+    private final UserStorage userStorage;
+    private final LikesIndex likesIndex;
+    private final FriendSuggestionsCache suggestionsCache;
+
+    public FriendSuggestionService(UserStorage userStorage, LikesIndex likesIndex,
+                                   FriendSuggestionsCache suggestionsCache) {
+        this.userStorage = userStorage;
+        this.likesIndex = likesIndex;
+        this.suggestionsCache = suggestionsCache;
+    }
+
+    // Не больше count рекомендованных пользователей, лучшие первыми
+    public List<User> getFriendSuggestions(int userId, int count) {
+        if (count <= 0) {
+            log.error("Некорректное количество рекомендаций: {}", count);
+            throw new ValidationException("Количество рекомендаций должно быть больше нуля");
+        }
+        userStorage.getUserById(userId); // для проверки существования пользователя
+        if (count > FriendSuggestionsCache.SUGGESTIONS_PER_USER) {
+            return userStorage.getUsersByIds(findSuggestedIds(userId, count));
+        }
+        List<Integer> suggestedIds = suggestionsCache.get(userId,
+                id -> findSuggestedIds(id, FriendSuggestionsCache.SUGGESTIONS_PER_USER));
+        return userStorage.getUsersByIds(suggestedIds.subList(0, Math.min(count, suggestedIds.size())));
+    }
+
+    // Обход друзей друзей с подсчётом общих друзей и отбор count лучших кучей размера count
+    List<Integer> findSuggestedIds(int userId, int count) {
+        int[] friends = userStorage.getFriendIds(userId);
+        Map<Integer, Integer> mutualFriends = new HashMap<>();
+        int visited = 0;
+        for (int friendId : friends) {
+            int[] friendsOfFriend = userStorage.getFriendIds(friendId);
+            for (int candidateId : friendsOfFriend) {
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    mutualFriends.merge(candidateId, 1, Integer::sum);
+                }
+            }
+            visited += friendsOfFriend.length;
+            if (visited >= MAX_VISITED_FRIENDSHIPS) {
+                log.debug("Обход друзей пользователя {} остановлен после {} связей", userId, visited);
+                break;
+            }
+        }
+
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(count + 1, RANKING);
+        mutualFriends.forEach((candidateId, mutual) -> {
+            // общие лайки считаются только для кандидатов, которые могут попасть в результат
+            if (best.size() == count && mutual < best.peek().mutualFriends()) {
+                return;
+            }
+            best.offer(new Suggestion(candidateId, mutual,
+                    likesIndex.getCommonFilmIds(userId, candidateId).length));
+            if (best.size() > count) {
+                best.poll();
+            }
+        });
+
+        List<Integer> suggestedIds = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            suggestedIds.add(best.poll().userId());
+        }
+        Collections.reverse(suggestedIds);
+        return suggestedIds;
+    }
+
+    private record Suggestion(int userId, int mutualFriends, int commonLikes) {
+    }
+}
@@ -1,29 +1,73 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 @Service
 public class GenreService {
     private final GenreStorage genreStorage;
+    private final CacheStats cacheStats = new CacheStats("genres");
+    // Жанры - статичный справочник, загружаются один раз в массив с индексом по ID
+    private volatile Genre[] genresById;
 
     public GenreService(GenreStorage genreStorage) {
         this.genreStorage = genreStorage;
     }
 
+    // Получение жанра по ID (копия из справочника, чтобы изменения объекта не попадали в справочник)
     public Genre getGenreById(int id) {
-        return genreStorage.getGenreById(id);
+        Genre[] cached = getCachedGenres();
+        if (id >= 0 && id < cached.length && cached[id] != null) {
+            cacheStats.recordHit();
+            return copy(cached[id]);
+        }
+        cacheStats.recordMiss();
+        return genreStorage.getGenreById(id); // выбросит NotFoundException для несуществующего ID
     }
 
     public List<Genre> getAllGenres() {
-        return genreStorage.getAllGenres();
+        return Arrays.stream(getCachedGenres())
+                .filter(Objects::nonNull)
+                .map(GenreService::copy)
+                .toList();
     }
 
     public Set<Genre> getGenresFromFilm(int filmId) {
         return genreStorage.getGenresFromFilm(filmId);
     }
+
+    public Map<Integer, Set<Genre>> getGenresFromFilms(Collection<Integer> filmIds) {
+        return genreStorage.getGenresFromFilms(filmIds);
+    }
+
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    // Сброс справочника, например после восстановления БД из снимка
+    public void invalidateCache() {
+        genresById = null;
+    }
+
+    // Загрузка справочника жанров из БД при первом обращении
+    private Genre[] getCachedGenres() {
+        Genre[] cached = genresById;
+        if (cached == null) {
+            List<Genre> allGenres = genreStorage.getAllGenres();
+            cached = new Genre[allGenres.stream().mapToInt(Genre::getId).max().orElse(-1) + 1];
+            for (Genre genre : allGenres) {
+                cached[genre.getId()] = genre;
+            }
+            genresById = cached;
+        }
+        return cached;
+    }
+
+    private static Genre copy(Genre genre) {
+        return new Genre(genre.getId(), genre.getName());
+    }
 }
@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.validation.ModelValidator;
+import ru.yandex.practicum.filmorate.validation.ValidationResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Пакетный импорт фильмов, пользователей, дружбы и лайков из NDJSON (один JSON-объект на строку).
+ * Вход читается потоково, строки проверяются и записываются в БД пакетами по chunkSize строк,
+ * каждый пакет - в своей транзакции. Если пакет не записался, его строки записываются по одной,
+ * чтобы вернуть ошибку только для некорректных строк; ошибка записи не прерывает чтение входа.
+ */
+
+@Slf4j
+@Service
+public class ImportService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final DirectorService directorService;
+    private final ObjectMapper objectMapper;
+    private final ResourceVersions resourceVersions;
+    private final int chunkSize;
+
+    public ImportService(FilmStorage filmStorage, UserStorage userStorage, MpaService mpaService,
+                         GenreService genreService, DirectorService directorService, ObjectMapper objectMapper,
+                         ResourceVersions resourceVersions,
+                         @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.directorService = directorService;
+        this.objectMapper = objectMapper;
+        this.resourceVersions = resourceVersions;
+        this.chunkSize = chunkSize;
+    }
+
+    // Импорт фильмов
+    public ImportResult importFilms(InputStream input) {
+        ImportResult result = importRows(input, Film.class, this::validateFilm, filmStorage::addFilms);
+        resourceVersions.bump(Resource.FILMS);
+        return result;
+    }
+
+    // Импорт пользователей
+    public ImportResult importUsers(InputStream input) {
+        return importRows(input, User.class, this::validateUser, userStorage::addUsers);
+    }
+
+    // Импорт дружбы: {"userId": 1, "friendId": 2}
+    public ImportResult importFriends(InputStream input) {
+        return importRows(input, FriendshipRow.class, this::validateFriendship,
+                rows -> userStorage.addFriends(toPairs(rows, row -> new int[]{row.userId(), row.friendId()})));
+    }
+
+    // Импорт лайков: {"filmId": 1, "userId": 2}
+    public ImportResult importLikes(InputStream input) {
+        ImportResult result = importRows(input, LikeRow.class, this::validateLike,
+                rows -> filmStorage.addLikes(toPairs(rows, row -> new int[]{row.filmId(), row.userId()})));
+        resourceVersions.bump(Resource.FILMS);
+        return result;
+    }
+
+    private <T> ImportResult importRows(InputStream input, Class<T> type, Consumer<T> validator,
+                                        Consumer<List<T>> writer) {
+        ImportResult result = new ImportResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    T row = objectMapper.readValue(line, type);
+                    validator.accept(row);
+                    chunk.add(row);
+                    chunkLines.add(lineNumber);
+                } catch (JsonProcessingException e) {
+                    result.addError(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    result.addError(lineNumber, e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, chunkLines, writer, result);
+                }
+            }
+            writeChunk(chunk, chunkLines, writer, result);
+        } catch (IOException e) {
+            throw new InternalServerException("Ошибка чтения данных импорта: " + e.getMessage());
+        }
+        log.info("Импорт {}: записано {}, отклонено {}", type.getSimpleName(), result.getImported(),
+                result.getFailed());
+        return result;
+    }
+
+    private <T> void writeChunk(List<T> chunk, List<Long> chunkLines, Consumer<List<T>> writer,
+                                ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(chunk);
+            result.addImported(chunk.size());
+        } catch (RuntimeException e) {
+            // пакет отклонён целиком: записываем строки по одной, чтобы найти ошибочные
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    writer.accept(List.of(chunk.get(i)));
+                    result.addImported(1);
+                } catch (RuntimeException rowError) {
+                    result.addError(chunkLines.get(i), rowErrorMessage(chunkLines.get(i), rowError));
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private void validateFilm(Film film) {
+        check(ModelValidator.validateFilm(film));
+        if (film.getMpa() == null) {
+            throw new ValidationException("Рейтинг MPA должен быть указан");
+        }
+        mpaService.getMpaById(film.getMpa().getId());
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreService.getGenreById(genre.getId());
+            }
+        }
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                directorService.getDirectorById(director.getId());
+            }
+        }
+    }
+
+    private void validateUser(User user) {
+        check(ModelValidator.validateUser(user));
+        if (user.getName() == null || user.getName().trim().isEmpty()) { // Если имя пустое - используем логин
+            user.setName(user.getLogin());
+        }
+    }
+
+    private void validateFriendship(FriendshipRow row) {
+        if (row.userId() == null || row.friendId() == null) {
+            throw new ValidationException("Должны быть указаны userId и friendId");
+        }
+        if (row.userId().equals(row.friendId())) {
+            throw new ValidationException("Пользователь не может добавить в друзья сам себя");
+        }
+    }
+
+    private void validateLike(LikeRow row) {
+        if (row.filmId() == null || row.userId() == null) {
+            throw new ValidationException("Должны быть указаны filmId и userId");
+        }
+    }
+
+    private static void check(ValidationResult validationResult) {
+        if (!validationResult.isValid()) {
+            throw new ValidationException(validationResult.getCurrentError());
+        }
+    }
+
+    private static <T> List<int[]> toPairs(List<T> rows, Function<T, int[]> mapper) {
+        return rows.stream().map(mapper).toList();
+    }
+
+    // Текст ошибки строки: для ошибок БД - первая строка сообщения драйвера; хранилища в памяти отклоняют
+    // ссылки на несуществующие записи через NotFoundException и ValidationException, как внешние ключи в БД
+    private static String rowErrorMessage(long line, RuntimeException e) {
+        if (e instanceof DataAccessException dataAccessException) {
+            return firstLine(dataAccessException.getMostSpecificCause().getMessage());
+        }
+        if (e instanceof NotFoundException || e instanceof ValidationException) {
+            return e.getMessage();
+        }
+        log.error("Ошибка записи строки {} импорта", line, e);
+        return "Ошибка записи: " + e.getMessage();
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "Ошибка записи в БД";
+        }
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    // Строка импорта дружбы
+    public record FriendshipRow(Integer userId, Integer friendId) {
+    }
+
+    // Строка импорта лайка
+    public record LikeRow(Integer filmId, Integer userId) {
+    }
+}
@@ -2,24 +2,67 @@ package ru.yandex.practicum.filmorate.service;
 
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class MpaService {
     private final MpaStorage mpaStorage;
+    private final CacheStats cacheStats = new CacheStats("mpa");
+    // Рейтинги - статичный справочник, загружаются один раз в массив с индексом по ID
+    private volatile Mpa[] mpaById;
 
     public MpaService(MpaStorage mpaStorage) {
         this.mpaStorage = mpaStorage;
     }
 
+    // Получение рейтинга по ID (копия из справочника, чтобы изменения объекта не попадали в справочник)
     public Mpa getMpaById(int id) {
-        return mpaStorage.getMpaById(id);
+        Mpa[] cached = getCachedMpa();
+        if (id >= 0 && id < cached.length && cached[id] != null) {
+            cacheStats.recordHit();
+            return copy(cached[id]);
+        }
+        cacheStats.recordMiss();
+        return mpaStorage.getMpaById(id); // выбросит NotFoundException для несуществующего ID
     }
 
     public List<Mpa> getAllMpa() {
-        return mpaStorage.getAllMpa();
+        return Arrays.stream(getCachedMpa())
+                .filter(Objects::nonNull)
+                .map(MpaService::copy)
+                .toList();
+    }
+
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    // Сброс справочника, например после восстановления БД из снимка
+    public void invalidateCache() {
+        mpaById = null;
+    }
+
+    // Загрузка справочника рейтингов из БД при первом обращении
+    private Mpa[] getCachedMpa() {
+        Mpa[] cached = mpaById;
+        if (cached == null) {
+            List<Mpa> allMpa = mpaStorage.getAllMpa();
+            cached = new Mpa[allMpa.stream().mapToInt(Mpa::getId).max().orElse(-1) + 1];
+            for (Mpa mpa : allMpa) {
+                cached[mpa.getId()] = mpa;
+            }
+            mpaById = cached;
+        }
+        return cached;
+    }
+
+    private static Mpa copy(Mpa mpa) {
+        return new Mpa(mpa.getId(), mpa.getName());
     }
 }
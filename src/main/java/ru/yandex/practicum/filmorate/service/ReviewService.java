@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.service;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
 import ru.yandex.practicum.filmorate.model.EventTypes;
 import ru.yandex.practicum.filmorate.model.Operations;
 import ru.yandex.practicum.filmorate.model.Review;
@@ -13,7 +15,6 @@ import ru.yandex.practicum.filmorate.validation.ModelValidator;
 import ru.yandex.practicum.filmorate.validation.ValidationResult;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -22,12 +23,15 @@ public class ReviewService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final EventFeedService eventFeedService;
+    private final ResourceVersions resourceVersions;
 
-    public ReviewService(ReviewStorage reviewStorage, FilmStorage filmStorage, UserStorage userStorage, EventFeedService eventFeedService) {
+    public ReviewService(ReviewStorage reviewStorage, FilmStorage filmStorage, UserStorage userStorage, EventFeedService eventFeedService,
+                         ResourceVersions resourceVersions) {
         this.reviewStorage = reviewStorage;
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.eventFeedService = eventFeedService;
+        this.resourceVersions = resourceVersions;
     }
 
     // Добавление отзыва
@@ -40,6 +44,7 @@ public class ReviewService {
         userStorage.getUserById(review.getUserId());
 
         Review review1 = reviewStorage.addReview(review);
+        resourceVersions.bump(Resource.REVIEWS);
         eventFeedService.createEventFeed(review1.getUserId(), EventTypes.REVIEW, Operations.ADD, review1.getReviewId());
         return review1;                                                                         // Запись события в БД
     }
@@ -51,6 +56,7 @@ public class ReviewService {
             throw new ValidationException(validationResult.getCurrentError());
         }
         Review review = reviewStorage.updateReview(newReview);
+        resourceVersions.bump(Resource.REVIEWS);
 
         eventFeedService.createEventFeed(reviewStorage.getReviewById(review.getReviewId()).getUserId(), EventTypes.REVIEW, Operations.UPDATE,
                 review.getReviewId()); // Запись события в БД
@@ -66,41 +72,39 @@ public class ReviewService {
     public void deleteReviewById(int id) {
         Review review = reviewStorage.getReviewById(id);
         reviewStorage.deleteReviewById(id);
+        resourceVersions.bump(Resource.REVIEWS);
         eventFeedService.createEventFeed(review.getUserId(), EventTypes.REVIEW, Operations.REMOVE, review.getReviewId());
     }                                                                                            // Запись события в БД
 
-    // Получение отзывов
+    // Получение самых полезных отзывов к фильму или ко всем фильмам
     public List<Review> getReviews(Integer filmId, Integer count) {
-        if (filmId == null) {
-            return reviewStorage.getAllReviews().stream()
-                    .sorted((x1, x2) -> x2.getUseful() - x1.getUseful())
-                    .collect(Collectors.toList());
-        } else {
-            return reviewStorage.getAllReviews().stream()
-                    .filter(x -> x.getFilmId() == filmId)
-                    .sorted((x1, x2) -> x2.getUseful() - x1.getUseful())
-                    .limit(count)
-                    .collect(Collectors.toList());
+        if (count == null || count <= 0) {
+            throw new ValidationException("Количество отзывов должно быть положительным");
         }
+        return reviewStorage.getTopReviews(filmId, count);
     }
 
     // Добавление лайка к отзыву
     public void addLike(int id, int userId) {
         reviewStorage.addLike(id, userId);
+        resourceVersions.bump(Resource.REVIEWS);
     }
 
     // Добавление дизлайка к отзыву
     public void addDislike(int id, int userId) {
         reviewStorage.addDislike(id, userId);
+        resourceVersions.bump(Resource.REVIEWS);
     }
 
     // Удаление лайка к отзыву
     public void removeLike(int id, int userId) {
         reviewStorage.removeLike(id, userId);
+        resourceVersions.bump(Resource.REVIEWS);
     }
 
     // Удаление дизлайка к отзыву
     public void removeDislike(int id, int userId) {
         reviewStorage.removeDislike(id, userId);
+        resourceVersions.bump(Resource.REVIEWS);
     }
 }
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.EventFeedWriter;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.SnapshotDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotFormatException;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotReader;
+import ru.yandex.practicum.filmorate.snapshot.SnapshotWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Снимок всех данных приложения: выгрузка в бинарный формат и восстановление из него.
+ * После восстановления пересобираются индексы в памяти и сбрасываются кэши.
+ */
+
+@Slf4j
+@Service
+@Profile("!in-memory & !journal")
+public class SnapshotService {
+    private final SnapshotDbStorage snapshotDbStorage;
+    private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+    private final EventFeedWriter eventFeedWriter;
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final DirectorService directorService;
+    private final RecentEventsCache recentEventsCache;
+    private final ResourceVersions resourceVersions;
+
+    public SnapshotService(SnapshotDbStorage snapshotDbStorage, FilmDbStorage filmDbStorage,
+                           UserDbStorage userDbStorage, EventFeedWriter eventFeedWriter, MpaService mpaService, GenreService genreService,
+                           DirectorService directorService, RecentEventsCache recentEventsCache,
+                           ResourceVersions resourceVersions) {
+        this.snapshotDbStorage = snapshotDbStorage;
+        this.filmDbStorage = filmDbStorage;
+        this.userDbStorage = userDbStorage;
+        this.eventFeedWriter = eventFeedWriter;
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.directorService = directorService;
+        this.recentEventsCache = recentEventsCache;
+        this.resourceVersions = resourceVersions;
+    }
+
+    // Выгрузка снимка в поток; количество строк по таблицам
+    public Map<String, Long> exportSnapshot(OutputStream output) {
+        eventFeedWriter.flush(); // события из очереди попадают в снимок
+        filmDbStorage.flushLikes();
+        try (SnapshotWriter writer = new SnapshotWriter(output)) {
+            Map<String, Long> rowCounts = snapshotDbStorage.exportTables(writer);
+            writer.finish();
+            log.info("Снимок выгружен: {}", rowCounts);
+            return rowCounts;
+        } catch (IOException e) {
+            throw new InternalServerException("Ошибка записи снимка: " + e.getMessage());
+        }
+    }
+
+    // Замена всех данных содержимым снимка; количество восстановленных строк по таблицам
+    public Map<String, Long> restoreSnapshot(InputStream input) {
+        eventFeedWriter.flush(); // события из очереди не должны записаться поверх восстановленных данных
+        filmDbStorage.flushLikes();
+        Map<String, Long> rowCounts;
+        try (SnapshotReader reader = new SnapshotReader(input)) {
+            rowCounts = snapshotDbStorage.restoreTables(reader);
+        } catch (SnapshotFormatException e) {
+            log.error("Некорректный снимок: {}", e.getMessage());
+            throw new ValidationException("Некорректный снимок: " + e.getMessage());
+        } catch (IOException e) {
+            throw new InternalServerException("Ошибка чтения снимка: " + e.getMessage());
+        }
+
+        mpaService.invalidateCache();
+        genreService.invalidateCache();
+        directorService.invalidateCache();
+        recentEventsCache.invalidateAll();
+        filmDbStorage.rebuildIndexes();
+        userDbStorage.rebuildFriendsIndex();
+        resourceVersions.bumpAll();
+        log.info("Снимок восстановлен: {}", rowCounts);
+        return rowCounts;
+    }
+}
@@ -3,13 +3,18 @@ package ru.yandex.practicum.filmorate.service;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.validation.ModelValidator;
 import ru.yandex.practicum.filmorate.validation.ValidationResult;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
@@ -21,11 +26,16 @@ public class UserService {
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
     private final EventFeedService eventFeedService;
+    private final LikesIndex likesIndex;
+    private final ResourceVersions resourceVersions;
 
-    public UserService(UserStorage userStorage, FilmStorage filmStorage, EventFeedService eventFeedService) {
+    public UserService(UserStorage userStorage, FilmStorage filmStorage, EventFeedService eventFeedService,
+                       LikesIndex likesIndex, ResourceVersions resourceVersions) {
         this.userStorage = userStorage;
         this.filmStorage = filmStorage;
         this.eventFeedService = eventFeedService;
+        this.likesIndex = likesIndex;
+        this.resourceVersions = resourceVersions;
     }
 
     public User addUser(User user) {
@@ -70,15 +80,30 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    // Получение страницы пользователей (keyset-пагинация по ID)
+    public List<User> getUsers(Integer afterId, int limit) {
+        ValidationResult validationResult = ModelValidator.validatePageSize(limit);
+        if (!validationResult.isValid()) {
+            throw new ValidationException(validationResult.getCurrentError());
+        }
+        return userStorage.getUsers(afterId == null ? 0 : afterId, limit);
+    }
+
+    // Передача всех пользователей по одному
+    public void streamAllUsers(Consumer<User> consumer) {
+        userStorage.streamAllUsers(consumer);
+    }
+
     public User getUserById(int id) {
         return userStorage.getUserById(id);
     }
 
+    // Добавление в друзья; если друг уже добавил пользователя, дружба становится взаимной (confirmed)
     public void addFriend(int userId, int friendId) {
-        User user = userStorage.getUserById(userId);
-        User friend = userStorage.getUserById(friendId);
+        userStorage.getUserById(userId); // для проверки существования пользователей
+        userStorage.getUserById(friendId);
         String status = STATUS_UNCONFIRMED;
-        if (friend.getFriends().contains(userId)) {
+        if (userStorage.isFriend(friendId, userId)) {
             status = STATUS_CONFIRMED;
             userStorage.updateFriendStatus(friendId, userId, status);
 
@@ -87,11 +112,14 @@ public class UserService {
         eventFeedService.createEventFeed(userId, EventTypes.FRIEND, Operations.ADD, friendId); // Запись события в БД
     }
 
+    // Удаление из друзей; встречная дружба, если она была, снова становится неподтверждённой.
+    // Удаление и смена статуса выполняются в одной транзакции
+    @Transactional
     public void removeFriend(int userId, int friendId) {
-        User user = userStorage.getUserById(userId);
-        User friend = userStorage.getUserById(friendId);
+        userStorage.getUserById(userId); // для проверки существования пользователей
+        userStorage.getUserById(friendId);
         userStorage.removeFriend(userId, friendId);
-        if (friend.getFriends().contains(userId)) {
+        if (userStorage.isFriend(friendId, userId)) {
             userStorage.updateFriendStatus(friendId, userId, STATUS_UNCONFIRMED);
         }
         eventFeedService.createEventFeed(userId, EventTypes.FRIEND, Operations.REMOVE, friendId); // Запись события в БД
@@ -102,39 +130,24 @@ public class UserService {
         return userStorage.getFriends(userId);
     }
 
+    // Общие друзья двух пользователей по возрастанию ID
     public List<User> getCommonFriends(int userId, int friendId) {
-        List<User> user1 = getFriends(userId);
-        List<User> user2 = getFriends(friendId);
-        return user1.stream()
-                .filter(user2::contains)
-                .collect(Collectors.toList());
+        getUserById(userId); // для проверки существования пользователей
+        getUserById(friendId);
+        return userStorage.getCommonFriends(userId, friendId);
     }
 
+    // Удаление пользователя; его лайки удаляются вместе с ним, поэтому меняется и представление фильмов
     public User deleteUserById(int userId) {
-        return userStorage.deleteUserById(userId);
+        eventFeedService.discardEvents(userId); // иначе события из очереди нарушат внешний ключ после удаления
+        User user = userStorage.deleteUserById(userId);
+        resourceVersions.bump(Resource.FILMS);
+        return user;
     }
 
-    public List<Film> getRecommendations(int userId) { //Рекомендации фильмов для пользователя
-        Map<Integer, List<Film>> likedFilms = new HashMap<>();
-        int maxOverlap = 0;
-        List<Film> recommendations = new ArrayList<>();
-        for (User u : userStorage.getAllUsers()) { //Получаем лайки всех пользователей
-            likedFilms.put(u.getId(), new ArrayList<>());
-            for (Film f : filmStorage.getAllFilms()) {
-                if (f.getLikes().contains(u.getId())) {
-                    likedFilms.get(u.getId()).add(f);
-                }
-            }
-        }
-        for (Integer u : likedFilms.keySet()) { //Ищем максимальное пересечение по лайкам
-            if (u != userId) {
-                int overlap = (int) likedFilms.get(u).stream().filter(x -> likedFilms.get(userId).contains(x)).count();
-                if (overlap > maxOverlap) {
-                    maxOverlap = overlap;
-                    recommendations = likedFilms.get(u);
-                }
-            }
-        }
-        return recommendations.stream().filter(x -> !likedFilms.get(userId).contains(x)).collect(Collectors.toList());
+    // Рекомендации фильмов: фильмы пользователя с максимальным пересечением лайков, которые ещё не лайкнуты
+    public List<Film> getRecommendations(int userId) {
+        int[] filmIds = likesIndex.recommendFilmIds(userId);
+        return filmStorage.getFilmsByIds(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Константы и общие преобразования бинарного формата снимка.
+ *
+ * <pre>
+ * снимок  := MAGIC version:varint (TABLE таблица)* END
+ * таблица := имя:строка колонок:varint (имя:строка тип:байт)* блок* 0:varint
+ * блок    := строк:varint (колонка)*       -- значения блока хранятся по колонкам
+ * колонка := nulls:varint [маска null, если 0 &lt; nulls &lt; строк] значения не-null строк
+ * </pre>
+ * Числа, даты и время пишутся zigzag-varint дельтой от предыдущего значения колонки в блоке,
+ * строки - номером в словаре колонки (код &gt; 0) или кодом 0 и самой строкой UTF-8,
+ * которая затем добавляется в словарь.
+ */
+
+final class SnapshotFormat {
+    static final byte[] MAGIC = {'F', 'S', 'N', 'P'};
+    static final int VERSION = 1;
+    static final byte TABLE = 1;
+    static final byte END = 0;
+    // Строк в блоке: ограничивает память при записи и чтении
+    static final int BLOCK_SIZE = 1024;
+    // Словарь колонки ограничен, длинные строки (описания, тексты отзывов) в него не попадают
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    static final int MAX_DICTIONARY_STRING_LENGTH = 64;
+    static final int MAX_STRING_BYTES = 16 << 20;
+
+    private SnapshotFormat() {
+    }
+
+    static boolean isDictionaryCandidate(int dictionarySize, String value) {
+        return dictionarySize < MAX_DICTIONARY_SIZE && value.length() <= MAX_DICTIONARY_STRING_LENGTH;
+    }
+
+    // Числовое представление значений INT, DATE и TIMESTAMP
+    static long toLong(SnapshotTable.ColumnType type, Object value) {
+        return switch (type) {
+            case INT -> ((Number) value).longValue();
+            case DATE -> ((LocalDate) value).toEpochDay();
+            case TIMESTAMP -> {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                yield dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+            }
+            default -> throw new IllegalArgumentException("Тип " + type + " не числовой");
+        };
+    }
+
+    static Object fromLong(SnapshotTable.ColumnType type, long value) {
+        return switch (type) {
+            case INT -> Math.toIntExact(value);
+            case DATE -> LocalDate.ofEpochDay(value);
+            case TIMESTAMP -> LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1_000_000),
+                    (int) Math.floorMod(value, 1_000_000) * 1_000, ZoneOffset.UTC);
+            default -> throw new IllegalArgumentException("Тип " + type + " не числовой");
+        };
+    }
+}
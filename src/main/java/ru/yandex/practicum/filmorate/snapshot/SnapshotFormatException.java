@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import java.io.IOException;
+
+/**
+ * Данные не являются корректным снимком
+ */
+
+public class SnapshotFormatException extends IOException {
+    public SnapshotFormatException(String message) {
+        super(message);
+    }
+}
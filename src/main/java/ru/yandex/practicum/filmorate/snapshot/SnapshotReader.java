@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковое чтение снимка, записанного SnapshotWriter: таблица за таблицей, блоками до BLOCK_SIZE строк.
+ * Некорректные или обрезанные данные приводят к SnapshotFormatException.
+ */
+
+public class SnapshotReader implements Closeable {
+    private static final SnapshotTable.ColumnType[] TYPES = SnapshotTable.ColumnType.values();
+
+    private final DataInputStream in;
+    private SnapshotTable table;
+    private List<List<String>> dictionaries;
+
+    public SnapshotReader(InputStream input) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        readFully(magic);
+        if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) {
+            throw new SnapshotFormatException("Данные не являются снимком");
+        }
+        long version = readVarLong();
+        if (version != SnapshotFormat.VERSION) {
+            throw new SnapshotFormatException("Неподдерживаемая версия снимка: " + version);
+        }
+    }
+
+    // Описание следующей таблицы или null, если снимок закончился
+    public SnapshotTable nextTable() throws IOException {
+        if (table != null) {
+            throw new IllegalStateException("Таблица " + table.name() + " прочитана не полностью");
+        }
+        byte marker = readByte();
+        if (marker == SnapshotFormat.END) {
+            return null;
+        }
+        if (marker != SnapshotFormat.TABLE) {
+            throw new SnapshotFormatException("Некорректная отметка таблицы: " + marker);
+        }
+        String name = readString();
+        int columnCount = readCount(Short.MAX_VALUE);
+        List<SnapshotTable.Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String columnName = readString();
+            int type = readByte();
+            if (type < 0 || type >= TYPES.length) {
+                throw new SnapshotFormatException("Неизвестный тип колонки " + columnName + ": " + type);
+            }
+            columns.add(new SnapshotTable.Column(columnName, TYPES[type]));
+        }
+        table = new SnapshotTable(name, columns);
+        dictionaries = new ArrayList<>();
+        columns.forEach(column -> dictionaries.add(new ArrayList<>()));
+        return table;
+    }
+
+    // Следующий блок строк текущей таблицы; пустой список - таблица закончилась
+    public List<Object[]> readBlock() throws IOException {
+        if (table == null) {
+            throw new IllegalStateException("Таблица не начата");
+        }
+        int rowCount = readCount(SnapshotFormat.BLOCK_SIZE);
+        if (rowCount == 0) {
+            table = null;
+            dictionaries = null;
+            return List.of();
+        }
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new Object[table.columns().size()]);
+        }
+        for (int column = 0; column < table.columns().size(); column++) {
+            readColumn(rows, column);
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readColumn(List<Object[]> rows, int column) throws IOException {
+        int nullCount = readCount(rows.size());
+        if (nullCount == rows.size()) {
+            return;
+        }
+        boolean[] nulls = nullCount > 0 ? readBits(rows.size()) : new boolean[rows.size()];
+        List<Object[]> present = new ArrayList<>(rows.size() - nullCount);
+        for (int row = 0; row < rows.size(); row++) {
+            if (!nulls[row]) {
+                present.add(rows.get(row));
+            }
+        }
+        if (present.size() != rows.size() - nullCount) {
+            throw new SnapshotFormatException("Маска null не совпадает с количеством null");
+        }
+
+        SnapshotTable.ColumnType type = table.columns().get(column).type();
+        switch (type) {
+            case STRING -> {
+                for (Object[] row : present) {
+                    row[column] = readDictionaryString(dictionaries.get(column));
+                }
+            }
+            case BOOLEAN -> {
+                boolean[] bits = readBits(present.size());
+                for (int i = 0; i < bits.length; i++) {
+                    present.get(i)[column] = bits[i];
+                }
+            }
+            default -> {
+                long previous = 0;
+                for (Object[] row : present) {
+                    previous += readSignedVarLong();
+                    try {
+                        row[column] = SnapshotFormat.fromLong(type, previous);
+                    } catch (ArithmeticException | DateTimeException e) {
+                        throw new SnapshotFormatException("Некорректное значение колонки "
+                                + table.columns().get(column).name() + ": " + previous);
+                    }
+                }
+            }
+        }
+    }
+
+    private String readDictionaryString(List<String> dictionary) throws IOException {
+        long code = readVarLong();
+        if (code > 0) {
+            if (code > dictionary.size()) {
+                throw new SnapshotFormatException("Некорректный код строки: " + code);
+            }
+            return dictionary.get((int) code - 1);
+        }
+        String value = readString();
+        if (SnapshotFormat.isDictionaryCandidate(dictionary.size(), value)) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[readCount(SnapshotFormat.MAX_STRING_BYTES)];
+        readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean[] readBits(int count) throws IOException {
+        boolean[] bits = new boolean[count];
+        for (int from = 0; from < count; from += 8) {
+            int packed = readByte();
+            for (int bit = 0; bit < 8 && from + bit < count; bit++) {
+                bits[from + bit] = (packed & (1 << bit)) != 0;
+            }
+        }
+        return bits;
+    }
+
+    // Неотрицательное количество не больше max
+    private int readCount(int max) throws IOException {
+        long count = readVarLong();
+        if (count < 0 || count > max) {
+            throw new SnapshotFormatException("Некорректная длина: " + count);
+        }
+        return (int) count;
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SnapshotFormatException("Слишком длинное число varint");
+    }
+
+    private byte readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new SnapshotFormatException("Снимок обрезан");
+        }
+        return (byte) b;
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        if (in.readNBytes(bytes, 0, bytes.length) != bytes.length) {
+            throw new SnapshotFormatException("Снимок обрезан");
+        }
+    }
+}
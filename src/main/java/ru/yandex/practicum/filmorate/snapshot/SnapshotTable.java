@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import java.util.List;
+
+/**
+ * Описание таблицы в снимке: имя и колонки в порядке записи значений
+ */
+
+public record SnapshotTable(String name, List<Column> columns) {
+    public SnapshotTable {
+        columns = List.copyOf(columns);
+    }
+
+    public record Column(String name, ColumnType type) {
+    }
+
+    // Тип колонки определяет способ кодирования значений
+    public enum ColumnType {
+        INT,       // Integer, varint-дельта от предыдущего значения блока
+        STRING,    // String, словарь колонки или строка UTF-8
+        DATE,      // LocalDate, varint-дельта номера дня
+        TIMESTAMP, // LocalDateTime, varint-дельта микросекунд
+        BOOLEAN    // Boolean, битовая маска
+    }
+}
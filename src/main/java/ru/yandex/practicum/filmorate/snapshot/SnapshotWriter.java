@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковая запись снимка (формат описан в SnapshotFormat): строки таблицы копятся в блок
+ * и записываются по колонкам. Снимок считается полным только после вызова finish().
+ */
+
+public class SnapshotWriter implements Closeable {
+    private final DataOutputStream out;
+    private final List<Object[]> block = new ArrayList<>(SnapshotFormat.BLOCK_SIZE);
+    private SnapshotTable table;
+    private List<Map<String, Integer>> dictionaries;
+
+    public SnapshotWriter(OutputStream output) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        out.write(SnapshotFormat.MAGIC);
+        writeVarLong(SnapshotFormat.VERSION);
+    }
+
+    // Начало таблицы: записывается её описание
+    public void beginTable(SnapshotTable table) throws IOException {
+        if (this.table != null) {
+            throw new IllegalStateException("Таблица " + this.table.name() + " не завершена");
+        }
+        out.writeByte(SnapshotFormat.TABLE);
+        writeString(table.name());
+        writeVarLong(table.columns().size());
+        for (SnapshotTable.Column column : table.columns()) {
+            writeString(column.name());
+            out.writeByte(column.type().ordinal());
+        }
+        this.table = table;
+        this.dictionaries = new ArrayList<>();
+        table.columns().forEach(column -> dictionaries.add(new HashMap<>()));
+    }
+
+    // Добавление строки: значения в порядке колонок таблицы
+    public void writeRow(Object... values) throws IOException {
+        if (table == null) {
+            throw new IllegalStateException("Таблица не начата");
+        }
+        if (values.length != table.columns().size()) {
+            throw new IllegalArgumentException("Ожидалось значений: " + table.columns().size());
+        }
+        block.add(values);
+        if (block.size() >= SnapshotFormat.BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    public void endTable() throws IOException {
+        flushBlock();
+        writeVarLong(0);
+        table = null;
+        dictionaries = null;
+    }
+
+    // Завершение снимка; без этой отметки снимок не будет прочитан
+    public void finish() throws IOException {
+        if (table != null) {
+            throw new IllegalStateException("Таблица " + table.name() + " не завершена");
+        }
+        out.writeByte(SnapshotFormat.END);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (block.isEmpty()) {
+            return;
+        }
+        writeVarLong(block.size());
+        for (int column = 0; column < table.columns().size(); column++) {
+            writeColumn(column);
+        }
+        block.clear();
+    }
+
+    private void writeColumn(int column) throws IOException {
+        boolean[] nulls = new boolean[block.size()];
+        List<Object> values = new ArrayList<>(block.size());
+        for (int row = 0; row < block.size(); row++) {
+            Object value = block.get(row)[column];
+            nulls[row] = value == null;
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        writeVarLong(block.size() - values.size());
+        if (values.isEmpty()) {
+            return;
+        }
+        if (values.size() < block.size()) {
+            writeBits(nulls);
+        }
+
+        SnapshotTable.ColumnType type = table.columns().get(column).type();
+        switch (type) {
+            case STRING -> {
+                for (Object value : values) {
+                    writeDictionaryString(dictionaries.get(column), (String) value);
+                }
+            }
+            case BOOLEAN -> {
+                boolean[] bits = new boolean[values.size()];
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = (Boolean) values.get(i);
+                }
+                writeBits(bits);
+            }
+            default -> {
+                long previous = 0;
+                for (Object value : values) {
+                    long current = SnapshotFormat.toLong(type, value);
+                    writeSignedVarLong(current - previous);
+                    previous = current;
+                }
+            }
+        }
+    }
+
+    private void writeDictionaryString(Map<String, Integer> dictionary, String value) throws IOException {
+        Integer code = dictionary.get(value);
+        if (code != null) {
+            writeVarLong(code + 1L);
+            return;
+        }
+        writeVarLong(0);
+        writeString(value);
+        if (SnapshotFormat.isDictionaryCandidate(dictionary.size(), value)) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeBits(boolean[] bits) throws IOException {
+        for (int from = 0; from < bits.length; from += 8) {
+            int packed = 0;
+            for (int bit = 0; bit < 8 && from + bit < bits.length; bit++) {
+                if (bits[from + bit]) {
+                    packed |= 1 << bit;
+                }
+            }
+            out.writeByte(packed);
+        }
+    }
+
+    private void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
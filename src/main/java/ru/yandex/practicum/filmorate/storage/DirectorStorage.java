@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Director;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface DirectorStorage {
@@ -18,5 +20,7 @@ public interface DirectorStorage {
 
     Set<Director> getDirectorsFromFilm(int filmId);
 
+    Map<Integer, Set<Director>> getDirectorsFromFilms(Collection<Integer> filmIds);
+
 
 }
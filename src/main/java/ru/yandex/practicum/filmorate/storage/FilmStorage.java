@@ -3,18 +3,29 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film newFilm);
 
     List<Film> getAllFilms();
 
+    List<Film> getFilms(int afterId, int limit);
+
+    void streamAllFilms(Consumer<Film> consumer);
+
     Film getFilmById(int id);
 
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
     void addLike(int filmId, int userId);
 
+    int addLikes(List<int[]> likes);
+
     void removeLike(int filmId, int userId);
 
     List<Film> sortingFilms(int directorId, String sortBy);
@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface GenreStorage {
@@ -11,4 +13,6 @@ public interface GenreStorage {
     Genre getGenreById(int id);
 
     Set<Genre> getGenresFromFilm(int filmId);
+
+    Map<Integer, Set<Genre>> getGenresFromFilms(Collection<Integer> filmIds);
 }
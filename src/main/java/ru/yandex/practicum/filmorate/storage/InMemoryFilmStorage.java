@@ -1,87 +1,473 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.IntArrays;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * Хранилище фильмов в памяти (профили in-memory и journal).
+ * Фильмы лежат в упорядоченной по ID конкурентной карте, изменения одного фильма и его лайков выполняются
+ * под блокировкой этого фильма. Лайки хранятся в LikesIndex, рейтинг по жанрам и годам - в PopularFilmsIndex,
+ * поиск - в FilmSearchIndex; фильмы режиссера - в собственном индексе. Справочники (рейтинги, жанры, режиссеры)
+ * берутся из кэшей сервисов. В профиле journal изменения записываются в журнал (MutationLog) под той же
+ * блокировкой и восстанавливаются из него при старте.
+ */
 
 @Slf4j
 @Component
-public class InMemoryFilmStorage implements FilmStorage {
-    private Map<Integer, Film> films = new HashMap<>();
-    private int filmId = 0;
+@Profile({"in-memory", "journal"})
+public class InMemoryFilmStorage implements FilmStorage, JournaledStorage {
+    private static final int LOCK_STRIPES = 64;
 
+    private final NavigableMap<Integer, FilmRecord> films = new ConcurrentSkipListMap<>();
+    private final Map<Integer, int[]> filmsByDirector = new ConcurrentHashMap<>();
+    private final AtomicInteger lastFilmId = new AtomicInteger();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final DirectorService directorService;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikesIndex likesIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final MutationLog mutationLog;
+
+    public InMemoryFilmStorage(MpaService mpaService, GenreService genreService, DirectorService directorService,
+                               PopularFilmsIndex popularFilmsIndex, LikesIndex likesIndex,
+                               FilmSearchIndex filmSearchIndex, Optional<MutationLog> mutationLog) {
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.directorService = directorService;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.likesIndex = likesIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.mutationLog = mutationLog.orElse(MutationLog.NONE);
+    }
+
+    // Загрузка имён режиссеров из БД в поисковый индекс при старте, фильмов в памяти ещё нет
+    @PostConstruct
+    public void loadDirectorNames() {
+        Map<Integer, String> directorNames = new HashMap<>();
+        directorService.getAllDirectors().forEach(director -> directorNames.put(director.getId(), director.getName()));
+        filmSearchIndex.rebuild(Map.of(), directorNames, Map.of());
+        log.info("Фильмы хранятся в памяти, режиссеров в поисковом индексе: {}", directorNames.size());
+    }
+
+    // Добавление фильма; несуществующие рейтинг, жанр или режиссер - ошибка валидации, как нарушение
+    // внешнего ключа в БД
     @Override
     public Film addFilm(Film film) {
-        film.setId(getNextFilmId()); // установили id фильма
-        films.put(film.getId(), film);
-
+        FilmRecord record = toNewRecord(film);
+        int id = lastFilmId.incrementAndGet();
+        film.setId(id);
+        mutationLog.awaitDurable(locks.withLock(id, () -> {
+            putRecord(id, null, record);
+            return mutationLog.append(toMutation(id, record));
+        }));
         return film;
     }
 
+    // Пакетное добавление: ссылки всех фильмов проверяются до добавления первого,
+    // сохранения журнала на диск пакет ждёт один раз
     @Override
-    public Film updateFilm(Film newFilm) {
-        return films.put(newFilm.getId(), newFilm);
+    public List<Film> addFilms(List<Film> films) {
+        List<FilmRecord> records = films.stream().map(this::toNewRecord).toList();
+        long position = 0;
+        for (int i = 0; i < films.size(); i++) {
+            FilmRecord record = records.get(i);
+            int id = lastFilmId.incrementAndGet();
+            films.get(i).setId(id);
+            position = locks.withLock(id, () -> {
+                putRecord(id, null, record);
+                return mutationLog.append(toMutation(id, record));
+            });
+        }
+        mutationLog.awaitDurable(position);
+        return films;
+    }
+
+    // Обновление фильма; жанры и режиссеры меняются, только если переданы
+    @Override
+    public Film updateFilm(Film film) {
+        int id = film.getId();
+        mutationLog.awaitDurable(locks.withLock(id, () -> {
+            FilmRecord old = getRecord(id);
+            FilmRecord record = toRecord(film, old);
+            putRecord(id, old, record);
+            return mutationLog.append(toMutation(id, record));
+        }));
+        return film;
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(films.values());
+        return films.entrySet().stream()
+                .map(entry -> toFilm(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    // Страница фильмов с ID больше afterId: карта упорядочена по ID, поэтому без сортировки
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return films.tailMap(afterId, false).entrySet().stream()
+                .limit(limit)
+                .map(entry -> toFilm(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        films.forEach((id, record) -> consumer.accept(toFilm(id, record)));
     }
 
     @Override
     public Film getFilmById(int id) {
-        if (films.get(id) == null) {
-            throw new NotFoundException("Фильма с ID=" + filmId + " не существует");
+        return toFilm(id, getRecord(id));
+    }
+
+    // Получение фильмов по списку ID с сохранением порядка, несуществующие ID пропускаются
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        List<Film> result = new ArrayList<>(filmIds.size());
+        for (Integer id : filmIds) {
+            FilmRecord record = films.get(id);
+            if (record != null) {
+                result.add(toFilm(id, record));
+            }
         }
-        return films.get(id);
+        return result;
     }
 
+    // Добавление лайка (повторный лайк не учитывается)
     @Override
-    @Deprecated
     public void addLike(int filmId, int userId) {
+        mutationLog.awaitDurable(like(filmId, userId));
+    }
+
+    // Пакетное добавление лайков {filmId, userId}; возвращает количество новых лайков
+    @Override
+    public int addLikes(List<int[]> likes) {
+        likes.forEach(like -> getRecord(like[0]));
+        int added = 0;
+        long lastPosition = 0;
+        for (int[] like : likes) {
+            long position = like(like[0], like[1]);
+            if (position >= 0) {
+                added++;
+                lastPosition = position;
+            }
+        }
+        mutationLog.awaitDurable(lastPosition);
+        return added;
     }
 
     @Override
-    @Deprecated
     public void removeLike(int filmId, int userId) {
+        mutationLog.awaitDurable(locks.withLock(filmId, () -> {
+            if (films.containsKey(filmId) && setLike(filmId, userId, false)) {
+                return mutationLog.append(new Mutation.Like(filmId, userId, false));
+            }
+            return -1L;
+        }));
+    }
+
+    // Снятие всех лайков пользователя при его удалении, каждый лайк - под блокировкой своего фильма;
+    // возвращает позицию последней записи в журнале или -1, если лайков не было
+    public long removeUserLikes(int userId) {
+        long position = -1;
+        for (int filmId : likesIndex.getLikedFilmIds(userId)) {
+            position = Math.max(position, locks.withLock(filmId, () -> {
+                if (films.containsKey(filmId) && setLike(filmId, userId, false)) {
+                    return mutationLog.append(new Mutation.Like(filmId, userId, false));
+                }
+                return -1L;
+            }));
+        }
+        return position;
     }
 
+    // Фильмы режиссера по году выпуска или по убыванию количества лайков
     @Override
     public List<Film> sortingFilms(int directorId, String sortBy) {
-        return null;
+        Comparator<Film> order = switch (sortBy) {
+            case "year" -> Comparator.comparing(Film::getReleaseDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Film::getId);
+            case "likes" -> Comparator.comparing(Film::getLikesCount).reversed().thenComparing(Film::getId);
+            default -> throw new NotFoundException("Сортировка по  " + sortBy + " недоступна");
+        };
+        return getFilmsByIds(boxed(filmsByDirector.getOrDefault(directorId, IntArrays.EMPTY))).stream()
+                .sorted(order)
+                .collect(Collectors.toList());
     }
 
-    @Deprecated
+    // ID фильмов, которые лайкнули оба пользователя, по убыванию количества лайков
+    @Override
     public List<Integer> getCommonFilms(int userId, int friendId) {
-        return List.of();
+        return popularFilmsIndex.sortByLikes(likesIndex.getCommonFilmIds(userId, friendId));
     }
 
+    // Удаление фильма вместе с лайками и записями во всех индексах
+    @Override
     public Film deleteFilmById(int filmId) {
-        return new Film();
+        Film film = getFilmById(filmId);
+        mutationLog.awaitDurable(locks.withLock(filmId, () -> {
+            getRecord(filmId); // фильм мог быть удалён параллельно
+            removeRecord(filmId);
+            return mutationLog.append(new Mutation.FilmDelete(filmId));
+        }));
+        return film;
     }
 
     @Override
-    @Deprecated
     public List<Film> getMostPopularFilms(Integer count, Integer genreId, Integer year) {
-        return new ArrayList<>();
+        return getFilmsByIds(popularFilmsIndex.getTopFilmIds(count, genreId, year));
     }
 
+    // Поиск фильмов по названию и/или режиссеру через поисковый индекс, сортировка по популярности
     @Override
-    @Deprecated
     public List<Film> searchFilm(String query, String by) {
-        return List.of();
+        Set<String> fields = Arrays.stream(by.split(",")).map(String::trim).collect(Collectors.toSet());
+        log.info("Поиск фильмов по {}: {}", fields, query);
+        Set<Integer> filmIds = filmSearchIndex.search(query, fields.contains("title"), fields.contains("director"));
+        return getFilmsByIds(popularFilmsIndex.sortByLikes(filmIds.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    // Применение записи журнала при восстановлении; ссылки на справочники не проверяются повторно,
+    // связь с удалённым режиссером сохраняется, как и до перезапуска
+    @Override
+    public boolean apply(Mutation mutation) {
+        if (mutation instanceof Mutation.FilmPut put) {
+            FilmRecord record = toRecord(put);
+            lastFilmId.accumulateAndGet(put.id(), Math::max);
+            locks.withLock(put.id(), () -> putRecord(put.id(), films.get(put.id()), record));
+        } else if (mutation instanceof Mutation.FilmDelete delete) {
+            locks.withLock(delete.id(), () -> {
+                if (films.containsKey(delete.id())) {
+                    removeRecord(delete.id());
+                }
+            });
+        } else if (mutation instanceof Mutation.Like like) {
+            locks.withLock(like.filmId(), () -> {
+                if (films.containsKey(like.filmId())) {
+                    setLike(like.filmId(), like.userId(), like.liked());
+                }
+            });
+        } else if (mutation instanceof Mutation.LastId lastId && lastId.entity() == Mutation.Entity.FILM) {
+            lastFilmId.accumulateAndGet(lastId.id(), Math::max);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // Фильмы с лайками и счётчик ID; фильм выгружается раньше своих лайков
+    @Override
+    public void exportState(Consumer<Mutation> consumer) {
+        films.forEach((id, record) -> {
+            consumer.accept(toMutation(id, record));
+            for (int userId : likesIndex.getLikedUserIds(id)) {
+                consumer.accept(new Mutation.Like(id, userId, true));
+            }
+        });
+        consumer.accept(new Mutation.LastId(Mutation.Entity.FILM, lastFilmId.get()));
+    }
+
+    // Лайк под блокировкой фильма: проверка и обновление индексов не пересекаются с другими изменениями фильма;
+    // возвращает позицию записи в журнале или -1, если лайк уже был
+    private long like(int filmId, int userId) {
+        return locks.withLock(filmId, () -> {
+            getRecord(filmId);
+            if (!setLike(filmId, userId, true)) {
+                return -1L;
+            }
+            return mutationLog.append(new Mutation.Like(filmId, userId, true));
+        });
+    }
+
+    // Установка или снятие лайка под блокировкой фильма; false - лайк уже в нужном состоянии
+    private boolean setLike(int filmId, int userId, boolean liked) {
+        if (IntArrays.contains(likesIndex.getLikedUserIds(filmId), userId) == liked) {
+            return false;
+        }
+        if (liked) {
+            likesIndex.addLike(filmId, userId);
+        } else {
+            likesIndex.removeLike(filmId, userId);
+        }
+        popularFilmsIndex.changeLikes(filmId, liked ? 1 : -1);
+        return true;
+    }
+
+    private FilmRecord getRecord(int id) {
+        FilmRecord record = films.get(id);
+        if (record == null) {
+            throw new NotFoundException("Фильм с ID=" + id + " не найден");
+        }
+        return record;
     }
 
+    // Запись фильма и обновление индексов; вызывается под блокировкой фильма
+    private void putRecord(int id, FilmRecord old, FilmRecord record) {
+        films.put(id, record);
+        if (old != null) {
+            for (int directorId : old.directorIds()) {
+                if (!IntArrays.contains(record.directorIds(), directorId)) {
+                    filmsByDirector.computeIfPresent(directorId, (key, filmIds) -> IntArrays.remove(filmIds, id));
+                }
+            }
+        }
+        for (int directorId : record.directorIds()) {
+            filmsByDirector.compute(directorId, (key, filmIds) -> IntArrays.insert(filmIds, id));
+        }
+        Set<Integer> genreIds = record.genres().stream().map(Genre::getId).collect(Collectors.toSet());
+        popularFilmsIndex.putFilm(id, record.releaseDate() == null ? null : record.releaseDate().getYear(), genreIds);
+        filmSearchIndex.putFilm(id, record.name(), Arrays.stream(record.directorIds()).boxed()
+                .collect(Collectors.toSet()));
+    }
+
+    // Удаление фильма из карты и всех индексов; вызывается под блокировкой фильма
+    private void removeRecord(int filmId) {
+        FilmRecord record = films.remove(filmId);
+        for (int directorId : record.directorIds()) {
+            filmsByDirector.computeIfPresent(directorId, (id, filmIds) -> IntArrays.remove(filmIds, filmId));
+        }
+        popularFilmsIndex.removeFilm(filmId);
+        likesIndex.removeFilm(filmId);
+        filmSearchIndex.removeFilm(filmId);
+    }
+
+    private FilmRecord toNewRecord(Film film) {
+        try {
+            return toRecord(film, null);
+        } catch (NotFoundException e) {
+            throw new ValidationException(e.getMessage());
+        }
+    }
+
+    // Неизменяемая запись фильма; рейтинг и жанры заполняются названиями из справочников
+    private FilmRecord toRecord(Film film, FilmRecord old) {
+        Mpa mpa = null;
+        if (film.getMpa() != null) {
+            Mpa found = mpaService.getMpaById(film.getMpa().getId());
+            mpa = new Mpa(found.getId(), found.getName());
+        }
+        List<Genre> genres;
+        if (film.getGenres() != null) {
+            genres = film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .map(genreService::getGenreById)
+                    .map(genre -> new Genre(genre.getId(), genre.getName()))
+                    .toList();
+        } else {
+            genres = old == null ? List.of() : old.genres();
+        }
+        int[] directorIds;
+        if (film.getDirectors() != null) {
+            directorIds = film.getDirectors().stream()
+                    .mapToInt(Director::getId)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            Arrays.stream(directorIds).forEach(directorService::getDirectorById); // проверка существования
+        } else {
+            directorIds = old == null ? IntArrays.EMPTY : old.directorIds();
+        }
+        return new FilmRecord(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), mpa,
+                genres, directorIds);
+    }
+
+    // Запись фильма из журнала: названия рейтинга и жанров берутся из справочников
+    private FilmRecord toRecord(Mutation.FilmPut put) {
+        Mpa mpa = null;
+        if (put.mpaId() != null) {
+            Mpa found = mpaService.getMpaById(put.mpaId());
+            mpa = new Mpa(found.getId(), found.getName());
+        }
+        List<Genre> genres = Arrays.stream(put.genreIds())
+                .mapToObj(genreService::getGenreById)
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .toList();
+        return new FilmRecord(put.name(), put.description(), put.releaseDate(), put.duration(), mpa, genres,
+                put.directorIds());
+    }
+
+    private static Mutation.FilmPut toMutation(int id, FilmRecord record) {
+        return new Mutation.FilmPut(id, record.name(), record.description(), record.releaseDate(), record.duration(),
+                record.mpa() == null ? null : record.mpa().getId(),
+                record.genres().stream().mapToInt(Genre::getId).toArray(), record.directorIds());
+    }
+
+    // Новый объект фильма: изменения возвращённого объекта не попадают в хранилище
+    private Film toFilm(int id, FilmRecord record) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(record.name());
+        film.setDescription(record.description());
+        film.setReleaseDate(record.releaseDate());
+        film.setDuration(record.duration());
+        film.setMpa(record.mpa() == null ? null : new Mpa(record.mpa().getId(), record.mpa().getName()));
+        film.setGenres(record.genres().stream()
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        film.setLikes(Arrays.stream(likesIndex.getLikedUserIds(id)).boxed()
+                .collect(Collectors.toCollection(HashSet::new)));
+        film.setDirectors(getDirectors(record.directorIds()));
+        return film;
+    }
+
+    // Режиссеры фильма из кэша; удалённый режиссер пропускается, связь с ним остаётся до обновления фильма
+    private Set<Director> getDirectors(int[] directorIds) {
+        Set<Director> directors = new HashSet<>();
+        for (int directorId : directorIds) {
+            try {
+                directors.add(directorService.getDirectorById(directorId));
+            } catch (NotFoundException e) {
+                log.debug("Режиссер с ID={} удалён", directorId);
+            }
+        }
+        return directors;
+    }
+
+    private static List<Integer> boxed(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
 
-    // метод для генерации ID фильма
-    private int getNextFilmId() {
-        return ++filmId;
+    // Данные фильма без лайков (они хранятся в индексе лайков)
+    private record FilmRecord(String name, String description, LocalDate releaseDate, Integer duration, Mpa mpa,
+                              List<Genre> genres, int[] directorIds) {
     }
 }
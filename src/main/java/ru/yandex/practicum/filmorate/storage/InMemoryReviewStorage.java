@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.IntArrays;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище отзывов в памяти (профили in-memory и journal).
+ * Отзывы лежат в упорядоченной по ID конкурентной карте, отзывы фильма - в индексе по фильму.
+ * Оценки отзыва и его рейтинг полезности меняются под блокировкой отзыва, рейтинг пересчитывается
+ * разницей старой и новой оценки, как в ReviewDbStorage.
+ */
+
+@Component
+@Profile({"in-memory", "journal"})
+public class InMemoryReviewStorage implements ReviewStorage, JournaledStorage {
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<Review> MOST_USEFUL = Comparator.comparingInt(Review::getUseful).reversed()
+            .thenComparingInt(Review::getReviewId);
+
+    private final NavigableMap<Integer, ReviewRecord> reviews = new ConcurrentSkipListMap<>();
+    private final Map<Integer, int[]> reviewsByFilm = new ConcurrentHashMap<>();
+    // Оценки: ID отзыва -> ID пользователя -> 1 (лайк) или -1 (дизлайк)
+    private final Map<Integer, Map<Integer, Integer>> votes = new ConcurrentHashMap<>();
+    private final AtomicInteger lastReviewId = new AtomicInteger();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+
+    private final MutationLog mutationLog;
+
+    public InMemoryReviewStorage(Optional<MutationLog> mutationLog) {
+        this.mutationLog = mutationLog.orElse(MutationLog.NONE);
+    }
+
+    @Override
+    public Review addReview(Review review) {
+        int id = lastReviewId.incrementAndGet();
+        review.setReviewId(id);
+        ReviewRecord record = new ReviewRecord(review.getFilmId(), review.getUserId(), review.getContent(),
+                review.getIsPositive(), 0);
+        mutationLog.awaitDurable(locks.withLock(id, () -> {
+            putRecord(id, record);
+            return mutationLog.append(record.toMutation(id));
+        }));
+        return review;
+    }
+
+    // Обновление текста и типа отзыва; фильм, автор и рейтинг не меняются
+    @Override
+    public Review updateReview(Review newReview) {
+        int id = newReview.getReviewId();
+        mutationLog.awaitDurable(locks.withLock(id, () -> {
+            ReviewRecord old = getRecord(id);
+            ReviewRecord record = new ReviewRecord(old.filmId(), old.userId(), newReview.getContent(),
+                    newReview.getIsPositive(), old.useful());
+            reviews.put(id, record);
+            return mutationLog.append(record.toMutation(id));
+        }));
+        return getReviewById(id);
+    }
+
+    @Override
+    public Review getReviewById(int id) {
+        return getRecord(id).toReview(id);
+    }
+
+    // Удаление отзыва вместе с оценками, несуществующий ID пропускается
+    @Override
+    public void deleteReviewById(int id) {
+        mutationLog.awaitDurable(locks.withLock(id, () -> {
+            if (!reviews.containsKey(id)) {
+                return -1L;
+            }
+            removeRecord(id);
+            return mutationLog.append(new Mutation.ReviewDelete(id));
+        }));
+    }
+
+    @Override
+    public List<Review> getAllReviews() {
+        return reviews.entrySet().stream()
+                .map(entry -> entry.getValue().toReview(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    // Самые полезные отзывы к фильму (или ко всем фильмам, если filmId не указан)
+    @Override
+    public List<Review> getTopReviews(Integer filmId, int count) {
+        Stream<Review> candidates;
+        if (filmId == null) {
+            candidates = getAllReviews().stream();
+        } else {
+            candidates = Arrays.stream(reviewsByFilm.getOrDefault(filmId, IntArrays.EMPTY))
+                    .mapToObj(id -> {
+                        ReviewRecord record = reviews.get(id);
+                        return record == null ? null : record.toReview(id);
+                    })
+                    .filter(Objects::nonNull);
+        }
+        return candidates.sorted(MOST_USEFUL)
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void addLike(int id, int userId) {
+        mutationLog.awaitDurable(vote(id, userId, 1));
+    }
+
+    @Override
+    public void addDislike(int id, int userId) {
+        mutationLog.awaitDurable(vote(id, userId, -1));
+    }
+
+    @Override
+    public void removeLike(int id, int userId) {
+        mutationLog.awaitDurable(vote(id, userId, 0));
+    }
+
+    @Override
+    public void removeDislike(int id, int userId) {
+        mutationLog.awaitDurable(vote(id, userId, 0));
+    }
+
+    // Применение записи журнала при восстановлении; оценки несуществующих отзывов пропускаются
+    @Override
+    public boolean apply(Mutation mutation) {
+        if (mutation instanceof Mutation.ReviewPut put) {
+            lastReviewId.accumulateAndGet(put.id(), Math::max);
+            locks.withLock(put.id(), () -> {
+                ReviewRecord old = reviews.get(put.id());
+                if (old != null && old.filmId() != put.filmId()) {
+                    removeRecord(put.id());
+                    old = null;
+                }
+                putRecord(put.id(), new ReviewRecord(put.filmId(), put.userId(), put.content(), put.isPositive(),
+                        old == null ? 0 : old.useful()));
+            });
+        } else if (mutation instanceof Mutation.ReviewDelete delete) {
+            locks.withLock(delete.id(), () -> {
+                if (reviews.containsKey(delete.id())) {
+                    removeRecord(delete.id());
+                }
+            });
+        } else if (mutation instanceof Mutation.ReviewVote vote) {
+            locks.withLock(vote.reviewId(), () -> {
+                if (reviews.containsKey(vote.reviewId())) {
+                    setVote(vote.reviewId(), vote.userId(), vote.vote());
+                }
+            });
+        } else if (mutation instanceof Mutation.LastId lastId && lastId.entity() == Mutation.Entity.REVIEW) {
+            lastReviewId.accumulateAndGet(lastId.id(), Math::max);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // Отзывы с оценками и счётчик ID; отзыв выгружается раньше своих оценок
+    @Override
+    public void exportState(Consumer<Mutation> consumer) {
+        reviews.forEach((id, record) -> {
+            consumer.accept(record.toMutation(id));
+            votes.getOrDefault(id, Map.of())
+                    .forEach((userId, vote) -> consumer.accept(new Mutation.ReviewVote(id, userId, vote)));
+        });
+        consumer.accept(new Mutation.LastId(Mutation.Entity.REVIEW, lastReviewId.get()));
+    }
+
+    // Оценка под блокировкой отзыва; возвращает позицию записи в журнале или -1, если оценка не изменилась
+    private long vote(int id, int userId, int vote) {
+        return locks.withLock(id, () -> {
+            getRecord(id);
+            if (!setVote(id, userId, vote)) {
+                return -1L;
+            }
+            return mutationLog.append(new Mutation.ReviewVote(id, userId, vote));
+        });
+    }
+
+    // Замена оценки пользователя и пересчёт рейтинга; вызывается под блокировкой отзыва
+    private boolean setVote(int id, int userId, int vote) {
+        Map<Integer, Integer> reviewVotes = votes.computeIfAbsent(id, key -> new ConcurrentHashMap<>());
+        Integer old = vote == 0 ? reviewVotes.remove(userId) : reviewVotes.put(userId, vote);
+        int delta = vote - (old == null ? 0 : old);
+        if (delta == 0) {
+            return false;
+        }
+        reviews.computeIfPresent(id, (key, record) -> record.withUseful(record.useful() + delta));
+        return true;
+    }
+
+    private ReviewRecord getRecord(int id) {
+        ReviewRecord record = reviews.get(id);
+        if (record == null) {
+            throw new NotFoundException("Отзыв с ID=" + id + " не найден");
+        }
+        return record;
+    }
+
+    // Запись отзыва и обновление индекса по фильму; вызывается под блокировкой отзыва
+    private void putRecord(int id, ReviewRecord record) {
+        reviews.put(id, record);
+        reviewsByFilm.compute(record.filmId(), (filmId, reviewIds) -> IntArrays.insert(reviewIds, id));
+    }
+
+    private void removeRecord(int id) {
+        ReviewRecord record = reviews.remove(id);
+        reviewsByFilm.computeIfPresent(record.filmId(), (filmId, reviewIds) -> IntArrays.remove(reviewIds, id));
+        votes.remove(id);
+    }
+
+    // Неизменяемая запись отзыва
+    private record ReviewRecord(int filmId, int userId, String content, Boolean isPositive, int useful) {
+        ReviewRecord withUseful(int newUseful) {
+            return new ReviewRecord(filmId, userId, content, isPositive, newUseful);
+        }
+
+        Mutation.ReviewPut toMutation(int id) {
+            return new Mutation.ReviewPut(id, filmId, userId, content, isPositive);
+        }
+
+        Review toReview(int id) {
+            return new Review(id, filmId, userId, content, isPositive, useful);
+        }
+    }
+}
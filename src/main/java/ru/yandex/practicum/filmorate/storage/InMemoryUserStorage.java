@@ -1,75 +1,300 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище пользователей в памяти (профили in-memory и journal).
+ * Пользователи лежат в упорядоченной по ID конкурентной карте, граф дружбы - в FriendsIndex
+ * (отсортированные массивы ID друзей и подписчиков). Статус дружбы отдельно не хранится:
+ * дружба подтверждена, когда есть обратная связь. Изменения пользователя и его списка друзей выполняются
+ * под блокировкой пользователя и в профиле journal записываются в журнал (MutationLog).
+ * Лайки удалённого пользователя снимаются в хранилище фильмов.
+ */
 
 @Component
-public class InMemoryUserStorage implements UserStorage {
-    private Map<Integer, User> users = new HashMap<>();
-    private int userId = 0;
+@Profile({"in-memory", "journal"})
+public class InMemoryUserStorage implements UserStorage, JournaledStorage {
+    private static final int LOCK_STRIPES = 64;
+
+    private final NavigableMap<Integer, UserRecord> users = new ConcurrentSkipListMap<>();
+    private final AtomicInteger lastUserId = new AtomicInteger();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+
+    private final FriendsIndex friendsIndex;
+    private final FriendSuggestionsCache suggestionsCache;
+    private final InMemoryFilmStorage filmStorage;
+    private final MutationLog mutationLog;
+
+    public InMemoryUserStorage(FriendsIndex friendsIndex, FriendSuggestionsCache suggestionsCache,
+                               InMemoryFilmStorage filmStorage, Optional<MutationLog> mutationLog) {
+        this.friendsIndex = friendsIndex;
+        this.suggestionsCache = suggestionsCache;
+        this.filmStorage = filmStorage;
+        this.mutationLog = mutationLog.orElse(MutationLog.NONE);
+    }
 
     @Override
     public User addUser(User user) {
-        user.setId(getNextUserId()); // устанавливаем ID
-        users.put(user.getId(), user);
+        int id = lastUserId.incrementAndGet();
+        user.setId(id); // устанавливаем ID
+        mutationLog.awaitDurable(put(id, UserRecord.of(user)));
+        user.setFriends(new HashSet<>());
         return user;
     }
 
+    // Пакетное добавление; сохранения журнала на диск пакет ждёт один раз
+    @Override
+    public List<User> addUsers(List<User> users) {
+        long position = 0;
+        for (User user : users) {
+            int id = lastUserId.incrementAndGet();
+            user.setId(id);
+            position = put(id, UserRecord.of(user));
+        }
+        mutationLog.awaitDurable(position);
+        return users;
+    }
+
+    // Обновление существующего пользователя, несуществующий ID не добавляется
     @Override
     public User updateUser(User user) {
-        return users.put(user.getId(), user);
+        mutationLog.awaitDurable(locks.withLock(user.getId(), () -> {
+            UserRecord record = UserRecord.of(user);
+            if (users.replace(user.getId(), record) == null) {
+                return -1L;
+            }
+            return mutationLog.append(record.toMutation());
+        }));
+        return user;
     }
 
     @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        return users.values().stream()
+                .map(UserRecord::toUser)
+                .collect(Collectors.toList());
+    }
+
+    // Страница пользователей с ID больше afterId: карта упорядочена по ID, поэтому без сортировки
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(UserRecord::toUser)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        users.values().forEach(record -> consumer.accept(record.toUser()));
     }
 
     @Override
     public User getUserById(int id) {
-        if (users.get(id) == null) {
-            throw new NotFoundException("Пользователя с ID:" + id + " не существует");
+        UserRecord record = users.get(id);
+        if (record == null) {
+            throw new NotFoundException("Пользователь с ID=" + id + " не найден");
+        }
+        return record.toUser();
+    }
+
+    // Получение пользователей по списку ID с сохранением порядка, несуществующие ID пропускаются
+    @Override
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        List<User> result = new ArrayList<>(userIds.size());
+        for (Integer id : userIds) {
+            UserRecord record = users.get(id);
+            if (record != null) {
+                result.add(record.toUser());
+            }
         }
-        return users.get(id);
+        return result;
     }
 
     @Override
-    @Deprecated
     public void addFriend(int userId, int friendId, String status) {
+        long position = setFriend(userId, friendId, true);
+        invalidateSuggestions(userId);
+        mutationLog.awaitDurable(position);
+    }
+
+    @Override
+    public void addFriends(List<int[]> friendships) {
+        long position = 0;
+        for (int[] pair : friendships) {
+            position = Math.max(position, setFriend(pair[0], pair[1], true));
+        }
+        suggestionsCache.invalidateAll();
+        mutationLog.awaitDurable(position);
     }
 
     @Override
-    @Deprecated
     public void removeFriend(int userId, int friendId) {
+        long position = setFriend(userId, friendId, false);
+        if (position >= 0) {
+            invalidateSuggestions(userId);
+            mutationLog.awaitDurable(position);
+        }
+    }
 
+    @Override
+    public boolean isFriend(int userId, int friendId) {
+        return friendsIndex.isFriend(userId, friendId);
     }
 
+    // Статус определяется наличием обратной связи и не хранится
     @Override
-    @Deprecated
     public void updateFriendStatus(int userId, int friendId, String status) {
     }
 
+    // Друзья пользователя по возрастанию ID
     @Override
-    @Deprecated
     public List<User> getFriends(int userId) {
-        return List.of();
+        return getUsersByIds(boxed(friendsIndex.getFriendIds(userId)));
+    }
+
+    @Override
+    public int[] getFriendIds(int userId) {
+        return friendsIndex.getFriendIds(userId);
     }
 
+    // Общие друзья двух пользователей по возрастанию ID
+    @Override
+    public List<User> getCommonFriends(int userId, int otherUserId) {
+        return getUsersByIds(boxed(friendsIndex.getCommonFriendIds(userId, otherUserId)));
+    }
+
+    // Удаление пользователя вместе с дружбой в обе стороны и его лайками; лайки снимаются под блокировкой
+    // пользователя после его удаления, счётчики популярности фильмов уменьшаются
     @Override
-    @Deprecated
     public User deleteUserById(int userid) {
-        return new User();
+        User user = getUserById(userid);
+        mutationLog.awaitDurable(locks.withLock(userid, () -> {
+            getUserById(userid); // пользователь мог быть удалён параллельно
+            remove(userid);
+            long position = mutationLog.append(new Mutation.UserDelete(userid));
+            return Math.max(position, filmStorage.removeUserLikes(userid));
+        }));
+        suggestionsCache.invalidateAll();
+        return user;
     }
 
+    // Применение записи журнала при восстановлении; дружба с несуществующим пользователем пропускается
+    @Override
+    public boolean apply(Mutation mutation) {
+        if (mutation instanceof Mutation.UserPut put) {
+            lastUserId.accumulateAndGet(put.id(), Math::max);
+            users.put(put.id(), new UserRecord(put.id(), put.email(), put.login(), put.name(), put.birthday()));
+        } else if (mutation instanceof Mutation.UserDelete delete) {
+            locks.withLock(delete.id(), () -> remove(delete.id()));
+        } else if (mutation instanceof Mutation.Friend friend) {
+            locks.withLock(friend.userId(), () -> {
+                if (users.containsKey(friend.userId()) && users.containsKey(friend.friendId())) {
+                    changeFriend(friend.userId(), friend.friendId(), friend.added());
+                }
+            });
+        } else if (mutation instanceof Mutation.LastId lastId && lastId.entity() == Mutation.Entity.USER) {
+            lastUserId.accumulateAndGet(lastId.id(), Math::max);
+        } else {
+            return false;
+        }
+        return true;
+    }
 
-    // Метод для создания ID пользователя
-    private int getNextUserId() {
-        return ++userId;
+    // Все пользователи, затем дружба и счётчик ID: при загрузке снимка оба пользователя уже существуют
+    @Override
+    public void exportState(Consumer<Mutation> consumer) {
+        users.values().forEach(record -> consumer.accept(record.toMutation()));
+        users.keySet().forEach(userId -> {
+            for (int friendId : friendsIndex.getFriendIds(userId)) {
+                consumer.accept(new Mutation.Friend(userId, friendId, true));
+            }
+        });
+        consumer.accept(new Mutation.LastId(Mutation.Entity.USER, lastUserId.get()));
+    }
+
+    private long put(int id, UserRecord record) {
+        return locks.withLock(id, () -> {
+            users.put(id, record);
+            return mutationLog.append(record.toMutation());
+        });
+    }
+
+    private void remove(int userId) {
+        users.remove(userId);
+        friendsIndex.removeUser(userId);
+    }
+
+    // Изменение дружбы под блокировкой пользователя; возвращает позицию записи в журнале
+    // или -1, если дружба уже в нужном состоянии
+    private long setFriend(int userId, int friendId, boolean added) {
+        return locks.withLock(userId, () -> {
+            if (!changeFriend(userId, friendId, added)) {
+                return -1L;
+            }
+            return mutationLog.append(new Mutation.Friend(userId, friendId, added));
+        });
+    }
+
+    private boolean changeFriend(int userId, int friendId, boolean added) {
+        if (friendsIndex.isFriend(userId, friendId) == added) {
+            return false;
+        }
+        if (added) {
+            friendsIndex.addFriend(userId, friendId);
+        } else {
+            friendsIndex.removeFriend(userId, friendId);
+        }
+        return true;
+    }
+
+    // Сброс рекомендаций самого пользователя и тех, у кого он в друзьях
+    private void invalidateSuggestions(int userId) {
+        List<Integer> affectedUsers = new ArrayList<>();
+        affectedUsers.add(userId);
+        Arrays.stream(friendsIndex.getFollowerIds(userId)).forEach(affectedUsers::add);
+        suggestionsCache.invalidate(affectedUsers);
+    }
+
+    private static List<Integer> boxed(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+
+    // Неизменяемая копия пользователя: изменения переданных и возвращённых объектов не попадают в хранилище
+    private record UserRecord(int id, String email, String login, String name, LocalDate birthday) {
+        static UserRecord of(User user) {
+            return new UserRecord(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        }
+
+        Mutation.UserPut toMutation() {
+            return new Mutation.UserPut(id, email, login, name, birthday);
+        }
+
+        User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setEmail(email);
+            user.setLogin(login);
+            user.setName(name);
+            user.setBirthday(birthday);
+            return user;
+        }
     }
 }
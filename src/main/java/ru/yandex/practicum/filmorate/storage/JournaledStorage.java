@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.function.Consumer;
+
+/**
+ * Хранилище в памяти, состояние которого восстанавливается из журнала изменений
+ */
+
+public interface JournaledStorage {
+    // Применение записи журнала без повторной записи в журнал; false - запись относится к другому хранилищу.
+    // Записи о лайках, дружбе и оценках несуществующих записей пропускаются
+    boolean apply(Mutation mutation);
+
+    // Текущее состояние в виде записей журнала (для снимка)
+    void exportState(Consumer<Mutation> consumer);
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.time.LocalDate;
+
+/**
+ * Изменение данных хранилища в памяти, которое записывается в журнал (MutationLog).
+ * Записи описывают итоговое состояние, а не операцию: повторное применение записи ничего не меняет,
+ * поэтому журнал можно воспроизводить поверх снимка, снятого во время изменений.
+ */
+
+public sealed interface Mutation {
+
+    // Фильм целиком (добавление или обновление); жанры и режиссеры - отсортированные ID
+    record FilmPut(int id, String name, String description, LocalDate releaseDate, Integer duration,
+                   Integer mpaId, int[] genreIds, int[] directorIds) implements Mutation {
+    }
+
+    record FilmDelete(int id) implements Mutation {
+    }
+
+    record Like(int filmId, int userId, boolean liked) implements Mutation {
+    }
+
+    record UserPut(int id, String email, String login, String name, LocalDate birthday) implements Mutation {
+    }
+
+    record UserDelete(int id) implements Mutation {
+    }
+
+    record Friend(int userId, int friendId, boolean added) implements Mutation {
+    }
+
+    record ReviewPut(int id, int filmId, int userId, String content, Boolean isPositive) implements Mutation {
+    }
+
+    record ReviewDelete(int id) implements Mutation {
+    }
+
+    // Оценка отзыва пользователем: 1 - лайк, -1 - дизлайк, 0 - оценка снята
+    record ReviewVote(int reviewId, int userId, int vote) implements Mutation {
+    }
+
+    // Последний выданный ID: в снимке сохраняет счётчик, если записи с наибольшим ID удалены
+    record LastId(Entity entity, int id) implements Mutation {
+    }
+
+    enum Entity {
+        FILM, USER, REVIEW
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Журнал изменений хранилищ в памяти. Хранилище применяет изменение и добавляет его в журнал
+ * под блокировкой записи, чтобы порядок в журнале совпадал с порядком применения,
+ * а ждёт сохранения на диск уже после снятия блокировки.
+ */
+
+public interface MutationLog {
+    // Журнал не ведётся (профиль in-memory)
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public long append(Mutation mutation) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    // Добавление записи; возвращает позицию конца записи в журнале
+    long append(Mutation mutation);
+
+    // Ожидание сохранения на диск всех записей до позиции включительно
+    void awaitDurable(long position);
+}
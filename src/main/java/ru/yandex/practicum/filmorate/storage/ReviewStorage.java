@@ -14,6 +14,8 @@ public interface ReviewStorage {
 
     List<Review> getAllReviews();
 
+    List<Review> getTopReviews(Integer filmId, int count);
+
     void addLike(int id, int userId);
 
     void addDislike(int id, int userId);
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Набор блокировок, разделённых по ID записи: изменения одной записи выполняются последовательно,
+ * изменения разных записей почти всегда идут параллельно.
+ * ReentrantLock вместо synchronized, чтобы ожидание не закрепляло виртуальный поток за потоком-носителем.
+ */
+
+final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    StripedLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    <T> T withLock(int id, Supplier<T> action) {
+        ReentrantLock lock = locks[Math.floorMod(id, locks.length)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void withLock(int id, Runnable action) {
+        withLock(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -3,23 +3,40 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User addUser(User user);
 
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     List<User> getAllUsers();
 
+    List<User> getUsers(int afterId, int limit);
+
+    void streamAllUsers(Consumer<User> consumer);
+
     User getUserById(int id);
 
+    List<User> getUsersByIds(List<Integer> userIds);
+
     void addFriend(int userId, int friendId, String status);
 
+    void addFriends(List<int[]> friendships);
+
     void removeFriend(int userId, int friendId);
 
+    boolean isFriend(int userId, int friendId);
+
     void updateFriendStatus(int userId, int friendId, String status);
 
     List<User> getFriends(int userId);
 
+    int[] getFriendIds(int userId);
+
+    List<User> getCommonFriends(int userId, int otherUserId);
+
     User deleteUserById(int userid);
 }
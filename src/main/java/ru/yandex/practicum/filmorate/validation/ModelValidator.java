@@ -6,6 +6,7 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.Set;
 
 /**
  * Класс для проверки значений полей объектов User и Film
@@ -15,6 +16,8 @@ import java.time.LocalDate;
 public class ModelValidator {
     private static final LocalDate CINEMA_BIRTHDAY = LocalDate.of(1895, 12, 28);
     private static final int DESCRIPTION_MAX_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 1000; // больше - потоковая выдача stream=true
+    private static final Set<String> SEARCH_FIELDS = Set.of("title", "director");
 
 
     public static ValidationResult validateFilm(Film film) {
@@ -104,4 +107,26 @@ public class ModelValidator {
 
         return new ValidationResult(true);
     }
+
+    // Размер страницы при keyset-пагинации: от 1 до MAX_PAGE_SIZE
+    public static ValidationResult validatePageSize(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            String currentError = "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE;
+            log.error("{}: {}", currentError, limit);
+            return new ValidationResult(false, currentError);
+        }
+        return new ValidationResult(true);
+    }
+
+    // Поля поиска фильмов через запятую: title и/или director
+    public static ValidationResult validateSearchBy(String by) {
+        for (String field : by.split(",", -1)) {
+            if (!SEARCH_FIELDS.contains(field.trim())) {
+                String currentError = "Поиск возможен только по полям title и director";
+                log.error("{}: {}", currentError, by);
+                return new ValidationResult(false, currentError);
+            }
+        }
+        return new ValidationResult(true);
+    }
 }
@@ -0,0 +1,16 @@
+-- Удаление повторных лайков перед добавлением первичного ключа
+DELETE FROM films_like WHERE _ROWID_ NOT IN (
+  SELECT MIN(_ROWID_) FROM films_like GROUP BY film_id, user_id
+);
+DELETE FROM films_like WHERE film_id IS NULL OR user_id IS NULL;
+
+ALTER TABLE films_like ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE films_like ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE films_like ADD CONSTRAINT films_like_pk PRIMARY KEY (film_id, user_id);
+CREATE INDEX IF NOT EXISTS films_like_user_idx ON films_like(user_id, film_id);
+
+CREATE INDEX IF NOT EXISTS user_friends_friend_idx ON user_friends(friend_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres(genre_id);
+CREATE INDEX IF NOT EXISTS film_director_director_idx ON film_director(director_id);
+CREATE INDEX IF NOT EXISTS reviews_film_idx ON reviews(film_id);
+CREATE INDEX IF NOT EXISTS review_likes_user_idx ON review_likes(user_id);
@@ -0,0 +1,10 @@
+-- Рейтинг полезности хранится в отзыве и меняется вместе с оценками в review_likes
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS useful INT DEFAULT 0 NOT NULL;
+
+UPDATE reviews r SET useful = (
+  SELECT COALESCE(SUM(CASE WHEN rl.is_like THEN 1 ELSE -1 END), 0) FROM review_likes rl WHERE rl.review_id = r.id
+);
+
+-- Топ отзывов фильма и общий топ читаются по индексу
+CREATE INDEX IF NOT EXISTS reviews_film_useful_idx ON reviews(film_id, useful DESC, id);
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews(useful DESC, id);
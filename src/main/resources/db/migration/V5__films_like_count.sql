@@ -0,0 +1,4 @@
+-- Счётчик лайков фильма хранится в films и меняется вместе с films_like
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INT DEFAULT 0 NOT NULL;
+
+UPDATE films f SET like_count = (SELECT COUNT(*) FROM films_like fl WHERE fl.film_id = f.id);
@@ -0,0 +1,2 @@
+-- Лента событий пользователя читается страницами по индексу
+CREATE INDEX IF NOT EXISTS event_feed_user_event_idx ON event_feed(user_id, event_id);
@@ -1,20 +1,46 @@
 package ru.yandex.practicum.filmorate;
 
+import jakarta.servlet.FilterChain;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.RecentEventsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.controller.ResponseCacheFilter;
 import ru.yandex.practicum.filmorate.dal.*;
 import ru.yandex.practicum.filmorate.dal.mappers.*;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.service.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -25,13 +51,26 @@ import static org.assertj.core.api.Assertions.assertThat;
 		FilmDbStorage.class, FilmRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, GenreService.class,
 		MpaDbStorage.class, MpaRowMapper.class, MpaService.class, DirectorService.class, DirectorDbStorage.class,
 		DirectorRowMapper.class, ReviewDbStorage.class, ReviewRowMapper.class, ReviewService.class,
-		EventFeedService.class, EventFeedDbStorage.class, EventFeedRowMapper.class})
+		EventFeedService.class, EventFeedDbStorage.class, EventFeedRowMapper.class, PopularFilmsIndex.class,
+		LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class, EventFeedWriter.class, BackgroundThreads.class,
+		RecentEventsCache.class, ResourceVersions.class, FriendSuggestionsCache.class, FriendSuggestionService.class, ImportService.class, SnapshotService.class, SnapshotDbStorage.class,
+		JacksonAutoConfiguration.class})
 class FilmorateApplicationTests {
 	private final UserDbStorage userStorage;
 	private final FilmDbStorage filmStorage;
 	private final GenreDbStorage genreStorage;
 	private final MpaDbStorage mpaStorage;
 	private final ReviewDbStorage reviewStorage;
+	private final EventFeedDbStorage eventFeedStorage;
+	private final EventFeedWriter eventFeedWriter;
+	private final UserService userService;
+	private final FriendSuggestionService friendSuggestionService;
+	private final LikesIndex likesIndex;
+	private final ImportService importService;
+	private final SnapshotService snapshotService;
+	private final DirectorService directorService;
+	private final ResourceVersions resourceVersions;
+	private final JdbcTemplate jdbc;
 	private User user;
 	private User secondUser;
 	private Film film;
@@ -96,6 +135,94 @@ class FilmorateApplicationTests {
 		assertThat(allUsers).isNotEmpty().contains(user, secondUser);
 	}
 
+	@Test
+	public void testAddUsersFilmsAndLikesInBatch() {
+		userStorage.addUsers(List.of(user, secondUser));
+		filmStorage.addFilms(List.of(film, secondFilm));
+
+		assertThat(userStorage.getUserById(secondUser.getId())).hasFieldOrPropertyWithValue("login", "Wizard");
+		assertThat(filmStorage.getFilmById(film.getId()).getGenres()).isEqualTo(film.getGenres());
+		int added = filmStorage.addLikes(List.of(new int[]{film.getId(), user.getId()},
+				new int[]{film.getId(), secondUser.getId()}, new int[]{film.getId(), user.getId()}));
+		assertThat(added).isEqualTo(2);
+		assertThat(filmStorage.getFilmById(film.getId()).getLikes()).containsExactlyInAnyOrder(user.getId(),
+				secondUser.getId());
+	}
+
+	@Test
+	public void testAddFriendsInBatch() {
+		userStorage.addUsers(List.of(user, secondUser));
+		userStorage.addFriends(List.of(new int[]{user.getId(), secondUser.getId()}));
+		assertThat(friendshipStatus(user.getId(), secondUser.getId())).isEqualTo("unconfirmed");
+
+		userStorage.addFriends(List.of(new int[]{secondUser.getId(), user.getId()},
+				new int[]{user.getId(), secondUser.getId()}));
+		assertThat(friendshipStatus(user.getId(), secondUser.getId())).isEqualTo("confirmed");
+		assertThat(friendshipStatus(secondUser.getId(), user.getId())).isEqualTo("confirmed");
+	}
+
+	@Test
+	public void testImportUsersReportsRowErrors() {
+		String ndjson = """
+				{"email":"first@mail.ru","login":"first","birthday":"1990-01-01"}
+
+				{"email":"wrong","login":"second","birthday":"1990-01-01"}
+				{"email":"third@mail.ru","login":"third","birthday":"1990-01-01"
+				{"email":"fourth@mail.ru","login":"fourth","name":"Четвёртый","birthday":"1990-01-01"}
+				""";
+		ImportResult result = importService.importUsers(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.getImported()).isEqualTo(2);
+		assertThat(result.getFailed()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(ImportResult.RowError::line).containsExactly(3L, 4L);
+		assertThat(userStorage.getAllUsers()).extracting(User::getName).containsExactly("first", "Четвёртый");
+	}
+
+	@Test
+	public void testImportLikesReportsRowErrors() {
+		int filmId = filmStorage.addFilm(film).getId();
+		int userId = userStorage.addUser(user).getId();
+		int secondUserId = userStorage.addUser(secondUser).getId();
+		String ndjson = String.format("""
+				{"filmId":%1$d,"userId":%2$d}
+				{"filmId":%1$d,"userId":%2$d}
+				{"filmId":999999,"userId":%2$d}
+				{"filmId":%1$d,"userId":%3$d}
+				""", filmId, userId, secondUserId);
+		ImportResult result = importService.importLikes(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.getImported()).isEqualTo(3);
+		assertThat(result.getErrors()).extracting(ImportResult.RowError::line).containsExactly(3L);
+		assertThat(filmStorage.getFilmById(filmId).getLikes()).containsExactlyInAnyOrder(userId, secondUserId);
+		assertThat(jdbc.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, filmId))
+				.isEqualTo(2);
+	}
+
+	@Test
+	public void testImportFilmsRejectsUnknownDirector() {
+		Director director = directorService.addDirector(new Director(0, "Режиссер импорта"));
+		String ndjson = String.format("""
+				{"name":"С режиссером","description":"Импорт","releaseDate":"2000-01-01","duration":90,"mpa":{"id":1},"directors":[{"id":%d}]}
+				{"name":"С неизвестным режиссером","description":"Импорт","releaseDate":"2000-01-01","duration":90,"mpa":{"id":1},"directors":[{"id":999999}]}
+				""", director.getId());
+		ImportResult result = importService.importFilms(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		// строка отклоняется проверкой до записи, а не ошибкой внешнего ключа
+		assertThat(result.getImported()).isEqualTo(1);
+		assertThat(result.getErrors()).containsExactly(
+				new ImportResult.RowError(2, "Режиссера с ID=999999 не найден"));
+	}
+
+	@Test
+	public void testGetUsersPage() {
+		userStorage.addUser(user);
+		userStorage.addUser(secondUser);
+
+		assertThat(userStorage.getUsers(0, 1)).containsExactly(user);
+		assertThat(userStorage.getUsers(user.getId(), 10)).containsExactly(secondUser);
+		assertThat(userStorage.getUsers(secondUser.getId(), 10)).isEmpty();
+	}
+
 	@Test
 	public void testOperationWithFriends() {
 		userStorage.addUser(user);
@@ -110,6 +237,110 @@ class FilmorateApplicationTests {
 		assertThat(userStorage.getFriends(user.getId())).isEmpty();
 	}
 
+	@Test
+	public void testCommonFriendsFromIndexAndDatabase() {
+		User thirdUser = User.builder()
+				.email("third@mail.ru")
+				.login("Third")
+				.name("Третий")
+				.birthday(LocalDate.of(2000, 1, 1))
+				.build();
+		userStorage.addUsers(List.of(user, secondUser, thirdUser));
+		userService.addFriend(user.getId(), thirdUser.getId());
+		userService.addFriend(secondUser.getId(), thirdUser.getId());
+		userService.addFriend(thirdUser.getId(), user.getId());
+		assertThat(friendshipStatus(user.getId(), thirdUser.getId())).isEqualTo("confirmed");
+		assertThat(friendshipStatus(thirdUser.getId(), user.getId())).isEqualTo("confirmed");
+		assertThat(friendshipStatus(secondUser.getId(), thirdUser.getId())).isEqualTo("unconfirmed");
+
+		// индекс обновляется после фиксации транзакции, в тесте - пересборкой
+		userStorage.rebuildFriendsIndex();
+		assertThat(userService.getCommonFriends(user.getId(), secondUser.getId())).extracting(User::getId)
+				.containsExactly(thirdUser.getId());
+		assertThat(userService.getCommonFriends(user.getId(), thirdUser.getId())).isEmpty();
+
+		UserDbStorage withoutIndex = new UserDbStorage(jdbc, new UserRowMapper(), new FriendsIndex(),
+				new FriendSuggestionsCache(), filmStorage, false);
+		assertThat(withoutIndex.getCommonFriends(user.getId(), secondUser.getId())).extracting(User::getId)
+				.containsExactly(thirdUser.getId());
+
+		userService.removeFriend(thirdUser.getId(), user.getId());
+		assertThat(friendshipStatus(user.getId(), thirdUser.getId())).isEqualTo("unconfirmed");
+	}
+
+	// события пишутся в фоне, поэтому пользователи фиксируются, а не откатываются с транзакцией теста,
+	// и удаляются в конце теста
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void testRemoveOneSidedFriendship() {
+		userStorage.addUsers(List.of(user, secondUser));
+		userService.addFriend(user.getId(), secondUser.getId());
+
+		// встречной дружбы нет, менять её статус не нужно
+		userService.removeFriend(user.getId(), secondUser.getId());
+		eventFeedWriter.flush();
+
+		assertThat(userStorage.isFriend(user.getId(), secondUser.getId())).isFalse();
+		assertThat(eventFeedStorage.findEvents(user.getId(), null, null, null, 10))
+				.extracting(EventFeed::getOperation)
+				.containsExactly(Operations.ADD, Operations.REMOVE);
+
+		userService.deleteUserById(user.getId());
+		userService.deleteUserById(secondUser.getId());
+	}
+
+	@Test
+	public void testFriendSuggestionsRankedByMutualFriendsAndLikes() {
+		List<User> users = new ArrayList<>();
+		for (int i = 1; i <= 6; i++) {
+			users.add(User.builder()
+					.email("user" + i + "@mail.ru")
+					.login("user" + i)
+					.name("Пользователь " + i)
+					.birthday(LocalDate.of(2000, 1, i))
+					.build());
+		}
+		userStorage.addUsers(users);
+		int[] ids = users.stream().mapToInt(User::getId).toArray();
+		// у первого друзья 2 и 3; 4 - друг обоих, 5 и 6 - друзья только второго
+		userStorage.addFriends(List.of(new int[]{ids[0], ids[1]}, new int[]{ids[0], ids[2]},
+				new int[]{ids[1], ids[3]}, new int[]{ids[2], ids[3]},
+				new int[]{ids[1], ids[4]}, new int[]{ids[1], ids[5]}, new int[]{ids[1], ids[0]}));
+		filmStorage.addFilm(film);
+		likesIndex.addLike(film.getId(), ids[0]);
+		likesIndex.addLike(film.getId(), ids[5]);
+		userStorage.rebuildFriendsIndex();
+
+		assertThat(friendSuggestionService.getFriendSuggestions(ids[0], 10)).extracting(User::getId)
+				.containsExactly(ids[3], ids[5], ids[4]);
+		assertThat(friendSuggestionService.getFriendSuggestions(ids[0], 1)).extracting(User::getId)
+				.containsExactly(ids[3]);
+		assertThat(friendSuggestionService.getFriendSuggestions(ids[3], 10)).isEmpty();
+	}
+
+	@Test
+	public void testCommonFilmsOrderedByPopularity() {
+		User thirdUser = User.builder()
+				.email("third@mail.ru")
+				.login("Third")
+				.name("Третий")
+				.birthday(LocalDate.of(2000, 1, 1))
+				.build();
+		userStorage.addUsers(List.of(user, secondUser, thirdUser));
+		filmStorage.addFilms(List.of(film, secondFilm));
+		filmStorage.addLikes(List.of(new int[]{film.getId(), user.getId()}, new int[]{film.getId(), secondUser.getId()},
+				new int[]{secondFilm.getId(), user.getId()}, new int[]{secondFilm.getId(), secondUser.getId()},
+				new int[]{secondFilm.getId(), thirdUser.getId()}));
+		// индексы обновляются после фиксации транзакции, в тесте - пересборкой
+		filmStorage.rebuildIndexes();
+
+		List<Integer> commonFilms = filmStorage.getCommonFilms(user.getId(), secondUser.getId());
+		assertThat(commonFilms).containsExactly(secondFilm.getId(), film.getId());
+		assertThat(filmStorage.getFilmsByIds(commonFilms)).extracting(Film::getName)
+				.containsExactly(secondFilm.getName(), film.getName());
+		assertThat(filmStorage.getCommonFilms(user.getId(), thirdUser.getId())).containsExactly(secondFilm.getId());
+	}
+
 	@Test
 	public void testAddAndGetFilms() {
 		filmStorage.addFilm(film);
@@ -128,6 +359,82 @@ class FilmorateApplicationTests {
 				filmStorage.getFilmById(secondFilm.getId()));
 	}
 
+	@Test
+	public void testGetAllFilmsFillsLikesAndGenres() {
+		filmStorage.addFilm(film);
+		filmStorage.addFilm(secondFilm);
+		user = userStorage.addUser(user);
+		filmStorage.addLike(film.getId(), user.getId());
+
+		Film thatFilm = filmStorage.getAllFilms().stream()
+				.filter(f -> f.getId().equals(film.getId()))
+				.findFirst()
+				.orElseThrow();
+		assertThat(thatFilm.getLikes()).containsExactly(user.getId());
+		assertThat(thatFilm.getGenres()).containsExactly(new Genre(4, "Триллер"));
+		assertThat(thatFilm.getMpa()).isEqualTo(new Mpa(3, "PG-13"));
+	}
+
+	@Test
+	public void testUpdateFilmChangesOnlyChangedGenresAndDirectors() {
+		Director nolan = directorService.addDirector(new Director(0, "Кристофер Нолан"));
+		Director raimi = directorService.addDirector(new Director(0, "Сэм Рэйми"));
+		film.setGenres(Set.of(new Genre(4, "Триллер"), new Genre(2, "Драма")));
+		film.setDirectors(Set.of(nolan));
+		filmStorage.addFilm(film);
+
+		film.setName("Человек-паук 2");
+		film.setGenres(Set.of(new Genre(4, "Триллер"), new Genre(1, "Комедия"), new Genre(1, null)));
+		film.setDirectors(Set.of(raimi));
+		filmStorage.updateFilm(film);
+
+		Film updated = filmStorage.getFilmById(film.getId());
+		assertThat(updated.getName()).isEqualTo("Человек-паук 2");
+		assertThat(updated.getGenres()).extracting(Genre::getId).containsExactlyInAnyOrder(1, 4);
+		assertThat(updated.getDirectors()).extracting(Director::getId).containsExactly(raimi.getId());
+
+		// без жанров и режиссеров в запросе связи не меняются
+		film.setGenres(null);
+		film.setDirectors(null);
+		filmStorage.updateFilm(film);
+		updated = filmStorage.getFilmById(film.getId());
+		assertThat(updated.getGenres()).extracting(Genre::getId).containsExactlyInAnyOrder(1, 4);
+		assertThat(updated.getDirectors()).extracting(Director::getId).containsExactly(raimi.getId());
+
+		filmStorage.deleteFilmById(film.getId());
+		assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM film_director WHERE film_id = ?", Integer.class,
+				film.getId())).isZero();
+	}
+
+	@Test
+	public void testDeleteUserInvalidatesCachedFilms() throws Exception {
+		film = filmStorage.addFilm(film);
+		user = userStorage.addUser(user);
+		filmStorage.addLike(film.getId(), user.getId());
+		ResponseCacheFilter cacheFilter = new ResponseCacheFilter(resourceVersions, true);
+		FilterChain chain = (request, response) -> response.getOutputStream().write(String.valueOf(
+				filmStorage.getFilmById(film.getId()).getLikes().size()).getBytes(StandardCharsets.UTF_8));
+		String etag = cachedGet(cacheFilter, chain, "/films/" + film.getId(), null).getHeader(HttpHeaders.ETAG);
+
+		// вместе с пользователем удаляется его лайк, закэшированный ответ устарел
+		userService.deleteUserById(user.getId());
+
+		MockHttpServletResponse response = cachedGet(cacheFilter, chain, "/films/" + film.getId(), etag);
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo("0");
+	}
+
+	private static MockHttpServletResponse cachedGet(ResponseCacheFilter cacheFilter, FilterChain chain, String path,
+													 String ifNoneMatch) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		cacheFilter.doFilter(request, response, chain);
+		return response;
+	}
+
 	@Test
 	public void testAddAndRemoveLike() {
 		film = filmStorage.addFilm(film);
@@ -141,6 +448,76 @@ class FilmorateApplicationTests {
 		assertThat(filmStorage.getFilmById(film.getId()).getLikes()).isEmpty();
 	}
 
+	@Test
+	public void testFindEventsPage() {
+		user = userStorage.addUser(user);
+		for (int i = 1; i <= 5; i++) {
+			eventFeedStorage.createEventFeed(EventFeed.builder()
+					.userId(user.getId())
+					.timestamp(new Timestamp(i * 1000L))
+					.eventType(EventTypes.LIKE)
+					.operation(Operations.ADD)
+					.entityId(i)
+					.build());
+		}
+
+		List<EventFeed> latest = eventFeedStorage.findEvents(user.getId(), null, null, null, 2);
+		assertThat(latest).extracting(EventFeed::getEntityId).containsExactly(4, 5);
+
+		List<EventFeed> previous = eventFeedStorage.findEvents(user.getId(), latest.get(0).getEventId(),
+				null, null, 2);
+		assertThat(previous).extracting(EventFeed::getEntityId).containsExactly(2, 3);
+
+		List<EventFeed> inRange = eventFeedStorage.findEvents(user.getId(), null,
+				new Timestamp(2000), new Timestamp(4000), 10);
+		assertThat(inRange).extracting(EventFeed::getEntityId).containsExactly(2, 3);
+	}
+
+	@Test
+	public void testRejectedEventDoesNotDropBatch() {
+		user = userStorage.addUser(user);
+		long written = eventFeedWriter.getWrittenEvents();
+		// событие несуществующего пользователя отклоняется внешним ключом, остальные события пакета записываются
+		eventFeedWriter.write(likeEvent(user.getId(), 1));
+		eventFeedWriter.write(likeEvent(Integer.MAX_VALUE, 2));
+		eventFeedWriter.write(likeEvent(user.getId(), 3));
+		eventFeedWriter.flush();
+
+		assertThat(eventFeedStorage.findEvents(user.getId(), null, null, null, 10))
+				.extracting(EventFeed::getEntityId).containsExactly(1, 3);
+		assertThat(eventFeedWriter.getWrittenEvents() - written).isEqualTo(2);
+		assertThat(eventFeedWriter.getQueueDepth()).isZero();
+	}
+
+	@Test
+	public void testConcurrentReviewVotesKeepUsefulConsistent() throws InterruptedException {
+		review.setFilmId(filmStorage.addFilm(film).getId());
+		review.setUserId(userStorage.addUser(user).getId());
+		reviewStorage.addReview(review);
+		int voter = userStorage.addUser(secondUser).getId();
+
+		// один пользователь параллельно ставит и снимает оценки одного отзыва
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int thread = 0; thread < 8; thread++) {
+			int seed = thread;
+			executor.submit(() -> {
+				for (int i = 0; i < 50; i++) {
+					switch ((i + seed) % 3) {
+						case 0 -> reviewStorage.addLike(review.getReviewId(), voter);
+						case 1 -> reviewStorage.addDislike(review.getReviewId(), voter);
+						default -> reviewStorage.removeLike(review.getReviewId(), voter);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		int votes = jdbc.queryForObject("SELECT COALESCE(SUM(CASE WHEN is_like THEN 1 ELSE -1 END), 0) " +
+				"FROM review_likes WHERE review_id = ?", Integer.class, review.getReviewId());
+		assertThat(reviewStorage.getReviewById(review.getReviewId()).getUseful()).isEqualTo(votes);
+	}
+
 	@Test
 	public void testOperationWithGenres() {
 		assertThat(genreStorage.getAllGenres()).isNotEmpty();
@@ -204,6 +581,28 @@ class FilmorateApplicationTests {
 		assertThat(reviews).isEqualTo(List.of(secondReview));
 	}
 
+	@Test
+	public void testGetTopReviews() {
+		review.setFilmId(filmStorage.addFilm(film).getId());
+		secondReview.setFilmId(review.getFilmId());
+		review.setUserId(userStorage.addUser(user).getId());
+		secondReview.setUserId(review.getUserId());
+		reviewStorage.addReview(review);
+		reviewStorage.addReview(secondReview);
+		reviewStorage.addLike(secondReview.getReviewId(), user.getId());
+		reviewStorage.addDislike(review.getReviewId(), user.getId());
+		reviewStorage.addLike(review.getReviewId(), user.getId());
+		reviewStorage.addDislike(secondReview.getReviewId(), user.getId());
+
+		List<Review> reviews = reviewStorage.getTopReviews(review.getFilmId(), 10);
+		assertThat(reviews).extracting(Review::getReviewId)
+				.containsExactly(review.getReviewId(), secondReview.getReviewId());
+		assertThat(reviews).extracting(Review::getUseful).containsExactly(1, -1);
+		assertThat(reviewStorage.getTopReviews(null, 1)).extracting(Review::getReviewId)
+				.containsExactly(review.getReviewId());
+		assertThat(reviewStorage.getTopReviews(review.getFilmId() + 1, 10)).isEmpty();
+	}
+
 	@Test
 	public void testAddAndRemoveLikeReview() {
 		review.setFilmId(filmStorage.addFilm(film).getId());
@@ -233,4 +632,61 @@ class FilmorateApplicationTests {
 		thatReview = reviewStorage.getReviewById(review.getReviewId());
 		assertThat(thatReview).hasFieldOrPropertyWithValue("useful", 0);
 	}
+
+	private String friendshipStatus(int userId, int friendId) {
+		return jdbc.queryForObject("SELECT friendship_status FROM user_friends WHERE user_id = ? AND friend_id = ?",
+				String.class, userId, friendId);
+	}
+
+	@Test
+	public void testSnapshotExportAndRestore() {
+		userStorage.addUser(user);
+		userStorage.addUser(secondUser);
+		userStorage.addFriend(user.getId(), secondUser.getId(), "confirmed");
+		filmStorage.addFilm(film);
+		filmStorage.addFilm(secondFilm);
+		filmStorage.addLike(secondFilm.getId(), user.getId());
+		review.setFilmId(film.getId());
+		review.setUserId(secondUser.getId());
+		reviewStorage.addReview(review);
+		reviewStorage.addLike(review.getReviewId(), user.getId());
+		List<User> users = userStorage.getAllUsers();
+		List<Film> films = filmStorage.getAllFilms();
+		List<Review> reviews = reviewStorage.getAllReviews();
+
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		Map<String, Long> exported = snapshotService.exportSnapshot(snapshot);
+		filmStorage.removeLike(secondFilm.getId(), user.getId());
+		reviewStorage.deleteReviewById(review.getReviewId());
+		filmStorage.deleteFilmById(film.getId());
+		Map<String, Long> restored = snapshotService.restoreSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+
+		assertThat(restored).isEqualTo(exported).containsEntry("films_like", (long) jdbc.queryForObject(
+				"SELECT COUNT(*) FROM films_like", Integer.class));
+		assertThat(userStorage.getAllUsers()).isEqualTo(users);
+		assertThat(filmStorage.getAllFilms()).isEqualTo(films);
+		assertThat(reviewStorage.getAllReviews()).isEqualTo(reviews);
+		assertThat(friendshipStatus(user.getId(), secondUser.getId())).isEqualTo("confirmed");
+		// индексы в памяти пересобраны по восстановленным данным
+		assertThat(filmStorage.getMostPopularFilms(1, null, null)).extracting(Film::getId)
+				.containsExactly(secondFilm.getId());
+		// новые записи получают ID после восстановленных
+		Film newFilm = filmStorage.addFilm(Film.builder()
+				.name("Новый фильм")
+				.releaseDate(LocalDate.of(2000, 1, 1))
+				.duration(100)
+				.mpa(new Mpa(1, "G"))
+				.build());
+		assertThat(newFilm.getId()).isGreaterThan(secondFilm.getId());
+	}
+
+	private static EventFeed likeEvent(int userId, int filmId) {
+		return EventFeed.builder()
+				.userId(userId)
+				.timestamp(new Timestamp(System.currentTimeMillis()))
+				.eventType(EventTypes.LIKE)
+				.operation(Operations.ADD)
+				.entityId(filmId)
+				.build();
+	}
 }
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendSuggestionsCacheTest {
+    private final FriendSuggestionsCache cache = new FriendSuggestionsCache();
+
+    @Test
+    void friendshipChangeOfOtherUsersDoesNotPreventCaching() {
+        // дружба других пользователей изменилась, пока считались рекомендации первого
+        cache.get(1, userId -> {
+            cache.invalidate(Set.of(2, 3));
+            return List.of(4, 5);
+        });
+
+        assertThat(cache.get(1, userId -> List.of())).containsExactly(4, 5);
+    }
+
+    @Test
+    void suggestionsCalculatedBeforeOwnInvalidationAreNotCached() {
+        cache.get(1, userId -> {
+            cache.invalidate(Set.of(1));
+            return List.of(4);
+        });
+
+        assertThat(cache.get(1, userId -> List.of(5))).containsExactly(5);
+        assertThat(cache.get(1, userId -> List.of())).containsExactly(5);
+    }
+}
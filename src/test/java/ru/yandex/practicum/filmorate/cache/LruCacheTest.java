@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+    private final LruCache<Integer, String> cache = new LruCache<>("test", 2);
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        cache.put(1, "один");
+        cache.put(2, "два");
+        cache.getIfPresent(1);
+        cache.put(3, "три");
+
+        assertThat(cache.getIfPresent(1)).contains("один");
+        assertThat(cache.getIfPresent(2)).isEmpty();
+        assertThat(cache.getIfPresent(3)).contains("три");
+    }
+
+    @Test
+    void valueLoadedBeforeInvalidationIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        // ключ сбрасывается, пока загрузка читает старое значение
+        String stale = cache.get(1, key -> {
+            loads.incrementAndGet();
+            cache.invalidate(key);
+            return "старое";
+        });
+        assertThat(stale).isEqualTo("старое");
+        assertThat(cache.getIfPresent(1)).isEmpty();
+
+        assertThat(cache.get(1, key -> {
+            loads.incrementAndGet();
+            return "новое";
+        })).isEqualTo("новое");
+        assertThat(cache.get(1, key -> "не загружается")).isEqualTo("новое");
+        assertThat(loads).hasValue(2);
+    }
+}
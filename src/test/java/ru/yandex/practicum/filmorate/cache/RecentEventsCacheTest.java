@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.EventFeed;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentEventsCacheTest {
+    private final RecentEventsCache cache = new RecentEventsCache();
+
+    @Test
+    void writeOfOtherUserDoesNotPreventCaching() {
+        // события второго пользователя записаны, пока читались события первого
+        List<EventFeed> latest = cache.getLatest(1, 2, userId -> {
+            cache.invalidate(Set.of(2));
+            return events(userId, 3);
+        });
+        assertThat(latest).extracting(EventFeed::getEntityId).containsExactly(2, 3);
+
+        assertThat(cache.getLatest(1, 10, userId -> List.of())).hasSize(3);
+    }
+
+    @Test
+    void eventsReadBeforeWriteOfSameUserAreNotCached() {
+        cache.getLatest(1, 10, userId -> {
+            cache.invalidate(Set.of(1));
+            return events(userId, 1);
+        });
+
+        assertThat(cache.getLatest(1, 10, userId -> events(userId, 2))).hasSize(2);
+        assertThat(cache.getLatest(1, 10, userId -> List.of())).hasSize(2);
+    }
+
+    private static List<EventFeed> events(int userId, int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> EventFeed.builder().eventId(i).userId(userId).entityId(i).build())
+                .toList();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceTuningTest {
+    private static final String SETTINGS = "CACHE_SIZE=131072; write_delay=200;QUERY_CACHE_SIZE=128";
+
+    @Test
+    void settingsAreAppendedWithoutOverridingUrl() {
+        Map<String, String> settings = DataSourceTuning.parseSettings(SETTINGS);
+        assertThat(settings).containsExactly(Map.entry("CACHE_SIZE", "131072"), Map.entry("WRITE_DELAY", "200"),
+                Map.entry("QUERY_CACHE_SIZE", "128"));
+
+        assertThat(DataSourceTuning.withH2Settings("jdbc:h2:file:./db/filmorate", settings))
+                .isEqualTo("jdbc:h2:file:./db/filmorate;CACHE_SIZE=131072;WRITE_DELAY=200;QUERY_CACHE_SIZE=128");
+        // заданное в URL значение остаётся
+        assertThat(DataSourceTuning.withH2Settings("jdbc:h2:mem:test;cache_size=1024", settings))
+                .isEqualTo("jdbc:h2:mem:test;cache_size=1024;WRITE_DELAY=200;QUERY_CACHE_SIZE=128");
+        assertThat(DataSourceTuning.withH2Settings("jdbc:postgresql://localhost/filmorate", settings))
+                .isEqualTo("jdbc:postgresql://localhost/filmorate");
+    }
+
+    @Test
+    void poolIsSizedByCoresUnlessSetExplicitly() {
+        assertThat(new DataSourceTuning(true, 0, 2, "").poolSize(8)).isEqualTo(16);
+        assertThat(new DataSourceTuning(true, 0, 2, "").poolSize(1)).isEqualTo(2);
+        assertThat(new DataSourceTuning(true, 24, 2, "").poolSize(8)).isEqualTo(24);
+    }
+
+    @Test
+    void dataSourceIsTunedOnlyWhenEnabled() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:tuning");
+        new DataSourceTuning(false, 4, 2, SETTINGS).postProcessBeforeInitialization(dataSource, "dataSource");
+        assertThat(dataSource.getJdbcUrl()).isEqualTo("jdbc:h2:mem:tuning");
+
+        new DataSourceTuning(true, 4, 2, SETTINGS).postProcessBeforeInitialization(dataSource, "dataSource");
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(4);
+        assertThat(dataSource.getMinimumIdle()).isEqualTo(4);
+        assertThat(dataSource.getJdbcUrl()).endsWith(";QUERY_CACHE_SIZE=128");
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpLogSamplingTest {
+    private final HttpLogSampling sampling = new HttpLogSampling("GET /films/**=0.1, /films/**=0.5,/users/*/feed=0");
+
+    @Test
+    void firstMatchingRuleWins() {
+        assertThat(sampling.sampleRate("GET", "/films/1")).isEqualTo(0.1);
+        assertThat(sampling.sampleRate("get", "/films/popular")).isEqualTo(0.1);
+        assertThat(sampling.sampleRate("PUT", "/films/1/like/2")).isEqualTo(0.5);
+        assertThat(sampling.sampleRate("GET", "/users/3/feed")).isZero();
+        // без подходящего правила журналируется всё
+        assertThat(sampling.sampleRate("GET", "/users/3")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThatThrownBy(() -> HttpLogSampling.parseSampleRates("/films/**"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HttpLogSampling.parseSampleRates("/films/**=2"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(HttpLogSampling.parseSampleRates("")).isEmpty();
+    }
+}
@@ -1,21 +1,32 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
-
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.EventFeedService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.validation.ModelValidator;
 
-
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 class FilmControllerTest {
@@ -28,7 +39,9 @@ class FilmControllerTest {
 
     @BeforeEach
     public void beforeEach() {
-        filmController = new FilmController(new FilmService(new InMemoryFilmStorage(), directorDbStorage, eventFeedService, userService));
+        filmController = new FilmController(new FilmService(new InMemoryFilmStorage(null, null, null,
+                new PopularFilmsIndex(), new LikesIndex(), new FilmSearchIndex(), Optional.empty()), directorDbStorage, eventFeedService, userService,
+                new ResourceVersions()), new ObjectMapper().findAndRegisterModules());
     }
 
     @Test
@@ -99,4 +112,66 @@ class FilmControllerTest {
         assertFalse(film.getDuration() > 0);
         assertThrows(ValidationException.class, () -> filmController.addFilm(film));
     }
+
+    @Test
+    void getFilmsByKeysetPages() {
+        List<Integer> ids = addFilms(3);
+
+        assertEquals(ids.subList(0, 2), filmController.getFilms(null, 2).stream().map(Film::getId).toList());
+        assertEquals(ids.subList(2, 3), filmController.getFilms(ids.get(1), 2).stream().map(Film::getId).toList());
+        assertTrue(filmController.getFilms(ids.get(2), 2).isEmpty());
+    }
+
+    @Test
+    void getFilmsWithWrongLimit() {
+        assertThrows(ValidationException.class, () -> filmController.getFilms(null, 0));
+        assertThrows(ValidationException.class, () -> filmController.getFilms(null, ModelValidator.MAX_PAGE_SIZE + 1));
+        assertDoesNotThrow(() -> filmController.getFilms(null, ModelValidator.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void streamAllFilmsAsJsonArray() throws Exception {
+        List<Integer> ids = addFilms(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.streamAllFilms().getBody().writeTo(out);
+
+        Film[] streamed = new ObjectMapper().findAndRegisterModules().readValue(out.toByteArray(), Film[].class);
+        assertEquals(ids, List.of(streamed).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void limitTakesPrecedenceOverStream() throws Exception {
+        List<Integer> ids = addFilms(3);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(filmController).build();
+
+        // stream=true вместе с limit - обычная страница, а не потоковая выдача всех фильмов
+        mockMvc.perform(get("/films").param("stream", "true").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(ids.get(1)));
+    }
+
+    @Test
+    void searchFilmsValidatesFields() {
+        List<Integer> ids = addFilms(1);
+
+        // повтор поля не ошибка
+        assertEquals(ids, filmController.searchFilms("фильм", "title,title").stream().map(Film::getId).toList());
+        assertTrue(filmController.searchFilms("фильм", "director,director").isEmpty());
+        assertEquals(ids, filmController.searchFilms("фильм", "director, title").stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("фильм", "genre"));
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("фильм", "title,"));
+    }
+
+    private List<Integer> addFilms(int count) {
+        for (int i = 0; i < count; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(90)
+                    .build());
+        }
+        return filmController.getAllFilms().stream().map(Film::getId).toList();
+    }
 }
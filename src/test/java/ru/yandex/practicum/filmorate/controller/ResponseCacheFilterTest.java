@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+    private ResourceVersions resourceVersions;
+    private ResponseCacheFilter filter;
+    private int handlerCalls;
+
+    // Обработчик, который считает вызовы и возвращает номер вызова в теле
+    private final FilterChain chain = (request, response) -> {
+        handlerCalls++;
+        response.setContentType("application/json");
+        response.getOutputStream().write(("{\"call\":" + handlerCalls + "}").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @BeforeEach
+    public void beforeEach() {
+        resourceVersions = new ResourceVersions();
+        filter = new ResponseCacheFilter(resourceVersions, true);
+        handlerCalls = 0;
+    }
+
+    @Test
+    void repeatedRequestIsServedFromCache() throws ServletException, IOException {
+        MockHttpServletResponse first = get("/films/popular", "count=10", null);
+        MockHttpServletResponse second = get("/films/popular", "count=10", null);
+
+        assertThat(handlerCalls).isEqualTo(1);
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader(HttpHeaders.ETAG)).isNotNull();
+        assertThat(second.getContentAsString()).isEqualTo("{\"call\":1}");
+        assertThat(second.getContentType()).isEqualTo("application/json");
+        assertThat(second.getHeader(HttpHeaders.ETAG)).isEqualTo(first.getHeader(HttpHeaders.ETAG));
+
+        // другой набор параметров - другой ответ
+        get("/films/popular", "count=5", null);
+        assertThat(handlerCalls).isEqualTo(2);
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModified() throws ServletException, IOException {
+        String etag = get("/genres", null, null).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse notModified = get("/genres", null, "\"other\", " + etag);
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+        assertThat(handlerCalls).isEqualTo(1);
+    }
+
+    @Test
+    void versionBumpInvalidatesOnlyItsResource() throws ServletException, IOException {
+        String filmEtag = get("/films/1", null, null).getHeader(HttpHeaders.ETAG);
+        get("/directors", null, null);
+
+        resourceVersions.bump(Resource.FILMS);
+
+        MockHttpServletResponse film = get("/films/1", null, filmEtag);
+        assertThat(film.getStatus()).isEqualTo(200);
+        assertThat(film.getContentAsString()).isEqualTo("{\"call\":3}");
+        assertThat(film.getHeader(HttpHeaders.ETAG)).isNotEqualTo(filmEtag);
+
+        get("/directors", null, null);
+        assertThat(handlerCalls).isEqualTo(3);
+    }
+
+    @Test
+    void onlyListedResourcesAreCached() {
+        assertThat(ResponseCacheFilter.resourceOf("/films/12")).isEqualTo(Resource.FILMS);
+        assertThat(ResponseCacheFilter.resourceOf("/reviews")).isEqualTo(Resource.REVIEWS);
+        assertThat(ResponseCacheFilter.resourceOf("/mpa/1")).isEqualTo(Resource.MPA);
+        assertThat(ResponseCacheFilter.resourceOf("/films")).isNull();
+        assertThat(ResponseCacheFilter.resourceOf("/films/search")).isNull();
+        assertThat(ResponseCacheFilter.resourceOf("/films/12/like/3")).isNull();
+        assertThat(ResponseCacheFilter.resourceOf("/users/1/friends")).isNull();
+    }
+
+    private MockHttpServletResponse get(String path, String query, String ifNoneMatch)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
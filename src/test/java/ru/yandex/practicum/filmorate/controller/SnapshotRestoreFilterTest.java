@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotRestoreFilterTest {
+    private final SnapshotRestoreFilter filter = new SnapshotRestoreFilter();
+
+    @Test
+    void writeWaitsForRestore() throws Exception {
+        CountDownLatch restoreStarted = new CountDownLatch(1);
+        CountDownLatch finishRestore = new CountDownLatch(1);
+        AtomicBoolean restoring = new AtomicBoolean();
+        AtomicBoolean writtenDuringRestore = new AtomicBoolean();
+
+        CompletableFuture<Integer> restore = CompletableFuture.supplyAsync(() -> filter.exclusive(() -> {
+            restoring.set(true);
+            restoreStarted.countDown();
+            await(finishRestore);
+            restoring.set(false);
+            return 1;
+        }));
+        assertThat(restoreStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> doFilter("PUT", "/films",
+                () -> writtenDuringRestore.set(restoring.get())));
+        // чтение и сам запрос восстановления не блокируются
+        doFilter("GET", "/films", () -> { });
+        doFilter("POST", "/snapshot", () -> { });
+        assertThat(write).isNotDone();
+
+        finishRestore.countDown();
+        assertThat(restore.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        write.get(5, TimeUnit.SECONDS);
+        assertThat(writtenDuringRestore).isFalse();
+    }
+
+    private void doFilter(String method, String path, Runnable handler) {
+        try {
+            filter.doFilter(new MockHttpServletRequest(method, path), new MockHttpServletResponse(),
+                    (request, response) -> handler.run());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
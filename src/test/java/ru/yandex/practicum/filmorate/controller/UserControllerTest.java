@@ -1,15 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.EventFeedService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.validation.ModelValidator;
 
 import java.time.LocalDate;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,7 +30,14 @@ class UserControllerTest {
 
     @BeforeEach
     public void beforeEach() {
-        userController = new UserController(new UserService(new InMemoryUserStorage(), new InMemoryFilmStorage(), eventFeedService), eventFeedService);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(null, null, null, new PopularFilmsIndex(),
+                new LikesIndex(), new FilmSearchIndex(), Optional.empty());
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(new FriendsIndex(), new FriendSuggestionsCache(),
+                filmStorage, Optional.empty());
+        userController = new UserController(new UserService(userStorage, filmStorage, eventFeedService, new LikesIndex(),
+                new ResourceVersions()),
+                eventFeedService, new FriendSuggestionService(userStorage, new LikesIndex(),
+                new FriendSuggestionsCache()), new ObjectMapper());
     }
 
     @Test
@@ -104,4 +121,11 @@ class UserControllerTest {
 
         assertThrows(ValidationException.class, () -> userController.addUser(user));
     }
+
+    @Test
+    void getUsersWithWrongLimit() {
+        assertThrows(ValidationException.class, () -> userController.getUsers(null, 0));
+        assertThrows(ValidationException.class, () -> userController.getUsers(null, ModelValidator.MAX_PAGE_SIZE + 1));
+        assertTrue(userController.getUsers(null, ModelValidator.MAX_PAGE_SIZE).isEmpty());
+    }
 }
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions.Resource;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Буфер пишет в отдельной транзакции, поэтому данные теста фиксируются, а не откатываются.
+// Фоновая запись отключена длинным интервалом: буфер записывается явным flush()
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "filmorate.likes.flush-interval-ms=600000")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {FilmDbStorage.class, FilmRowMapper.class, UserDbStorage.class, UserRowMapper.class,
+        GenreDbStorage.class, GenreRowMapper.class, GenreService.class, MpaDbStorage.class, MpaRowMapper.class,
+        MpaService.class, DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class,
+        PopularFilmsIndex.class, LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class,
+        FriendSuggestionsCache.class, ResourceVersions.class, LikeWriteBuffer.class, BackgroundThreads.class})
+class LikeWriteBufferTest {
+    private static int nextUser; // данные фиксируются, поэтому логины между тестами не повторяются
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final ResourceVersions resourceVersions;
+    private final JdbcTemplate jdbc;
+
+    @Test
+    void likesAreVisibleBeforeWriteAndWrittenOnFlush() {
+        Film film = addFilm();
+        List<User> users = addUsers(3);
+        users.forEach(user -> filmStorage.addLike(film.getId(), user.getId()));
+        filmStorage.addLike(film.getId(), users.get(0).getId());
+
+        Set<Integer> userIds = Set.of(users.get(0).getId(), users.get(1).getId(), users.get(2).getId());
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).isEqualTo(userIds);
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(3);
+        assertThat(storedLikes(film)).isEmpty();
+
+        likeWriteBuffer.flush();
+        assertThat(storedLikes(film)).isEqualTo(userIds);
+        assertThat(likeCount(film)).isEqualTo(3);
+        assertThat(likeWriteBuffer.getPendingLikes()).isZero();
+    }
+
+    @Test
+    void likeFlapsAreCoalesced() {
+        Film film = addFilm();
+        List<User> users = addUsers(2);
+        int first = users.get(0).getId();
+        int second = users.get(1).getId();
+        filmStorage.addLike(film.getId(), first);
+        likeWriteBuffer.flush();
+        long written = likeWriteBuffer.getWrittenChanges();
+
+        // лайк и отмена нового лайка, отмена и возврат записанного: в БД писать нечего
+        filmStorage.addLike(film.getId(), second);
+        filmStorage.removeLike(film.getId(), second);
+        filmStorage.removeLike(film.getId(), first);
+        filmStorage.addLike(film.getId(), first);
+        assertThat(likeWriteBuffer.getPendingLikes()).isZero();
+        // нечётное число изменений оставляет одно
+        filmStorage.removeLike(film.getId(), first);
+        filmStorage.addLike(film.getId(), first);
+        filmStorage.removeLike(film.getId(), first);
+        assertThat(likeWriteBuffer.getPendingLikes()).isEqualTo(1);
+
+        likeWriteBuffer.flush();
+        assertThat(likeWriteBuffer.getWrittenChanges() - written).isEqualTo(1);
+        assertThat(storedLikes(film)).isEmpty();
+        assertThat(likeCount(film)).isZero();
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).isEmpty();
+    }
+
+    @Test
+    void concurrentLikesOfOneFilmMatchDatabaseAfterFlush() throws InterruptedException {
+        Film film = addFilm();
+        List<User> users = addUsers(200);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int thread = 0; thread < 16; thread++) {
+            int seed = thread;
+            executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    int userId = users.get((i * 31 + seed * 7) % users.size()).getId();
+                    if ((i + seed) % 3 == 0) {
+                        filmStorage.removeLike(film.getId(), userId);
+                    } else {
+                        filmStorage.addLike(film.getId(), userId);
+                    }
+                    if (i % 100 == 0) {
+                        likeWriteBuffer.flush();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        Set<Integer> visible = filmStorage.getFilmById(film.getId()).getLikes();
+        likeWriteBuffer.flush();
+        assertThat(storedLikes(film)).isEqualTo(visible);
+        assertThat(likeCount(film)).isEqualTo(visible.size());
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(visible.size());
+    }
+
+    @Test
+    void rejectedLikesAreRevertedInIndexes() {
+        Film film = addFilm();
+        List<User> users = addUsers(2);
+        filmStorage.addLike(film.getId(), users.get(0).getId());
+        filmStorage.addLike(film.getId(), users.get(1).getId());
+        // пользователь удалён до записи лайка: внешний ключ отклоняет только его лайк
+        jdbc.update("DELETE FROM users WHERE id = ?", users.get(1).getId());
+        long filmsVersion = resourceVersions.get(Resource.FILMS);
+
+        likeWriteBuffer.flush();
+        // ответы с отменённым лайком больше не отдаются из кэша
+        assertThat(resourceVersions.get(Resource.FILMS)).isGreaterThan(filmsVersion);
+        assertThat(storedLikes(film)).containsExactly(users.get(0).getId());
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).containsExactly(users.get(0).getId());
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(1);
+        assertThat(likeCount(film)).isEqualTo(1);
+    }
+
+    @Test
+    void likesOfUnknownFilmOrUserAreRejected() {
+        Film film = addFilm();
+        int userId = addUsers(1).get(0).getId();
+        assertThatThrownBy(() -> filmStorage.addLike(-1, userId)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> filmStorage.addLike(film.getId(), -1)).isInstanceOf(NotFoundException.class);
+        assertThat(likeWriteBuffer.getPendingLikes()).isZero();
+    }
+
+    private Film addFilm() {
+        return filmStorage.addFilm(Film.builder()
+                .name("Вирусный фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1, null))
+                .build());
+    }
+
+    private List<User> addUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int number = nextUser++;
+            users.add(User.builder()
+                    .email("fan" + number + "@mail.ru")
+                    .login("fan" + number)
+                    .name("Зритель " + number)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        return userStorage.addUsers(users);
+    }
+
+    private Set<Integer> storedLikes(Film film) {
+        return new HashSet<>(jdbc.queryForList("SELECT user_id FROM films_like WHERE film_id = ?", Integer.class,
+                film.getId()));
+    }
+
+    private int likeCount(Film film) {
+        return jdbc.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, film.getId());
+    }
+}
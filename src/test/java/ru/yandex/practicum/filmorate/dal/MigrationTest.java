@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка миграций на БД, созданной исходной схемой (db/baseline_schema.sql) до перехода на Flyway
+ * и принятой за версию 1: после миграции её схема должна совпадать со схемой новой БД,
+ * то есть изменения схемы должны попадать в новые миграции, а не в V1
+ */
+
+class MigrationTest {
+    private static final String COLUMNS = "SELECT table_name || '.' || column_name || ' ' || data_type " +
+            "FROM information_schema.columns WHERE table_schema = 'PUBLIC' " +
+            "AND table_name <> 'flyway_schema_history' ORDER BY 1";
+    // имена индексов внешних ключей и ключей генерируются H2, поэтому сравниваются только заданные в миграциях
+    private static final String INDEXES = "SELECT table_name || '.' || index_name FROM information_schema.indexes " +
+            "WHERE table_schema = 'PUBLIC' AND index_name NOT LIKE 'CONSTRAINT%' AND index_name NOT LIKE 'PRIMARY%' " +
+            "AND table_name <> 'flyway_schema_history' ORDER BY 1";
+
+    @Test
+    void databaseBaselinedAtFirstVersionMatchesNewDatabase() throws SQLException {
+        JdbcTemplate created = migrate("created", false);
+        JdbcTemplate baselined = migrate("baselined", true);
+
+        assertThat(baselined.queryForList(COLUMNS, String.class))
+                .isEqualTo(created.queryForList(COLUMNS, String.class))
+                .contains("FILMS.LIKE_COUNT INTEGER");
+        assertThat(baselined.queryForList(INDEXES, String.class))
+                .isEqualTo(created.queryForList(INDEXES, String.class))
+                .contains("EVENT_FEED.EVENT_FEED_USER_EVENT_IDX");
+        assertThat(baselined.queryForObject("SELECT like_count FROM films WHERE id = 1", Integer.class)).isEqualTo(1);
+
+        created.execute("DROP ALL OBJECTS");
+        baselined.execute("DROP ALL OBJECTS");
+    }
+
+    // Новая БД проходит все миграции; существующая создаётся исходной схемой с лайком и принимается за версию 1
+    private static JdbcTemplate migrate(String name, boolean existing) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        if (existing) {
+            try (Connection connection = dataSource.getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/baseline_schema.sql"));
+            }
+            for (String sql : List.of("INSERT INTO films_rating(id, name) VALUES (1, 'G')",
+                    "INSERT INTO films(name, rating_id) VALUES ('Фильм', 1)",
+                    "INSERT INTO users(login) VALUES ('login')",
+                    "INSERT INTO films_like(film_id, user_id) VALUES (1, 1)")) {
+                jdbc.update(sql);
+            }
+        }
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(existing)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        return jdbc;
+    }
+}
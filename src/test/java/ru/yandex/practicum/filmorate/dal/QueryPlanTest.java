@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка планов выполнения частых запросов (H2 EXPLAIN): каждая таблица должна читаться по индексу с условием,
+ * а не полным просмотром
+ */
+
+@JdbcTest
+@AutoConfigureTestDatabase
+class QueryPlanTest {
+    // Просмотр таблицы целиком: "/* PUBLIC.FILMS.tableScan */" или индекс без условия "/* PUBLIC.PRIMARY_KEY_3 */"
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.\\w+(\\.tableScan)? \\*/");
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    public void filmQueriesUseIndexes() {
+        assertUsesIndexes(FilmDbStorage.FIND_LIKES_BY_FILMS);
+        assertUsesIndexes(FilmDbStorage.FIND_USER_ID_FROM_LIKES);
+        assertUsesIndexes(FilmDbStorage.INSERT_QUERY_LIKE);
+        assertUsesIndexes(FilmDbStorage.LIKE_EXISTS_QUERY);
+        assertUsesIndexes(FilmDbStorage.FIND_EXISTING_LIKES);
+        assertUsesIndexes(FilmDbStorage.DELETE_QUERY_LIKE);
+        assertUsesIndexes(FilmDbStorage.FIND_FILM_IDS_LIKED_BY_USER);
+        assertUsesIndexes(FilmDbStorage.DELETE_USER_LIKES_QUERY);
+        assertUsesIndexes(LikeWriteBuffer.MERGE_LIKE);
+        assertUsesIndexes(FilmDbStorage.UPDATE_LIKE_COUNT);
+        assertUsesIndexes(FilmDbStorage.SORTING_FILMS_BY_YEARS);
+        assertUsesIndexes(FilmDbStorage.SORTING_FILMS_BY_LIKES);
+        assertUsesIndexes(FilmDbStorage.FIND_FILMS_BY_IDS);
+        assertUsesIndexes(FilmDbStorage.FIND_PAGE_QUERY);
+        assertUsesIndexes(GenreDbStorage.FIND_GENRES_BY_FILMS);
+        assertUsesIndexes(DirectorDbStorage.FIND_DIRECTORS_BY_FILMS);
+    }
+
+    @Test
+    public void userQueriesUseIndexes() {
+        assertUsesIndexes(UserDbStorage.FIND_USER_FRIENDS);
+        assertUsesIndexes(UserDbStorage.FIND_PAGE_QUERY);
+        assertUsesIndexes(UserDbStorage.FIND_COMMON_FRIENDS);
+        assertUsesIndexes(UserDbStorage.FIND_USERS_BY_IDS);
+    }
+
+    @Test
+    public void reviewQueriesUseIndexes() {
+        assertUsesIndexes(ReviewDbStorage.FIND_BY_ID_QUERY);
+        assertUsesIndexes(ReviewDbStorage.GET_QUERY_LIKE);
+        assertUsesIndexes(ReviewDbStorage.LOCK_REVIEW_QUERY);
+        assertIndexSorted(ReviewDbStorage.FIND_TOP_BY_FILM_QUERY);
+        assertIndexSorted(ReviewDbStorage.FIND_TOP_QUERY);
+    }
+
+    @Test
+    public void eventFeedQueriesUseIndexes() {
+        assertUsesIndexes(EventFeedDbStorage.FIND_EVENT_FEED);
+        assertUsesIndexes("SELECT * FROM event_feed WHERE user_id = ? AND event_id < ? ORDER BY event_id DESC LIMIT ?");
+    }
+
+    private void assertUsesIndexes(String query) {
+        String plan = explain(query);
+        assertThat(FULL_SCAN.matcher(plan).find())
+                .as("Полный просмотр таблицы в плане запроса:%n%s", plan)
+                .isFalse();
+    }
+
+    // Строки читаются из индекса в порядке ORDER BY, поэтому LIMIT не требует сортировки всей выборки
+    private void assertIndexSorted(String query) {
+        String plan = explain(query);
+        assertThat(plan)
+                .as("Запрос сортирует выборку вместо чтения индекса по порядку:%n%s", plan)
+                .contains("/* index sorted */");
+    }
+
+    private String explain(String query) {
+        int paramCount = query.length() - query.replace("?", "").length();
+        return jdbc.queryForObject("EXPLAIN " + query, String.class, new Object[paramCount]);
+    }
+}
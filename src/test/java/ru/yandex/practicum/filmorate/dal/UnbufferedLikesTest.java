@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Лайки без буфера пишутся в транзакции запроса; параллельные транзакции должны фиксироваться,
+// поэтому данные теста не откатываются
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "filmorate.likes.buffered=false")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {FilmDbStorage.class, FilmRowMapper.class, UserDbStorage.class, UserRowMapper.class,
+        GenreDbStorage.class, GenreRowMapper.class, GenreService.class, MpaDbStorage.class, MpaRowMapper.class,
+        MpaService.class, DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class,
+        PopularFilmsIndex.class, LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class,
+        FriendSuggestionsCache.class, ResourceVersions.class})
+class UnbufferedLikesTest {
+    private static int nextUser; // данные фиксируются, поэтому логины между тестами не повторяются
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikesIndex likesIndex;
+    private final JdbcTemplate jdbc;
+
+    @Test
+    void concurrentDuplicateLikesAreCountedOnce() throws Exception {
+        Film film = addFilm();
+        List<User> users = addUsers(20);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> results = new ArrayList<>();
+        for (User user : users) {
+            CountDownLatch start = new CountDownLatch(1);
+            for (int thread = 0; thread < 16; thread++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    filmStorage.addLike(film.getId(), user.getId());
+                    return null;
+                }));
+            }
+            start.countDown();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        for (Future<?> result : results) {
+            result.get(); // повторный лайк не должен завершаться ошибкой
+        }
+
+        Set<Integer> userIds = new HashSet<>(users.stream().map(User::getId).toList());
+        assertThat(storedLikes(film)).isEqualTo(userIds);
+        assertThat(likeCount(film)).isEqualTo(users.size());
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(users.size());
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).isEqualTo(userIds);
+    }
+
+    @Test
+    void concurrentLikesAndRemovalsMatchDatabase() throws InterruptedException {
+        Film film = addFilm();
+        List<User> users = addUsers(10);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int thread = 0; thread < 16; thread++) {
+            int seed = thread;
+            executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    int userId = users.get((i * 31 + seed * 7) % users.size()).getId();
+                    if ((i + seed) % 2 == 0) {
+                        filmStorage.removeLike(film.getId(), userId);
+                    } else {
+                        filmStorage.addLike(film.getId(), userId);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        Set<Integer> stored = storedLikes(film);
+        assertThat(likeCount(film)).isEqualTo(stored.size());
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(stored.size());
+        assertThat(toSet(likesIndex.getLikedUserIds(film.getId()))).isEqualTo(stored);
+    }
+
+    private Film addFilm() {
+        return filmStorage.addFilm(Film.builder()
+                .name("Фильм без буфера")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1, null))
+                .build());
+    }
+
+    private List<User> addUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int number = nextUser++;
+            users.add(User.builder()
+                    .email("direct" + number + "@mail.ru")
+                    .login("direct" + number)
+                    .name("Зритель " + number)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        return userStorage.addUsers(users);
+    }
+
+    private Set<Integer> storedLikes(Film film) {
+        return new HashSet<>(jdbc.queryForList("SELECT user_id FROM films_like WHERE film_id = ?", Integer.class,
+                film.getId()));
+    }
+
+    private int likeCount(Film film) {
+        return jdbc.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, film.getId());
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> result = new HashSet<>();
+        for (int id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
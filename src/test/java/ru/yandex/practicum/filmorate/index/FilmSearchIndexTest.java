@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new FilmSearchIndex();
+        index.rebuild(
+                Map.of(1, "Крадущийся тигр", 2, "Бэтман", 3, "Тайна третьей планеты"),
+                Map.of(10, "Энг Ли", 11, "Кристофер Нолан"),
+                Map.of(1, Set.of(10), 2, Set.of(11)));
+    }
+
+    @Test
+    void searchByTitleIgnoresCase() {
+        assertThat(index.search("КРАД", true, false)).containsExactly(1);
+        assertThat(index.search("тай", true, false)).containsExactly(3);
+        assertThat(index.search("т", true, false)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(index.search("нолан", true, false)).isEmpty();
+    }
+
+    @Test
+    void searchByDirectorAndTitle() {
+        assertThat(index.search("нолан", false, true)).containsExactly(2);
+        assertThat(index.search("ли", true, true)).containsExactly(1);
+        assertThat(index.search("тигр", true, true)).containsExactly(1);
+    }
+
+    @Test
+    void indexFollowsChanges() {
+        index.putFilm(2, "Тёмный рыцарь", Set.of(11));
+        assertThat(index.search("бэтман", true, false)).isEmpty();
+        assertThat(index.search("рыцарь", true, false)).containsExactly(2);
+
+        index.putDirector(11, "Нолан К.");
+        assertThat(index.search("кристофер", false, true)).isEmpty();
+        assertThat(index.search("нолан", false, true)).containsExactly(2);
+
+        index.removeDirector(11);
+        assertThat(index.search("нолан", false, true)).isEmpty();
+
+        index.removeFilm(1);
+        assertThat(index.search("тигр", true, false)).isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendsIndexTest {
+    private FriendsIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new FriendsIndex();
+        // {user_id, friend_id}
+        index.rebuild(List.of(
+                new int[]{1, 2}, new int[]{1, 3}, new int[]{1, 4},
+                new int[]{2, 3}, new int[]{2, 4}, new int[]{2, 5},
+                new int[]{3, 1}, new int[]{3, 6}
+        ));
+    }
+
+    @Test
+    void commonFriendsAndDegree() {
+        assertThat(index.getCommonFriendIds(1, 2)).containsExactly(3, 4);
+        assertThat(index.getCommonFriendIds(1, 100)).isEmpty();
+        assertThat(index.degree(1)).isEqualTo(3);
+        assertThat(index.degree(100)).isZero();
+        assertThat(index.isFriend(3, 1)).isTrue();
+        assertThat(index.isFriend(1, 5)).isFalse();
+    }
+
+    @Test
+    void friendsOfFriendsExcludeUserAndDirectFriends() {
+        assertThat(index.getFriendsOfFriendIds(1)).containsExactly(5, 6);
+        assertThat(index.getFriendsOfFriendIds(3)).containsExactly(2, 4);
+    }
+
+    @Test
+    void indexUpdatedIncrementally() {
+        index.addFriend(1, 5);
+        index.addFriend(1, 5);
+        assertThat(index.getFriendIds(1)).containsExactly(2, 3, 4, 5);
+
+        index.removeFriend(1, 2);
+        assertThat(index.getFriendIds(1)).containsExactly(3, 4, 5);
+        assertThat(index.getCommonFriendIds(1, 2)).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    void removedUserDisappearsFromAllLists() {
+        index.removeUser(3);
+        assertThat(index.getFriendIds(3)).isEmpty();
+        assertThat(index.getFriendIds(1)).containsExactly(2, 4);
+        assertThat(index.getFriendIds(2)).containsExactly(4, 5);
+        assertThat(index.getFriendsOfFriendIds(1)).containsExactly(5);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikesIndexTest {
+    private LikesIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new LikesIndex();
+        // {film_id, user_id}
+        index.rebuild(List.of(
+                new int[]{1, 1}, new int[]{2, 1},
+                new int[]{1, 2}, new int[]{2, 2}, new int[]{3, 2},
+                new int[]{1, 3}, new int[]{4, 3}
+        ));
+    }
+
+    @Test
+    void recommendFilmsOfMostSimilarUser() {
+        assertThat(index.findMostSimilarUser(1)).isEqualTo(2);
+        assertThat(index.recommendFilmIds(1)).containsExactly(3);
+    }
+
+    @Test
+    void recommendNothingWithoutCommonLikes() {
+        index.addLike(5, 4);
+        assertThat(index.findMostSimilarUser(4)).isEqualTo(-1);
+        assertThat(index.recommendFilmIds(4)).isEmpty();
+        assertThat(index.recommendFilmIds(100)).isEmpty();
+    }
+
+    @Test
+    void tieIsBrokenBySmallerUserIdEvenForLargeIds() {
+        index.addLike(3, Integer.MAX_VALUE);
+        index.addLike(4, 5);
+        assertThat(index.findMostSimilarUser(2)).isEqualTo(1);
+        assertThat(index.findMostSimilarUser(3)).isEqualTo(1);
+        index.removeLike(1, 1);
+        assertThat(index.findMostSimilarUser(3)).isEqualTo(2);
+        assertThat(index.findMostSimilarUser(Integer.MAX_VALUE)).isEqualTo(2);
+    }
+
+    @Test
+    void indexUpdatedIncrementally() {
+        index.addLike(4, 1);
+        index.addLike(5, 3);
+        index.removeLike(2, 2);
+        assertThat(index.getLikedFilmIds(1)).containsExactly(1, 2, 4);
+        assertThat(index.findMostSimilarUser(1)).isEqualTo(3);
+        assertThat(index.recommendFilmIds(1)).containsExactly(5);
+
+        index.removeFilm(1);
+        assertThat(index.getCommonFilmIds(1, 3)).containsExactly(4);
+    }
+
+    @Test
+    void mostSimilarUserMatchesPairwiseOverlapCount() {
+        Random random = new Random(42);
+        index = new LikesIndex();
+        for (int i = 0; i < 2000; i++) {
+            index.addLike(1 + random.nextInt(60), 1 + random.nextInt(80));
+        }
+        for (int userId = 1; userId <= 80; userId++) {
+            int expected = -1;
+            int maxOverlap = 0;
+            for (int otherUserId = 1; otherUserId <= 80; otherUserId++) {
+                int overlap = index.getCommonFilmIds(userId, otherUserId).length;
+                if (otherUserId != userId && overlap > maxOverlap) {
+                    maxOverlap = overlap;
+                    expected = otherUserId;
+                }
+            }
+            assertThat(index.findMostSimilarUser(userId)).isEqualTo(expected);
+        }
+    }
+}
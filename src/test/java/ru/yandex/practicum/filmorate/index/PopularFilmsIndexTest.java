@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularFilmsIndexTest {
+    private PopularFilmsIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new PopularFilmsIndex();
+        index.rebuild(List.of(
+                new PopularFilmsIndex.FilmEntry(1, 5, 1999, Set.of(1, 2)),
+                new PopularFilmsIndex.FilmEntry(2, 10, 2005, Set.of(2)),
+                new PopularFilmsIndex.FilmEntry(3, 1, 1999, Set.of(3))
+        ));
+    }
+
+    @Test
+    void getTopFilmIdsOrderedByLikes() {
+        assertThat(index.getTopFilmIds(null, null, null)).containsExactly(2, 1, 3);
+        assertThat(index.getTopFilmIds(2, null, null)).containsExactly(2, 1);
+    }
+
+    @Test
+    void getTopFilmIdsFilteredByGenreAndYear() {
+        assertThat(index.getTopFilmIds(10, 2, null)).containsExactly(2, 1);
+        assertThat(index.getTopFilmIds(10, null, 1999)).containsExactly(1, 3);
+        assertThat(index.getTopFilmIds(10, 2, 1999)).containsExactly(1);
+        assertThat(index.getTopFilmIds(10, 6, null)).isEmpty();
+    }
+
+    @Test
+    void changeLikesMovesFilm() {
+        index.changeLikes(3, 20);
+        assertThat(index.getTopFilmIds(1, null, null)).containsExactly(3);
+
+        index.putFilm(3, 2005, Set.of(1));
+        assertThat(index.getTopFilmIds(10, 3, null)).isEmpty();
+        assertThat(index.getTopFilmIds(10, 1, null)).containsExactly(3, 1);
+
+        index.removeFilm(3);
+        assertThat(index.getTopFilmIds(null, null, null)).containsExactly(2, 1);
+    }
+
+    @Test
+    void concurrentLikesKeepCountsConsistent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> index.changeLikes(3, 1));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(index.getTopFilmIds(null, null, null)).containsExactly(3, 2, 1);
+        index.changeLikes(3, -995);
+        assertThat(index.getTopFilmIds(null, null, null)).containsExactly(2, 3, 1);
+    }
+}
@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.GenreDbStorage;
+import ru.yandex.practicum.filmorate.dal.MpaDbStorage;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryReviewStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {GenreDbStorage.class, GenreRowMapper.class, GenreService.class, MpaDbStorage.class,
+        MpaRowMapper.class, MpaService.class, DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class,
+        FilmSearchIndex.class, ResourceVersions.class})
+class JournalRecoveryTest {
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final DirectorService directorService;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void stateSurvivesRestartFromCheckpointAndLogTail() throws Exception {
+        Director director = directorService.addDirector(new Director(0, "Режиссер журнала"));
+        List<Film> filmsBefore;
+        List<User> usersBefore;
+        List<Review> reviewsBefore;
+        try (Instance first = new Instance()) {
+            List<User> users = first.users.addUsers(List.of(user("a"), user("b"), user("c")));
+            int a = users.get(0).getId();
+            int b = users.get(1).getId();
+            int c = users.get(2).getId();
+            first.users.addFriend(a, b, "unconfirmed");
+            first.users.addFriend(a, c, "unconfirmed");
+            Film film = film("Журнал", director);
+            Film deleted = film("Удаляемый", director);
+            first.films.addFilms(List.of(film, deleted));
+            first.films.addLike(film.getId(), a);
+            first.films.addLike(film.getId(), b);
+            first.films.addLike(film.getId(), c);
+            Review review = first.reviews.addReview(new Review(0, film.getId(), a, "Отзыв", true, 0));
+            first.reviews.addLike(review.getReviewId(), b);
+            first.checkpointer.checkpoint();
+
+            // изменения после снимка восстанавливаются из хвоста журнала
+            first.users.deleteUserById(c);
+            first.users.removeFriend(a, b);
+            first.users.addFriend(b, a, "unconfirmed");
+            film.setName("Журнал, обновлённый");
+            film.setGenres(Set.of(new Genre(2, null), new Genre(5, null)));
+            first.films.updateFilm(film);
+            first.films.removeLike(film.getId(), a);
+            first.films.deleteFilmById(deleted.getId());
+            first.reviews.addDislike(review.getReviewId(), b);
+            first.reviews.addReview(new Review(0, film.getId(), b, "Второй отзыв", false, 0));
+
+            filmsBefore = first.films.getAllFilms();
+            usersBefore = first.users.getAllUsers();
+            reviewsBefore = first.reviews.getAllReviews();
+            assertThat(checkpoints()).hasSize(1);
+        }
+
+        try (Instance second = new Instance()) {
+            assertThat(second.films.getAllFilms()).isEqualTo(filmsBefore);
+            assertThat(second.users.getAllUsers()).isEqualTo(usersBefore);
+            assertThat(second.reviews.getAllReviews()).isEqualTo(reviewsBefore);
+            int a = usersBefore.get(0).getId();
+            int b = usersBefore.get(1).getId();
+            assertThat(second.users.getFriendIds(a)).isEmpty();
+            assertThat(second.users.getFriendIds(b)).containsExactly(a);
+            assertThat(second.films.sortingFilms(director.getId(), "year")).extracting(Film::getId)
+                    .containsExactly(filmsBefore.get(0).getId());
+            assertThat(second.reviews.getReviewById(reviewsBefore.get(0).getReviewId()).getUseful()).isEqualTo(-1);
+            // удалённый фильм с наибольшим ID не выдаётся повторно
+            assertThat(second.films.addFilm(film("Новый", director)).getId()).isEqualTo(3);
+
+            second.checkpointer.checkpoint();
+        }
+        assertThat(checkpoints()).hasSize(1);
+
+        try (Instance third = new Instance()) {
+            assertThat(third.films.getAllFilms()).extracting(Film::getName)
+                    .containsExactly("Журнал, обновлённый", "Новый");
+            assertThat(third.users.getAllUsers()).isEqualTo(usersBefore);
+            assertThat(third.reviews.getAllReviews()).isEqualTo(reviewsBefore);
+        }
+    }
+
+    private List<Path> checkpoints() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".chk")).toList();
+        }
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film film(String name, Director director) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(1970, 1, 1))
+                .duration(90)
+                .mpa(new Mpa(2, null))
+                .genres(Set.of(new Genre(1, null)))
+                .directors(Set.of(director))
+                .build();
+    }
+
+    // Хранилища поверх журнала в каталоге теста, как после запуска приложения
+    private class Instance implements AutoCloseable {
+        final FileMutationLog log;
+        final InMemoryFilmStorage films;
+        final InMemoryUserStorage users;
+        final InMemoryReviewStorage reviews;
+        final JournalCheckpointer checkpointer;
+
+        Instance() throws IOException {
+            BackgroundThreads threads = new BackgroundThreads(new MockEnvironment());
+            log = new FileMutationLog(threads, directory, 1, 1, true);
+            films = new InMemoryFilmStorage(mpaService, genreService, directorService, new PopularFilmsIndex(),
+                    new LikesIndex(), new FilmSearchIndex(), Optional.of(log));
+            films.loadDirectorNames();
+            users = new InMemoryUserStorage(new FriendsIndex(), new FriendSuggestionsCache(), films, Optional.of(log));
+            reviews = new InMemoryReviewStorage(Optional.of(log));
+            checkpointer = new JournalCheckpointer(log, List.of(films, users, reviews), threads, 60_000, 16);
+            checkpointer.recover();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            checkpointer.stop();
+            log.close();
+        }
+    }
+}
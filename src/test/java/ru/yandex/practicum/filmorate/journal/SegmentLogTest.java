@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentLogTest {
+    private static final int SEGMENT_SIZE = 1024;
+    private static final ThreadFactory THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "test-journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadBackAcrossSegments() throws IOException {
+        List<Long> positions = new ArrayList<>();
+        try (SegmentLog log = open(Duration.ofMillis(1))) {
+            for (int i = 0; i < 100; i++) {
+                positions.add(log.append(payload(i)));
+            }
+            log.awaitDurable(positions.get(positions.size() - 1));
+            assertThat(log.durablePosition()).isEqualTo(log.position());
+        }
+        assertThat(segmentCount()).isGreaterThan(1);
+
+        try (SegmentLog log = open(Duration.ofMillis(1))) {
+            assertThat(log.position()).isEqualTo(positions.get(positions.size() - 1));
+            assertThat(read(log, 0)).hasSize(100).first().isEqualTo("запись 0");
+            // чтение с позиции записи возвращает только следующие за ней
+            assertThat(read(log, positions.get(49))).hasSize(50).first().isEqualTo("запись 50");
+        }
+    }
+
+    @Test
+    void damagedTailIsDiscardedAndOverwritten() throws IOException {
+        long second;
+        try (SegmentLog log = open(Duration.ZERO)) {
+            log.append(payload(1));
+            second = log.append(payload(2));
+            log.append(payload(3));
+        }
+        // повреждение данных третьей записи: контрольная сумма не совпадёт
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), second + SegmentLog.HEADER_SIZE + 1);
+        }
+
+        try (SegmentLog log = open(Duration.ZERO)) {
+            assertThat(log.position()).isEqualTo(second);
+            assertThat(read(log, 0)).containsExactly("запись 1", "запись 2");
+            log.append(payload(4));
+        }
+        try (SegmentLog log = open(Duration.ZERO)) {
+            assertThat(read(log, 0)).containsExactly("запись 1", "запись 2", "запись 4");
+        }
+    }
+
+    @Test
+    void concurrentWritersShareFlushes() throws InterruptedException, IOException {
+        try (SegmentLog log = open(Duration.ofMillis(2))) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread * 200;
+                executor.submit(() -> {
+                    for (int i = first; i < first + 200; i++) {
+                        log.awaitDurable(log.append(payload(i)));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(log.durablePosition()).isEqualTo(log.position());
+            assertThat(read(log, 0)).hasSize(1600).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void segmentsBeforePositionAreDeleted() throws IOException {
+        try (SegmentLog log = open(Duration.ofMillis(1))) {
+            long middle = 0;
+            for (int i = 0; i < 100; i++) {
+                long position = log.append(payload(i));
+                if (i == 60) {
+                    middle = position;
+                }
+            }
+            int segmentsBefore = segmentCount();
+            assertThat(log.deleteBefore(middle)).isPositive();
+            assertThat(segmentCount()).isLessThan(segmentsBefore);
+            assertThat(read(log, middle)).hasSize(39).first().isEqualTo("запись 61");
+            assertThatThrownBy(() -> read(log, 0)).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void emptyLogStartsAtGivenPosition() throws IOException {
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE, Duration.ZERO, THREADS, 5000)) {
+            assertThat(log.position()).isEqualTo(5000);
+            long position = log.append(payload(1));
+            assertThat(read(log, 5000)).containsExactly("запись 1");
+            assertThat(position).isGreaterThan(5000);
+        }
+    }
+
+    private SegmentLog open(Duration window) throws IOException {
+        return new SegmentLog(directory, SEGMENT_SIZE, window, THREADS, 0);
+    }
+
+    private static byte[] payload(int i) {
+        return ("запись " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> read(SegmentLog log, long from) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.read(from, (position, payload) -> records.add(StandardCharsets.UTF_8.decode(payload).toString()));
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private int segmentCount() throws IOException {
+        return segments().size();
+    }
+}
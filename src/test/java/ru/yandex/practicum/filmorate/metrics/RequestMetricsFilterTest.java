@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsFilterTest {
+    private SimpleMeterRegistry registry;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    public void beforeEach() {
+        registry = new SimpleMeterRegistry();
+        jdbc = new JdbcTemplate(new InstrumentedDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1"), registry));
+        jdbc.execute("CREATE TABLE IF NOT EXISTS items(id INT PRIMARY KEY)");
+        jdbc.update("MERGE INTO items KEY(id) VALUES (1), (2), (3)");
+    }
+
+    @Test
+    void statementsAreCountedPerEndpoint() throws ServletException, IOException {
+        long statementsBefore = registry.timer("filmorate.db.statements").count();
+        // N+1: список ID и отдельный запрос на каждый элемент
+        FilterChain chain = (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/items/{id}");
+            for (Integer id : jdbc.queryForList("SELECT id FROM items ORDER BY id", Integer.class)) {
+                jdbc.queryForObject("SELECT id FROM items WHERE id = ?", Integer.class, id);
+            }
+        };
+        new RequestMetricsFilter(registry, 10_000).doFilter(new MockHttpServletRequest("GET", "/items/1"),
+                new MockHttpServletResponse(), chain);
+
+        assertThat(registry.get("filmorate.request.sql.statements").tag("uri", "/items/{id}").summary().totalAmount())
+                .isEqualTo(4);
+        assertThat(registry.get("filmorate.request.db.time").tag("method", "GET").timer().count()).isEqualTo(1);
+        assertThat(registry.timer("filmorate.db.statements").count() - statementsBefore).isEqualTo(4);
+
+        // вне HTTP-запроса трассы нет, запросы учитываются только общим таймером
+        jdbc.queryForList("SELECT id FROM items", Integer.class);
+        assertThat(registry.get("filmorate.request.sql.statements").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowRequestDescriptionShowsRepeatedStatements() {
+        SqlTrace trace = SqlTrace.start();
+        try {
+            List<Integer> ids = jdbc.queryForList("SELECT id FROM items ORDER BY id", Integer.class);
+            ids.forEach(id -> jdbc.queryForObject("SELECT id FROM items WHERE id = ?", Integer.class, id));
+            jdbc.batchUpdate("MERGE INTO items KEY(id) VALUES (?)", List.<Object[]>of(new Object[]{4}));
+        } finally {
+            SqlTrace.stop();
+        }
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        request.setQueryString("count=3");
+        String description = RequestMetricsFilter.describe(request, 200, trace, 1_000_000_000L);
+
+        assertThat(trace.getStatementCount()).isEqualTo(5);
+        assertThat(description)
+                .startsWith("GET /items?count=3 (200): 1000.0 мс, SQL-запросов: 5")
+                .contains("2. ", "SELECT id FROM items WHERE id = ?", "[batch] MERGE INTO items")
+                .contains("повторяется 3 раз: SELECT id FROM items WHERE id = ?");
+    }
+}
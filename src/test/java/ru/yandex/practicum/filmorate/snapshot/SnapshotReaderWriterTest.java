@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotReaderWriterTest {
+    private static final SnapshotTable USERS = new SnapshotTable("users", List.of(
+            new SnapshotTable.Column("id", SnapshotTable.ColumnType.INT),
+            new SnapshotTable.Column("status", SnapshotTable.ColumnType.STRING),
+            new SnapshotTable.Column("birthday", SnapshotTable.ColumnType.DATE),
+            new SnapshotTable.Column("created", SnapshotTable.ColumnType.TIMESTAMP),
+            new SnapshotTable.Column("active", SnapshotTable.ColumnType.BOOLEAN)));
+    private static final SnapshotTable EMPTY = new SnapshotTable("empty", List.of(
+            new SnapshotTable.Column("id", SnapshotTable.ColumnType.INT)));
+
+    @Test
+    void rowsSurviveRoundTripAcrossBlocks() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 2500; i++) {
+            rows.add(new Object[]{i * 3, i % 7 == 0 ? null : "status" + i % 3,
+                i % 5 == 0 ? null : LocalDate.of(1950, 1, 1).plusDays(i * 11L),
+                LocalDateTime.of(2024, 5, 1, 12, 0).minusSeconds(i * 37L).withNano(i * 1000),
+                i % 11 == 0 ? null : i % 2 == 0});
+        }
+        rows.add(new Object[]{-5, "", null, null, null});
+
+        byte[] snapshot = write(rows);
+        try (SnapshotReader reader = new SnapshotReader(new ByteArrayInputStream(snapshot))) {
+            assertThat(reader.nextTable()).isEqualTo(USERS);
+            List<Object[]> restored = new ArrayList<>();
+            List<Object[]> block;
+            while (!(block = reader.readBlock()).isEmpty()) {
+                restored.addAll(block);
+            }
+            assertThat(restored).hasSameSizeAs(rows);
+            for (int i = 0; i < rows.size(); i++) {
+                assertThat(restored.get(i)).as("строка %d", i).containsExactly(rows.get(i));
+            }
+            assertThat(reader.nextTable()).isEqualTo(EMPTY);
+            assertThat(reader.readBlock()).isEmpty();
+            assertThat(reader.nextTable()).isNull();
+        }
+    }
+
+    @Test
+    void repeatedValuesAreEncodedCompactly() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            rows.add(new Object[]{i, "confirmed", LocalDate.of(2000, 1, 1), LocalDateTime.of(2024, 1, 1, 0, 0), true});
+        }
+        // ID и дата - по байту, строка - код словаря, флаг - бит
+        assertThat(write(rows).length).isLessThan(10_000 * 5);
+    }
+
+    @Test
+    void invalidSnapshotIsRejected() throws IOException {
+        assertThatThrownBy(() -> new SnapshotReader(new ByteArrayInputStream("not a snapshot".getBytes())))
+                .isInstanceOf(SnapshotFormatException.class);
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1, "a", null, null, true});
+        byte[] snapshot = write(rows);
+        // снимок без отметки завершения
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 1);
+        assertThatThrownBy(() -> readAll(truncated)).isInstanceOf(SnapshotFormatException.class);
+    }
+
+    private static byte[] write(List<Object[]> rows) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(output)) {
+            writer.beginTable(USERS);
+            for (Object[] row : rows) {
+                writer.writeRow(row);
+            }
+            writer.endTable();
+            writer.beginTable(EMPTY);
+            writer.endTable();
+            writer.finish();
+        }
+        return output.toByteArray();
+    }
+
+    private static void readAll(byte[] snapshot) throws IOException {
+        try (SnapshotReader reader = new SnapshotReader(new ByteArrayInputStream(snapshot))) {
+            while (reader.nextTable() != null) {
+                while (!reader.readBlock().isEmpty()) {
+                    // чтение до конца таблицы
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.test.context.ContextConfiguration;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.GenreDbStorage;
+import ru.yandex.practicum.filmorate.dal.MpaDbStorage;
+import ru.yandex.practicum.filmorate.dal.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.ReviewRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {FilmDbStorage.class, FilmRowMapper.class, UserDbStorage.class, UserRowMapper.class,
+        GenreDbStorage.class, GenreRowMapper.class, GenreService.class, MpaDbStorage.class, MpaRowMapper.class,
+        MpaService.class, DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class,
+        PopularFilmsIndex.class, LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class,
+        FriendSuggestionsCache.class, ResourceVersions.class, ReviewDbStorage.class, ReviewRowMapper.class})
+class DbStorageContractTest extends StorageContractTest {
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final ReviewDbStorage reviewStorage;
+    private final DirectorService directorService;
+
+    @Override
+    protected FilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    @Override
+    protected UserStorage userStorage() {
+        return userStorage;
+    }
+
+    @Override
+    protected ReviewStorage reviewStorage() {
+        return reviewStorage;
+    }
+
+    @Override
+    protected DirectorService directorService() {
+        return directorService;
+    }
+
+    // индексы обновляются после фиксации транзакции, в тесте - пересборкой
+    @Override
+    protected void syncIndexes() {
+        filmStorage.rebuildIndexes();
+        userStorage.rebuildFriendsIndex();
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.GenreDbStorage;
+import ru.yandex.practicum.filmorate.dal.MpaDbStorage;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("in-memory")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {InMemoryFilmStorage.class, InMemoryUserStorage.class, GenreDbStorage.class,
+        GenreRowMapper.class, GenreService.class, MpaDbStorage.class, MpaRowMapper.class, MpaService.class,
+        DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class, PopularFilmsIndex.class,
+        LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class, FriendSuggestionsCache.class,
+        ResourceVersions.class, InMemoryReviewStorage.class})
+class InMemoryStorageContractTest extends StorageContractTest {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final InMemoryReviewStorage reviewStorage;
+    private final DirectorService directorService;
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikesIndex likesIndex;
+
+    @Test
+    void concurrentLikesAreCountedOnce() throws InterruptedException {
+        Film film = filmStorage.addFilm(Film.builder()
+                .name("Параллельные лайки")
+                .releaseDate(LocalDate.of(1933, 1, 1))
+                .mpa(new Mpa(1, null))
+                .build());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                // все потоки ставят одни и те же лайки и снимают лайки чётных пользователей
+                for (int userId = 1; userId <= 500; userId++) {
+                    filmStorage.addLike(film.getId(), userId);
+                    if (userId % 2 == 0) {
+                        filmStorage.removeLike(film.getId(), userId);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).hasSize(250).allMatch(userId -> userId % 2 == 1);
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(250);
+    }
+
+    @Test
+    void deleteUserRemovesLikes() {
+        Film film = filmStorage.addFilm(film("Лайк удалённого"));
+        User stays = userStorage.addUser(user("stays"));
+        User deleted = userStorage.addUser(user("deleted"));
+        filmStorage.addLike(film.getId(), stays.getId());
+        filmStorage.addLike(film.getId(), deleted.getId());
+
+        userStorage.deleteUserById(deleted.getId());
+
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).containsExactly(stays.getId());
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(1);
+        assertThat(likesIndex.getLikedFilmIds(deleted.getId())).isEmpty();
+    }
+
+    @Test
+    void importReportsRowsRejectedByStorage() {
+        Film film = filmStorage.addFilm(film("Импорт лайков"));
+        ImportService importService = new ImportService(filmStorage, userStorage, mpaService, genreService,
+                directorService, new ObjectMapper(), new ResourceVersions(), 100);
+        String ndjson = "{\"filmId\": " + film.getId() + ", \"userId\": 1}\n"
+                + "{\"filmId\": 999999, \"userId\": 1}\n"
+                + "{\"filmId\": " + film.getId() + ", \"userId\": 2}\n";
+
+        ImportResult result = importService.importLikes(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(ImportResult.RowError::line).containsExactly(2L);
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .releaseDate(LocalDate.of(1933, 1, 1))
+                .mpa(new Mpa(1, null))
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Override
+    protected FilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    @Override
+    protected UserStorage userStorage() {
+        return userStorage;
+    }
+
+    @Override
+    protected ReviewStorage reviewStorage() {
+        return reviewStorage;
+    }
+
+    @Override
+    protected DirectorService directorService() {
+        return directorService;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.cache.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.config.BackgroundThreads;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.GenreDbStorage;
+import ru.yandex.practicum.filmorate.dal.MpaDbStorage;
+import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendsIndex;
+import ru.yandex.practicum.filmorate.index.LikesIndex;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.journal.FileMutationLog;
+import ru.yandex.practicum.filmorate.journal.JournalCheckpointer;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("journal")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ContextConfiguration(classes = {InMemoryFilmStorage.class, InMemoryUserStorage.class, InMemoryReviewStorage.class,
+        FileMutationLog.class, JournalCheckpointer.class, BackgroundThreads.class, GenreDbStorage.class,
+        GenreRowMapper.class, GenreService.class, MpaDbStorage.class, MpaRowMapper.class, MpaService.class,
+        DirectorDbStorage.class, DirectorRowMapper.class, DirectorService.class, PopularFilmsIndex.class,
+        LikesIndex.class, FilmSearchIndex.class, FriendsIndex.class, FriendSuggestionsCache.class,
+        ResourceVersions.class})
+class JournalStorageContractTest extends StorageContractTest {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final InMemoryReviewStorage reviewStorage;
+    private final DirectorService directorService;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("filmorate.journal.dir", Files.createTempDirectory("filmorate-journal")::toString);
+        registry.add("filmorate.journal.segment-size-mb", () -> 1);
+    }
+
+    @Override
+    protected FilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    @Override
+    protected UserStorage userStorage() {
+        return userStorage;
+    }
+
+    @Override
+    protected ReviewStorage reviewStorage() {
+        return reviewStorage;
+    }
+
+    @Override
+    protected DirectorService directorService() {
+        return directorService;
+    }
+}
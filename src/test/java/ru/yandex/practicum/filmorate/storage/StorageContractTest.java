@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Общие проверки хранилищ фильмов, пользователей и отзывов: одни и те же сценарии выполняются
+ * для хранилищ в БД, в памяти и в памяти с журналом. Контекст теста общий для всех методов, а данные в памяти
+ * не откатываются, поэтому проверки опираются только на созданные в самом тесте записи.
+ */
+
+abstract class StorageContractTest {
+
+    protected abstract FilmStorage filmStorage();
+
+    protected abstract UserStorage userStorage();
+
+    protected abstract ReviewStorage reviewStorage();
+
+    protected abstract DirectorService directorService();
+
+    // Синхронизация индексов перед чтением из них (хранилища в БД обновляют индексы после фиксации транзакции)
+    protected void syncIndexes() {
+    }
+
+    @Test
+    void addGetUpdateAndPageUsers() {
+        User first = userStorage().addUser(user("first"));
+        User second = userStorage().addUser(user("second"));
+
+        assertThat(userStorage().getUserById(first.getId()).getLogin()).isEqualTo("first");
+        second.setLogin("renamed");
+        userStorage().updateUser(second);
+        assertThat(userStorage().getUserById(second.getId()).getLogin()).isEqualTo("renamed");
+
+        assertThat(userStorage().getUsers(first.getId() - 1, 1)).extracting(User::getId)
+                .containsExactly(first.getId());
+        assertThat(userStorage().getUsers(first.getId(), 10)).extracting(User::getId)
+                .containsExactly(second.getId());
+        assertThat(userStorage().getUsersByIds(List.of(second.getId(), Integer.MAX_VALUE, first.getId())))
+                .extracting(User::getId).containsExactly(second.getId(), first.getId());
+        List<Integer> streamed = new ArrayList<>();
+        userStorage().streamAllUsers(user -> streamed.add(user.getId()));
+        assertThat(streamed).isSorted().contains(first.getId(), second.getId());
+        assertThatThrownBy(() -> userStorage().getUserById(Integer.MAX_VALUE)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void friendsCommonFriendsAndUserDeletion() {
+        List<User> users = userStorage().addUsers(List.of(user("a"), user("b"), user("c")));
+        int a = users.get(0).getId();
+        int b = users.get(1).getId();
+        int c = users.get(2).getId();
+
+        userStorage().addFriend(a, b, "unconfirmed");
+        userStorage().addFriend(a, c, "unconfirmed");
+        userStorage().addFriends(List.of(new int[]{b, c}, new int[]{b, c}));
+        syncIndexes();
+        assertThat(userStorage().isFriend(a, b)).isTrue();
+        assertThat(userStorage().isFriend(b, a)).isFalse();
+        assertThat(userStorage().getFriendIds(a)).containsExactly(b, c);
+        assertThat(userStorage().getFriends(a)).extracting(User::getId).containsExactlyInAnyOrder(b, c);
+        assertThat(userStorage().getCommonFriends(a, b)).extracting(User::getId).containsExactly(c);
+
+        userStorage().removeFriend(a, b);
+        syncIndexes();
+        assertThat(userStorage().isFriend(a, b)).isFalse();
+        assertThat(userStorage().getFriendIds(a)).containsExactly(c);
+
+        userStorage().deleteUserById(c);
+        syncIndexes();
+        assertThat(userStorage().getFriendIds(a)).isEmpty();
+        assertThat(userStorage().getCommonFriends(a, b)).isEmpty();
+        assertThatThrownBy(() -> userStorage().getUserById(c)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void userDeletionRemovesLikes() {
+        List<User> users = userStorage().addUsers(List.of(user("likes-stays"), user("likes-deleted")));
+        Film film = filmStorage().addFilm(film("Лайки удалённого", LocalDate.of(1935, 1, 1)));
+        int stays = users.get(0).getId();
+        int deleted = users.get(1).getId();
+        filmStorage().addLike(film.getId(), stays);
+        filmStorage().addLike(film.getId(), deleted);
+
+        userStorage().deleteUserById(deleted);
+        syncIndexes();
+
+        assertThat(filmStorage().getFilmById(film.getId()).getLikes()).containsExactly(stays);
+        assertThat(filmStorage().getMostPopularFilms(10, null, 1935)).extracting(Film::getId)
+                .containsExactly(film.getId());
+    }
+
+    @Test
+    void addGetUpdateAndPageFilms() {
+        Director director = directorService().addDirector(new Director(0, "Режиссер контракта"));
+        Film first = film("Первый", LocalDate.of(1930, 1, 1), new Genre(4, null), new Genre(1, null));
+        first.setDirectors(Set.of(director));
+        Film second = film("Второй", LocalDate.of(1930, 2, 1));
+        filmStorage().addFilms(List.of(first, second));
+
+        Film found = filmStorage().getFilmById(first.getId());
+        assertThat(found.getGenres()).containsExactly(new Genre(1, "Комедия"), new Genre(4, "Триллер"));
+        assertThat(found.getMpa()).isEqualTo(new Mpa(3, "PG-13"));
+        assertThat(found.getDirectors()).extracting(Director::getName).containsExactly("Режиссер контракта");
+        assertThat(found.getLikes()).isEmpty();
+
+        found.setName("Первый, обновлённый");
+        found.setGenres(Set.of(new Genre(2, null)));
+        filmStorage().updateFilm(found);
+        found.setGenres(null);
+        found.setDirectors(null);
+        filmStorage().updateFilm(found); // без жанров и режиссеров связи не меняются
+        Film updated = filmStorage().getFilmById(first.getId());
+        assertThat(updated.getName()).isEqualTo("Первый, обновлённый");
+        assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(updated.getDirectors()).extracting(Director::getId).containsExactly(director.getId());
+
+        assertThat(filmStorage().getFilms(first.getId() - 1, 1)).extracting(Film::getId)
+                .containsExactly(first.getId());
+        assertThat(filmStorage().getFilms(first.getId(), 10)).extracting(Film::getId)
+                .containsExactly(second.getId());
+        assertThat(filmStorage().getFilmsByIds(List.of(second.getId(), Integer.MAX_VALUE, first.getId())))
+                .extracting(Film::getId).containsExactly(second.getId(), first.getId());
+        assertThat(filmStorage().getAllFilms()).contains(updated, filmStorage().getFilmById(second.getId()));
+        assertThatThrownBy(() -> filmStorage().getFilmById(Integer.MAX_VALUE)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void addFilmWithUnknownMpaFails() {
+        Film film = film("Без рейтинга", LocalDate.of(1930, 3, 1));
+        film.setMpa(new Mpa(999, null));
+
+        assertThatThrownBy(() -> filmStorage().addFilm(film)).isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void likesPopularityAndCommonFilms() {
+        List<User> users = userStorage().addUsers(List.of(user("l1"), user("l2"), user("l3")));
+        List<Film> films = filmStorage().addFilms(List.of(film("Лайки 1", LocalDate.of(1931, 1, 1), new Genre(5, null)),
+                film("Лайки 2", LocalDate.of(1931, 2, 1), new Genre(5, null)),
+                film("Лайки 3", LocalDate.of(1931, 3, 1), new Genre(6, null))));
+        int f1 = films.get(0).getId();
+        int f2 = films.get(1).getId();
+        int f3 = films.get(2).getId();
+        int u1 = users.get(0).getId();
+        int u2 = users.get(1).getId();
+        int u3 = users.get(2).getId();
+
+        filmStorage().addLike(f1, u1);
+        filmStorage().addLike(f1, u1);
+        int added = filmStorage().addLikes(List.of(new int[]{f2, u1}, new int[]{f2, u2}, new int[]{f2, u3},
+                new int[]{f2, u3}, new int[]{f3, u2}));
+        assertThat(added).isEqualTo(4);
+        filmStorage().addLike(f1, u2);
+        filmStorage().removeLike(f3, u2);
+        filmStorage().removeLike(f3, u2);
+        syncIndexes();
+
+        assertThat(filmStorage().getFilmById(f1).getLikes()).containsExactlyInAnyOrder(u1, u2);
+        assertThat(filmStorage().getFilmById(f3).getLikes()).isEmpty();
+        assertThat(filmStorage().getMostPopularFilms(10, null, 1931)).extracting(Film::getId)
+                .containsExactly(f2, f1, f3);
+        assertThat(filmStorage().getMostPopularFilms(1, null, 1931)).extracting(Film::getId).containsExactly(f2);
+        assertThat(filmStorage().getMostPopularFilms(10, 5, 1931)).extracting(Film::getId).containsExactly(f2, f1);
+        assertThat(filmStorage().getCommonFilms(u1, u2)).containsExactly(f2, f1);
+        assertThat(filmStorage().getCommonFilms(u1, u3)).containsExactly(f2);
+    }
+
+    @Test
+    void updateWithoutGenresKeepsFilmInPopularByGenre() {
+        Film film = filmStorage().addFilm(film("Жанр без изменений", LocalDate.of(1933, 1, 1), new Genre(3, null)));
+        film.setName("Жанр без изменений, обновлённый");
+        film.setGenres(null);
+        filmStorage().updateFilm(film); // индексы обновляются самим хранилищем, без синхронизации
+
+        assertThat(filmStorage().getMostPopularFilms(10, 3, 1933)).extracting(Film::getId)
+                .containsExactly(film.getId());
+    }
+
+    @Test
+    void sortDirectorFilmsByYearAndLikes() {
+        User user = userStorage().addUser(user("sorter"));
+        Director director = directorService().addDirector(new Director(0, "Режиссер сортировки"));
+        List<Film> films = new ArrayList<>();
+        for (LocalDate date : List.of(LocalDate.of(1950, 1, 1), LocalDate.of(1940, 1, 1))) {
+            Film film = film("Сортировка " + date.getYear(), date);
+            film.setDirectors(Set.of(director));
+            films.add(filmStorage().addFilm(film));
+        }
+        filmStorage().addLike(films.get(0).getId(), user.getId());
+
+        assertThat(filmStorage().sortingFilms(director.getId(), "year")).extracting(Film::getId)
+                .containsExactly(films.get(1).getId(), films.get(0).getId());
+        assertThat(filmStorage().sortingFilms(director.getId(), "likes")).extracting(Film::getId)
+                .containsExactly(films.get(0).getId(), films.get(1).getId());
+        assertThatThrownBy(() -> filmStorage().sortingFilms(director.getId(), "name"))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void searchByTitleAndDirector() {
+        User user = userStorage().addUser(user("searcher"));
+        Director director = directorService().addDirector(new Director(0, "Аполлинарий Зеркальный"));
+        Film byTitle = filmStorage().addFilm(film("Зеркальный лабиринт", LocalDate.of(1960, 1, 1)));
+        Film byDirector = film("Туман", LocalDate.of(1961, 1, 1));
+        byDirector.setDirectors(Set.of(director));
+        filmStorage().addFilm(byDirector);
+        filmStorage().addLike(byDirector.getId(), user.getId());
+        syncIndexes();
+
+        assertThat(filmStorage().searchFilm("зеркальный", "title")).extracting(Film::getId)
+                .containsExactly(byTitle.getId());
+        assertThat(filmStorage().searchFilm("ЗЕРКАЛЬН", "director")).extracting(Film::getId)
+                .containsExactly(byDirector.getId());
+        assertThat(filmStorage().searchFilm("зеркальный", "title,director")).extracting(Film::getId)
+                .containsExactly(byDirector.getId(), byTitle.getId());
+    }
+
+    @Test
+    void deleteFilmRemovesItFromIndexes() {
+        User user = userStorage().addUser(user("deleter"));
+        Director director = directorService().addDirector(new Director(0, "Режиссер удаления"));
+        Film film = film("Удаляемый фильм", LocalDate.of(1932, 1, 1));
+        film.setDirectors(Set.of(director));
+        filmStorage().addFilm(film);
+        filmStorage().addLike(film.getId(), user.getId());
+        syncIndexes();
+
+        assertThat(filmStorage().deleteFilmById(film.getId()).getName()).isEqualTo("Удаляемый фильм");
+        syncIndexes();
+        assertThatThrownBy(() -> filmStorage().getFilmById(film.getId())).isInstanceOf(NotFoundException.class);
+        assertThat(filmStorage().getMostPopularFilms(10, null, 1932)).isEmpty();
+        assertThat(filmStorage().searchFilm("удаляемый", "title")).isEmpty();
+        assertThat(filmStorage().sortingFilms(director.getId(), "year")).isEmpty();
+        assertThat(filmStorage().getCommonFilms(user.getId(), user.getId())).isEmpty();
+    }
+
+    @Test
+    void reviewVotesUsefulnessAndTopReviews() {
+        User author = userStorage().addUser(user("reviewer"));
+        List<User> voters = userStorage().addUsers(List.of(user("voter1"), user("voter2")));
+        int v1 = voters.get(0).getId();
+        int v2 = voters.get(1).getId();
+        Film film = filmStorage().addFilm(film("Фильм с отзывами", LocalDate.of(1934, 1, 1)));
+        Review first = reviewStorage().addReview(new Review(0, film.getId(), author.getId(), "Первый", true, 0));
+        Review second = reviewStorage().addReview(new Review(0, film.getId(), author.getId(), "Второй", true, 0));
+
+        reviewStorage().addLike(second.getReviewId(), v1);
+        reviewStorage().addLike(second.getReviewId(), v2);
+        reviewStorage().addDislike(second.getReviewId(), v2); // замена оценки: 2 -> 0
+        reviewStorage().removeDislike(second.getReviewId(), v2);
+        reviewStorage().addDislike(first.getReviewId(), v1);
+        reviewStorage().addDislike(first.getReviewId(), v1);
+        assertThat(reviewStorage().getReviewById(second.getReviewId()).getUseful()).isEqualTo(1);
+        assertThat(reviewStorage().getReviewById(first.getReviewId()).getUseful()).isEqualTo(-1);
+        assertThat(reviewStorage().getTopReviews(film.getId(), 10)).extracting(Review::getReviewId)
+                .containsExactly(second.getReviewId(), first.getReviewId());
+        assertThat(reviewStorage().getTopReviews(film.getId(), 1)).extracting(Review::getReviewId)
+                .containsExactly(second.getReviewId());
+
+        reviewStorage().updateReview(new Review(first.getReviewId(), 0, 0, "Первый, обновлённый", false, 0));
+        Review updated = reviewStorage().getReviewById(first.getReviewId());
+        assertThat(updated.getContent()).isEqualTo("Первый, обновлённый");
+        assertThat(updated.getIsPositive()).isFalse();
+        assertThat(updated.getFilmId()).isEqualTo(film.getId());
+        assertThat(updated.getUseful()).isEqualTo(-1);
+
+        reviewStorage().deleteReviewById(second.getReviewId());
+        assertThatThrownBy(() -> reviewStorage().getReviewById(second.getReviewId()))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(reviewStorage().getTopReviews(film.getId(), 10)).extracting(Review::getReviewId)
+                .containsExactly(first.getReviewId());
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film film(String name, LocalDate releaseDate, Genre... genres) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(releaseDate)
+                .duration(100)
+                .mpa(new Mpa(3, null))
+                .genres(Set.of(genres))
+                .build();
+    }
+}